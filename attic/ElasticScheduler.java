@@ -289,7 +289,7 @@ public class ElasticScheduler implements Scheduler, Monitorable {
 
     @Override
     public void delayedCall(long millis, final Runnable toRun) {
-        Actors.delayedCalls.schedule(new TimerTask() {
+        Actors.getDelayedCalls().schedule(new TimerTask() {
             @Override
             public void run() {
                 toRun.run();
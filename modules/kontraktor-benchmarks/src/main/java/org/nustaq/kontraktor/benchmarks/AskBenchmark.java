@@ -0,0 +1,63 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IPromise round trip latency. 'external' awaits each result from the benchmark thread, 'actorToActor'
+ * measures sequential asks in between two actors (next ask is sent from the result callback).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AskBenchmark extends SchedulerParam {
+
+    public static final int LOOP = 1000;
+
+    BenchActor requester;
+    BenchActor responder;
+    int count;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        requester = Actors.AsActor(BenchActor.class, scheduler());
+        responder = Actors.AsActor(BenchActor.class, scheduler());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requester.stop();
+        responder.stop();
+    }
+
+    @Benchmark
+    public Integer external() {
+        return responder.echo(count++).await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public Integer actorToActor() {
+        return requester.askLoop(responder, LOOP).await();
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+
+/**
+ * actor used by all benchmark suites
+ */
+public class BenchActor extends Actor<BenchActor> {
+
+    long sum;
+
+    public void add(int value) {
+        sum += value;
+    }
+
+    public IPromise<Integer> echo(int value) {
+        return resolve(value);
+    }
+
+    public IPromise<Long> getSum() {
+        return resolve(sum);
+    }
+
+    public void pong(int value, Callback<Integer> cb) {
+        cb.complete(value, null);
+    }
+
+    /**
+     * n sequential asks to other, each ask is sent once the previous result arrived
+     */
+    public IPromise<Integer> askLoop(BenchActor other, int n) {
+        Promise<Integer> res = new Promise<>();
+        nextAsk(other, n, 0, res);
+        return res;
+    }
+
+    private void nextAsk(BenchActor other, int n, int count, Promise<Integer> res) {
+        if ( count == n ) {
+            res.resolve(count);
+            return;
+        }
+        other.echo(count).then( (r, e) -> nextAsk(other, n, count + 1, res) );
+    }
+
+    /**
+     * n sequential callback round trips
+     */
+    public IPromise<Integer> pingPong(BenchActor other, int n) {
+        Promise<Integer> res = new Promise<>();
+        nextPing(other, n, 0, res);
+        return res;
+    }
+
+    private void nextPing(BenchActor other, int n, int count, Promise<Integer> res) {
+        if ( count == n ) {
+            res.resolve(count);
+            return;
+        }
+        other.pong(count, (r, e) -> nextPing(other, n, count + 1, res));
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.annotations.BoundedMailbox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * many sender threads targeting the mailbox of a single actor. Each thread sends a batch, then
+ * awaits a ping, so the mailbox is bounded by threads * BATCH.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(8)
+@OperationsPerInvocation(ContentionBenchmark.BATCH)
+public class ContentionBenchmark extends SchedulerParam {
+
+    public static final int BATCH = 1000;
+
+    @BoundedMailbox(size = 4096)
+    public static class BoundedBenchActor extends BenchActor {
+    }
+
+    @Param({"default", "bounded"})
+    public String mailbox;
+
+    BenchActor actor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Class<? extends BenchActor> clazz = "bounded".equals(mailbox) ? BoundedBenchActor.class : BenchActor.class;
+        actor = Actors.AsActor(clazz, scheduler());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actor.stop();
+    }
+
+    @Benchmark
+    public Object tell() {
+        for (int i = 0; i < BATCH; i++) {
+            actor.add(1);
+        }
+        return actor.ping().await();
+    }
+
+}
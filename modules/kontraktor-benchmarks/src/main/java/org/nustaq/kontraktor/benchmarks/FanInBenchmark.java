@@ -0,0 +1,61 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actors.all fan in: many asks spread over some actors, joined into a single promise
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@OperationsPerInvocation(FanInBenchmark.ASKS)
+public class FanInBenchmark extends SchedulerParam {
+
+    public static final int ASKS = 1000;
+
+    @Param({"1", "8"})
+    public int numActors;
+
+    BenchActor actors[];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actors = new BenchActor[numActors];
+        for (int i = 0; i < actors.length; i++) {
+            actors[i] = Actors.AsActor(BenchActor.class, scheduler());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < actors.length; i++) {
+            actors[i].stop();
+        }
+    }
+
+    @Benchmark
+    public Object all() {
+        return Actors.all(ASKS, i -> actors[i % actors.length].echo(i)).await();
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.util.Hoarde;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hoarde fan out: one call to each actor of a hoarde, results joined
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HoardeBenchmark extends SchedulerParam {
+
+    @Param({"4", "16"})
+    public int hoardeSize;
+
+    Hoarde<BenchActor> hoarde;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        hoarde = new Hoarde<>(hoardeSize, BenchActor.class, scheduler());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hoarde.each( act -> act.stop() );
+    }
+
+    @Benchmark
+    public Object map() {
+        IPromise results[] = hoarde.map( (act, i) -> act.echo(i) );
+        return Actors.all(results).await();
+    }
+
+    @Benchmark
+    public Object ordered() {
+        return hoarde.ordered( act -> act.echo(1) ).await();
+    }
+
+}
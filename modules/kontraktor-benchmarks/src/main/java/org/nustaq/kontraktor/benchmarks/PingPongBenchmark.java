@@ -0,0 +1,57 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * callback heavy ping pong in between two actors, each round trip passes a callback which is
+ * completed by the receiver and dispatched on the sender's callback queue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@OperationsPerInvocation(PingPongBenchmark.ROUND_TRIPS)
+public class PingPongBenchmark extends SchedulerParam {
+
+    public static final int ROUND_TRIPS = 1000;
+
+    BenchActor ping;
+    BenchActor pong;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ping = Actors.AsActor(BenchActor.class, scheduler());
+        pong = Actors.AsActor(BenchActor.class, scheduler());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ping.stop();
+        pong.stop();
+    }
+
+    @Benchmark
+    public Integer pingPong() {
+        return ping.pingPong(pong, ROUND_TRIPS).await();
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Promise.then chains without actors involved: cost of promise creation, chaining and settling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PromiseBenchmark {
+
+    @Param({"1", "10"})
+    public int chainLength;
+
+    @Benchmark
+    public void resolveThenChain(Blackhole bh) {
+        Promise<Integer> root = new Promise<>();
+        IPromise<Integer> p = root;
+        for (int i = 0; i < chainLength; i++) {
+            p = p.thenAnd( r -> new Promise<>(r + 1) );
+        }
+        p.then( (r, e) -> bh.consume(r) );
+        root.resolve(0);
+    }
+
+    @Benchmark
+    public void thenOnResolved(Blackhole bh) {
+        IPromise<Integer> p = new Promise<>(0);
+        for (int i = 0; i < chainLength; i++) {
+            p = p.thenAnd( r -> new Promise<>(r + 1) );
+        }
+        p.then( (r, e) -> bh.consume(r) );
+    }
+
+}
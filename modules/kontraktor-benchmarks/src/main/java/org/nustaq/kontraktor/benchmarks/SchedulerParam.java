@@ -0,0 +1,76 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Scheduler;
+import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.impl.WorkStealingScheduler;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * base state of actor benchmarks, creates the scheduler under test. Add new schedulers to
+ * the param list and create().
+ */
+@State(Scope.Benchmark)
+public abstract class SchedulerParam {
+
+    public static final String SIMPLE = "simple";
+    public static final String SIGNAL = "signal";
+    public static final String WORK_STEALING = "workstealing";
+
+    @Param({SIMPLE, SIGNAL, WORK_STEALING})
+    public String scheduler;
+
+    protected Scheduler sched;
+
+    public static Scheduler create(String name) {
+        switch (name) {
+            case SIMPLE:
+                return new SimpleScheduler(true);
+            case SIGNAL: {
+                boolean prev = DispatcherThread.SIGNAL_DRIVEN;
+                DispatcherThread.SIGNAL_DRIVEN = true;
+                try {
+                    return new SimpleScheduler(true);
+                } finally {
+                    DispatcherThread.SIGNAL_DRIVEN = prev;
+                }
+            }
+            case WORK_STEALING:
+                return new WorkStealingScheduler(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+            default:
+                throw new IllegalArgumentException("unknown scheduler " + name);
+        }
+    }
+
+    /**
+     * @return scheduler of current trial, created lazily so subclass setup methods can rely on it
+     */
+    protected Scheduler scheduler() {
+        if ( sched == null )
+            sched = create(scheduler);
+        return sched;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopScheduler() {
+        if ( sched != null ) {
+            sched.terminateIfIdle();
+            sched = null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks;
+
+import org.nustaq.kontraktor.Actors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one way message throughput. A batch of tells is sent, then the mailbox is drained by awaiting a ping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@OperationsPerInvocation(TellBenchmark.BATCH)
+public class TellBenchmark extends SchedulerParam {
+
+    public static final int BATCH = 10_000;
+
+    BenchActor actor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actor = Actors.AsActor(BenchActor.class, scheduler());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actor.stop();
+    }
+
+    @Benchmark
+    public Object tell() {
+        for (int i = 0; i < BATCH; i++) {
+            actor.add(1);
+        }
+        return actor.ping().await();
+    }
+
+}
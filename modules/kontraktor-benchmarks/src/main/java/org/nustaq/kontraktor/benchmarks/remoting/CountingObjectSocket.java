@@ -0,0 +1,122 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks.remoting;
+
+import org.nustaq.kontraktor.remoting.base.ObjectSocket;
+import org.nustaq.serialization.FSTConfiguration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * wraps the write socket of a connection and counts the bytes of each flushed batch, encoded like the
+ * transports do (entries + sequence number, length prefix). Transport specific framing (http headers,
+ * websocket frames) is not counted. Batches are encoded a second time for counting, so only use with
+ * calls not passing callbacks (encoding a callback publishes it).
+ */
+public class CountingObjectSocket implements ObjectSocket {
+
+    final ObjectSocket socket;
+    final List<Object> batch = new ArrayList<>();
+    final AtomicLong bytes = new AtomicLong();
+
+    public CountingObjectSocket(ObjectSocket socket) {
+        this.socket = socket;
+    }
+
+    public ObjectSocket getSocket() {
+        return socket;
+    }
+
+    /**
+     * @return bytes written so far
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public void writeObject(Object toWrite) throws Exception {
+        synchronized (batch) {
+            batch.add(toWrite);
+        }
+        socket.writeObject(toWrite);
+    }
+
+    @Override
+    public void flush() throws Exception {
+        synchronized (batch) {
+            if ( batch.size() > 0 ) {
+                batch.add(0); // sequence
+                bytes.addAndGet(getConf().asByteArray(batch.toArray()).length + 4);
+                batch.clear();
+            }
+        }
+        socket.flush();
+    }
+
+    @Override
+    public void setLastError(Throwable ex) {
+        socket.setLastError(ex);
+    }
+
+    @Override
+    public Throwable getLastError() {
+        return socket.getLastError();
+    }
+
+    @Override
+    public void setConf(FSTConfiguration conf) {
+        socket.setConf(conf);
+    }
+
+    @Override
+    public FSTConfiguration getConf() {
+        return socket.getConf();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public boolean canWrite() {
+        return socket.canWrite();
+    }
+
+    @Override
+    public void setWritableListener(Runnable listener) {
+        socket.setWritableListener(listener);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public int getId() {
+        return socket.getId();
+    }
+
+    @Override
+    public String getConnectionIdentifier() {
+        return socket.getConnectionIdentifier();
+    }
+}
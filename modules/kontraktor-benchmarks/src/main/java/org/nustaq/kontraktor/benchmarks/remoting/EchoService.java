@@ -0,0 +1,83 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks.remoting;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.annotations.Local;
+import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
+import org.nustaq.kontraktor.remoting.base.ServingActor;
+
+import java.io.Serializable;
+
+/**
+ * remote side of the transport benchmarks
+ */
+public class EchoService extends Actor<EchoService> implements ServingActor {
+
+    public static class Payload implements Serializable {
+        public String name;
+        public long timeStamp;
+        public double values[];
+        public String tags[];
+
+        public Payload() {
+        }
+
+        public Payload(int size) {
+            name = "payload";
+            timeStamp = 1_234_567_890L;
+            values = new double[size];
+            tags = new String[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = i * 1.5;
+                tags[i] = "tag" + i;
+            }
+        }
+    }
+
+    long count;
+    ConnectionRegistry connection; // of the last connected client
+
+    public IPromise<Object> echo(Object value) {
+        return resolve(value);
+    }
+
+    public void send(Object value) {
+        count++;
+    }
+
+    public IPromise<Long> getCount() {
+        return resolve(count);
+    }
+
+    @Local
+    public IPromise<ConnectionRegistry> getConnection() {
+        return resolve(connection);
+    }
+
+    @Local @Override
+    public void clientConnected(ConnectionRegistry connectionRegistry, String connectionIdentifier) {
+        connection = connectionRegistry;
+    }
+
+    @Local @Override
+    public void clientDisconnected(ConnectionRegistry connectionRegistry, String connectionIdentifier) {
+        if ( connection == connectionRegistry )
+            connection = null;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.benchmarks.remoting;
+
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
+import org.nustaq.kontraktor.remoting.base.ObjectSocket;
+import org.nustaq.kontraktor.remoting.encoding.Coding;
+import org.nustaq.kontraktor.remoting.encoding.SerializerType;
+import org.nustaq.kontraktor.remoting.http.HttpConnectable;
+import org.nustaq.kontraktor.remoting.http.undertow.HttpPublisher;
+import org.nustaq.kontraktor.remoting.http.undertow.WebSocketPublisher;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+import org.nustaq.kontraktor.remoting.tcp.TCPPublisher;
+import org.nustaq.kontraktor.remoting.websockets.WebSocketConnectable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * in-process client/server pair over each transport and coding.
+ *
+ * ask: SampleTime mode, JMH reports p50/p99/p999 latency of a remote round trip
+ * tell: msgs/sec of one way calls (batch, then a round trip to drain)
+ * bytesPerCall (aux counter): bytes written by client and server per ask, measured on the connections
+ *
+ * java -jar target/benchmarks.jar TransportBenchmark -p transport=tcp,nio -p serializer=FSTSer
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    public static final int TELL_BATCH = 1000;
+    public static final int PORT = 7960;
+    public static final int MEASURED_CALLS = 1000;
+
+    @Param({"tcp", "nio", "http", "websocket"})
+    public String transport;
+
+    @Param({"FSTSer", "MinBin", "JsonNoRef", "UnsafeBinary"})
+    public String serializer;
+
+    @Param({"int", "pojo"})
+    public String payloadType;
+
+    EchoService service;
+    ActorServer server;
+    EchoService client;
+    Object payload;
+    int bytesPerCall;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireStats {
+        public long bytesPerCall;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SerializerType serType = SerializerType.valueOf(serializer);
+        Coding coding = new Coding(serType, EchoService.Payload.class);
+        payload = "int".equals(payloadType) ? (Object) 42 : new EchoService.Payload(16);
+        service = Actors.AsActor(EchoService.class);
+        switch (transport) {
+            case "tcp":
+                server = new TCPPublisher(service, PORT).coding(coding).publish().await();
+                client = (EchoService) new TCPConnectable(EchoService.class, "localhost", PORT).coding(coding).connect().await();
+                break;
+            case "nio":
+                server = new TCPNIOPublisher(service, PORT).coding(coding).publish().await();
+                client = (EchoService) new TCPConnectable(EchoService.class, "localhost", PORT).coding(coding).connect().await();
+                break;
+            case "http":
+                server = new HttpPublisher(service, "localhost", "/bench", PORT).coding(coding).publish().await();
+                client = (EchoService) new HttpConnectable(EchoService.class, "http://localhost:" + PORT + "/bench").coding(coding).connect().await();
+                break;
+            case "websocket":
+                server = new WebSocketPublisher(service, "localhost", "/bench", PORT).coding(coding).publish().await();
+                client = (EchoService) new WebSocketConnectable(EchoService.class, "ws://localhost:" + PORT + "/bench").coding(coding).connect().await();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown transport " + transport);
+        }
+        client.echo(payload).await(); // ensure method tables have been exchanged
+        bytesPerCall = measureBytesPerCall();
+    }
+
+    // bytes written to the wire by both sides of the connection over MEASURED_CALLS asks, as encoded
+    // by the registries (method index, args streaming, batching)
+    int measureBytesPerCall() {
+        ConnectionRegistry clientReg = (ConnectionRegistry) client.__clientConnection;
+        ConnectionRegistry serverReg = service.getConnection().await();
+        CountingObjectSocket clientSocket = count(clientReg.getWriteObjectSocket());
+        CountingObjectSocket serverSocket = count(serverReg.getWriteObjectSocket());
+        try {
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                client.echo(payload).await();
+            }
+        } finally {
+            clientReg.getWriteObjectSocket().set(clientSocket.getSocket());
+            serverReg.getWriteObjectSocket().set(serverSocket.getSocket());
+        }
+        return (int) ((clientSocket.getBytes() + serverSocket.getBytes()) / MEASURED_CALLS);
+    }
+
+    CountingObjectSocket count(AtomicReference<ObjectSocket> socketRef) {
+        CountingObjectSocket res = new CountingObjectSocket(socketRef.get());
+        socketRef.set(res);
+        return res;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.close();
+        service.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object ask(WireStats stats) {
+        stats.bytesPerCall = bytesPerCall;
+        return client.echo(payload).await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(TELL_BATCH)
+    public Object tell() {
+        for (int i = 0; i < TELL_BATCH; i++) {
+            client.send(payload);
+        }
+        return client.getCount().await();
+    }
+
+}
@@ -24,6 +24,7 @@ import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.nustaq.kontraktor.*;
+import org.nustaq.kontraktor.impl.DispatcherThread;
 import org.nustaq.kontraktor.remoting.base.ActorClientConnector;
 import org.nustaq.kontraktor.remoting.base.ObjectSink;
 import org.nustaq.kontraktor.remoting.base.ObjectSocket;
@@ -32,7 +33,6 @@ import org.nustaq.kontraktor.util.Log;
 import org.nustaq.serialization.FSTConfiguration;
 
 import java.io.*;
-import java.util.TimerTask;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -201,7 +201,10 @@ public class HttpClientConnector implements ActorClientConnector {
             }
         };
         if ( ! cfg.shortPollMode ) {
-            getReceiveActor().getCurrentDispatcher().setName("Http LP dispatcher");
+            // no dispatcher thread to rename when running on e.g. VirtualThreadScheduler
+            DispatcherThread dispatcher = getReceiveActor().getCurrentDispatcher();
+            if ( dispatcher != null )
+                dispatcher.setName("Http LP dispatcher");
             getReceiveActor().execute(pollRunnable);
         } else {
             getRefPollActor().execute(pollRunnable);
@@ -314,16 +317,13 @@ public class HttpClientConnector implements ActorClientConnector {
 
             final AtomicInteger timedout = new AtomicInteger(0); // 1 = reply, 2 = timeout
             FutureCallback<HttpResponse> callback = getHttpLPFutureCallback(p, timedout);
-            Actor.delayedCalls.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    if (timedout.compareAndSet(0, 2)) {
-                        // long poll timeout, retry
-                        final AtomicInteger timedout = new AtomicInteger(0); // 1 = reply, 2 = timeout
-                        lpHttpClient.execute(req, getHttpLPFutureCallback(p,timedout));
-                    }
+            Actors.timingWheel.schedule(HttpObjectSocket.LP_TIMEOUT + 1000, () -> { // give 1 second trip latency
+                if (timedout.compareAndSet(0, 2)) {
+                    // long poll timeout, retry
+                    final AtomicInteger retryTimedout = new AtomicInteger(0); // 1 = reply, 2 = timeout
+                    lpHttpClient.execute(req, getHttpLPFutureCallback(p,retryTimedout));
                 }
-            }, HttpObjectSocket.LP_TIMEOUT + 1000); // give 1 second trip latency
+            });
             lpHttpClient.execute(req, callback);
             return p;
         }
@@ -0,0 +1,93 @@
+/*
+Kontraktor-Http Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.remoting.http.undertow;
+
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
+import org.nustaq.kontraktor.monitoring.LatencyHistogram;
+
+import java.util.Deque;
+
+/**
+ * serves ActorMetrics reports as json, e.g. Http4K.Build(host,port).httpHandler("/metrics", new MetricsHandler()).
+ *
+ * Actor classes and methods are sorted by message count, durations are nanoseconds.
+ * Query parameters: 'class' filters actor classes containing the given string, 'reset=true' clears
+ * all metrics after reporting.
+ */
+public class MetricsHandler implements HttpHandler {
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if ( ! ActorMetrics.ENABLED ) {
+            exchange.setResponseCode(503);
+            exchange.getResponseSender().send("metrics disabled, set ActorMetrics.ENABLED = true");
+            return;
+        }
+        String filter = param(exchange, "class");
+        JsonArray res = new JsonArray();
+        for (ActorMetrics.Report report : ActorMetrics.getReports()) {
+            if ( filter == null || report.getActorClass().contains(filter) )
+                res.add(toJson(report));
+        }
+        if ( "true".equals(param(exchange, "reset")) )
+            ActorMetrics.reset();
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json; charset=utf-8");
+        exchange.getResponseSender().send(res.toString());
+    }
+
+    protected String param(HttpServerExchange exchange, String name) {
+        Deque<String> values = exchange.getQueryParameters().get(name);
+        return values == null || values.isEmpty() ? null : values.getFirst();
+    }
+
+    public static JsonObject toJson(ActorMetrics.Report report) {
+        JsonArray methods = new JsonArray();
+        for (ActorMetrics.MethodReport m : report.getMethods()) {
+            methods.add(new JsonObject()
+                .add("method", m.getMethod())
+                .add("count", m.getCount())
+                .add("errors", m.getErrors())
+                .add("deadLetters", m.getDeadLetters())
+                .add("queueWait", toJson(m.getQueueWaitNanos()))
+                .add("execution", toJson(m.getExecutionNanos()))
+            );
+        }
+        return new JsonObject()
+            .add("actorClass", report.getActorClass())
+            .add("count", report.getCount())
+            .add("errors", report.getErrors())
+            .add("deadLetters", report.getDeadLetters())
+            .add("methods", methods);
+    }
+
+    public static JsonObject toJson(LatencyHistogram.Snapshot h) {
+        return new JsonObject()
+            .add("count", h.getCount())
+            .add("mean", h.getMean())
+            .add("p50", h.getP50())
+            .add("p90", h.getP90())
+            .add("p99", h.getP99())
+            .add("p999", h.getP999())
+            .add("max", h.getMax());
+    }
+
+}
@@ -22,6 +22,7 @@ import org.nustaq.kontraktor.IPromise;
 import org.nustaq.kontraktor.remoting.encoding.SerializerType;
 import org.nustaq.kontraktor.remoting.http.undertow.Http4K;
 import org.nustaq.kontraktor.remoting.http.undertow.HttpPublisher;
+import org.nustaq.kontraktor.remoting.http.undertow.MetricsHandler;
 import org.nustaq.kontraktor.rest.UndertowRESTHandler;
 import org.nustaq.kontraktor.webapp.javascript.*;
 import org.nustaq.kontraktor.remoting.http.undertow.WebSocketPublisher;
@@ -121,6 +122,13 @@ public class BldFourK {
         return this;
     }
 
+    /**
+     * serve ActorMetrics as json, see MetricsHandler
+     */
+    public BldFourK metrics( String urlPath ) {
+        return httpHandler(urlPath, new MetricsHandler());
+    }
+
     public BldFourK restAPI( String urlPath, Actor restActor ) {
         items.add(new BldHttpHandler(urlPath,new UndertowRESTHandler(urlPath,restActor,null)));
         return this;
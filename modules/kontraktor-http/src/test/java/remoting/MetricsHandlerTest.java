@@ -0,0 +1,155 @@
+package remoting;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
+import org.nustaq.kontraktor.remoting.http.undertow.Http4K;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+/**
+ * MetricsHandler published via BldFourK.metrics
+ */
+public class MetricsHandlerTest {
+
+    static final int PORT = 7781;
+
+    public static class MetricsTA extends Actor<MetricsTA> {
+
+        int count;
+
+        public void work() {
+            count++;
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(count);
+        }
+    }
+
+    public static class OtherTA extends Actor<OtherTA> {
+
+        public IPromise<String> hello() {
+            return resolve("hello");
+        }
+    }
+
+    @BeforeClass
+    public static void publish() {
+        Http4K.Build("localhost", PORT)
+            .metrics("/metrics")
+            .build();
+    }
+
+    @After
+    public void disable() {
+        ActorMetrics.ENABLED = false;
+        ActorMetrics.reset();
+    }
+
+    @Test
+    public void report() throws Exception {
+        ActorMetrics.reset();
+        ActorMetrics.ENABLED = true;
+        MetricsTA act = Actors.AsActor(MetricsTA.class);
+        OtherTA other = Actors.AsActor(OtherTA.class);
+        for (int i = 0; i < 100; i++) {
+            act.work();
+        }
+        assertEquals(100, (int) act.getCount().await());
+        assertEquals("hello", other.hello().await());
+
+        HttpURLConnection con = get("/metrics");
+        assertEquals(200, con.getResponseCode());
+        assertTrue(con.getContentType().startsWith("application/json"));
+        JsonArray all = Json.parse(read(con.getInputStream())).asArray();
+        assertNotNull(find(all, MetricsTA.class.getName()));
+        assertNotNull(find(all, OtherTA.class.getName()));
+
+        JsonArray filtered = Json.parse(read(get("/metrics?class=MetricsTA").getInputStream())).asArray();
+        assertEquals(1, filtered.size());
+        JsonObject report = filtered.get(0).asObject();
+        assertEquals(MetricsTA.class.getName(), report.getString("actorClass", null));
+        assertEquals(101, report.getLong("count", -1));
+        assertEquals(0, report.getLong("errors", -1));
+        assertEquals(0, report.getLong("deadLetters", -1));
+        JsonObject work = findMethod(report.get("methods").asArray(), "work");
+        assertEquals(100, work.getLong("count", -1));
+        for (String histo : new String[]{"queueWait", "execution"}) {
+            JsonObject h = work.get(histo).asObject();
+            for (String field : new String[]{"count", "mean", "p50", "p90", "p99", "p999", "max"}) {
+                assertNotNull(histo + "." + field, h.get(field));
+            }
+        }
+
+        // reports before clearing
+        JsonArray beforeReset = Json.parse(read(get("/metrics?class=MetricsTA&reset=true").getInputStream())).asArray();
+        assertEquals(1, beforeReset.size());
+        JsonArray afterReset = Json.parse(read(get("/metrics?class=MetricsTA").getInputStream())).asArray();
+        assertEquals(0, afterReset.size());
+
+        act.stop();
+        other.stop();
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        ActorMetrics.ENABLED = false;
+        HttpURLConnection con = get("/metrics");
+        assertEquals(503, con.getResponseCode());
+        assertTrue(read(con.getErrorStream()).contains("metrics disabled"));
+    }
+
+    HttpURLConnection get(String path) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + PORT + path).openConnection();
+        con.setConnectTimeout(5000);
+        con.setReadTimeout(5000);
+        return con;
+    }
+
+    String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int len;
+            while ( (len = in.read(buf)) > 0 ) {
+                out.write(buf, 0, len);
+            }
+            return new String(out.toByteArray(), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    JsonObject find(JsonArray reports, String actorClass) {
+        for (JsonValue value : reports) {
+            if ( actorClass.equals(value.asObject().getString("actorClass", null)) )
+                return value.asObject();
+        }
+        return null;
+    }
+
+    JsonObject findMethod(JsonArray methods, String name) {
+        for (JsonValue value : methods) {
+            if ( name.equals(value.asObject().getString("method", null)) )
+                return value.asObject();
+        }
+        fail("method " + name + " not reported");
+        return null;
+    }
+
+}
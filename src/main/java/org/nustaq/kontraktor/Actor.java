@@ -38,10 +38,13 @@ package org.nustaq.kontraktor;
  * Time: 21:19
  */
 
+import org.nustaq.kontraktor.annotations.BoundedMailbox;
 import org.nustaq.kontraktor.annotations.CallerSideMethod;
 import org.nustaq.kontraktor.annotations.Local;
+import org.nustaq.kontraktor.annotations.Priority;
 import org.nustaq.kontraktor.annotations.Remoted;
 import org.nustaq.kontraktor.impl.*;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
 import org.nustaq.kontraktor.monitoring.Monitorable;
 import org.nustaq.kontraktor.remoting.base.*;
 import org.nustaq.kontraktor.remoting.encoding.RemoteCallEntry;
@@ -56,6 +59,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -120,15 +125,21 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
     // internal ->
     public Queue __mailbox; // mailbox/eventloop queue
     public int __mbCapacity;
+    public BoundedMailbox.Overflow __overflow; // null if mailbox is unbounded
     public Queue __cbQueue; // queue of callbacks/future results
+    public Queue __prioQueue; // priority lane (see Priority, Deadline annotations), drained before mailbox
     public Thread __currentDispatcher; // thread of this actor
     public Scheduler __scheduler;
+    public ActorInvoker __invoker; // method table + generated dispatch of this actor's class
     public volatile boolean __stopped;
+    public AtomicBoolean __ready = new AtomicBoolean(false); // true if signaled to a signal driven dispatcher
+    public AtomicInteger __runState = new AtomicInteger(0); // >0 processed (nesting depth), -1 moved to another dispatcher, see WorkStealingScheduler
     public Actor __self; // the proxy object
     private Map<String,Runnable> _debounceMap;
     public long __remoteId; // id in case this actor is published via network
     public volatile ConcurrentLinkedQueue<ConnectionRegistry> __connections; // a list of connections required to be notified on close (publisher/server side))
     public ConnectionRegistry __clientConnection; // remoteconnection in case this is a remote ref
+    public volatile boolean __remotePressured; // remote ref: receiver's bounded mailbox is pressured (signaled by peer)
     public boolean zzRoutingGCEnabled;
     // register callbacks notified on stop
     ConcurrentLinkedQueue<Callback<SELF>> __stopHandlers;
@@ -254,7 +265,8 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
 
     /**
      * execute a callable asynchronously (in a different thread) and return a future
-     * of the result (delivered in caller thread). Can be used to isolate blocking operations
+     * of the result (delivered in caller thread). Can be used to isolate blocking operations.
+     * Runs on Actors.getBlockingExecutor() (a virtual thread per call on JDK 21+).
      *
      * WARNING: do not access local actor state (instance fields) from within the callable (=hidden parallelism).
      * WARNING: a similar named method execute() works different (bad naming)
@@ -305,19 +317,22 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
      */
     @CallerSideMethod @Local
     public void delayed( long millis, final Runnable toRun ) {
-        __scheduler.delayedCall(millis, inThread(self(), toRun));
+        __scheduler.delayedCall(millis, self(), toRun);
     }
 
     /**
-     * WARNING: call rarely, this method might have O(n) runtime with default unbounded queues.
+     * WARNING: call rarely, this method might have O(n) runtime with default unbounded queues (O(1) for
+     * bounded mailboxes).
+     * For remote refs, this is also true while the remote actor's bounded mailbox is pressured (signaled
+     * by the peer, see BoundedMailbox).
      * @return true if mailbox fill size is ~half capacity
      */
     @CallerSideMethod public boolean isMailboxPressured() {
-        return __mailbox.size() * 2 > __mbCapacity;
+        return getActor().__remotePressured || __mailbox.size() * 2 > __mbCapacity;
     }
 
     @CallerSideMethod public boolean isEmpty() {
-        return __mailbox.isEmpty() && __cbQueue.isEmpty();
+        return __mailbox.isEmpty() && __cbQueue.isEmpty() && __prioQueue.isEmpty();
     }
     /**
      * @return the scheduler associated with this actor (determines scheduling of processing of actors to threads)
@@ -344,10 +359,10 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
 
     /**
      * WARNING: call rarely, this method might have O(n) runtime with default unbounded queues.
-     * @return summed queue size of mailbox+callback queue
+     * @return summed queue size of mailbox+callback queue+priority lane
      */
     @CallerSideMethod public int getQSizes() {
-        return getCallbackSize()+getMailboxSize();
+        return getCallbackSize()+getMailboxSize()+__prioQueue.size();
     }
 
     /**
@@ -382,10 +397,10 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
      *
      */
     protected final void checkThread() {
-        if (getCurrentDispatcher() != null && getCurrentDispatcher() != Thread.currentThread()) {
+        if (__currentDispatcher != null && __currentDispatcher != Thread.currentThread()) {
             Log.Error(this,"UNEXPECTED MULTITHREADING");
             throw new RuntimeException("Wrong Thread");
-        } else if ( getCurrentDispatcher() == null ){
+        } else if ( __currentDispatcher == null ){
             Log.Error(this,"Not in Dispatcher Thread");
             throw new RuntimeException("Not in Dispatcher Thread:"+Thread.currentThread().getName());
         }
@@ -503,9 +518,12 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         self().__submit(command);
     }
 
+    /**
+     * @return dispatcher running this actor, null if the actor runs on its own thread (VirtualThreadScheduler)
+     */
     @CallerSideMethod @Local
     public DispatcherThread getCurrentDispatcher() {
-        return (DispatcherThread) __currentDispatcher;
+        return __currentDispatcher instanceof DispatcherThread ? (DispatcherThread) __currentDispatcher : null;
     }
 
     protected ConcurrentLinkedQueue<ConnectionRegistry> getConnections() {
@@ -586,11 +604,33 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         return __scheduler.enqueueCall(sender.get(), receiver, methodName, args, isCB);
     }
 
+    // same as above, called by generated proxies (see Scheduler.enqueueCall)
+    @CallerSideMethod public Object __enqueueIndexedCall( Actor receiver, String methodName, int methodIndex, long callbackArgs, Object args[], boolean isCB ) {
+        if ( __stopped ) {
+            if ( methodName.equals("stop") ) // ignore double stop
+                return null;
+            __addDeadLetter(receiver, methodName);
+        }
+        return __scheduler.enqueueCall(sender.get(), receiver, methodName, methodIndex, callbackArgs, args, isCB);
+    }
+
+    // same as above, primitive args are held unboxed by the entry (see UnboxedCallEntry)
+    @CallerSideMethod public Object __enqueueUnboxedCall( Actor receiver, String methodName, int methodIndex, long callbackArgs, UnboxedCallEntry entry, boolean isCB ) {
+        if ( __stopped ) {
+            if ( methodName.equals("stop") ) // ignore double stop
+                return null;
+            __addDeadLetter(receiver, methodName);
+        }
+        return __scheduler.enqueueCall(sender.get(), receiver, methodName, methodIndex, callbackArgs, entry, isCB);
+    }
+
     @CallerSideMethod public void __addDeadLetter(Actor receiver, String methodName) {
         String senderString = sender.get() == null ? "null" : sender.get().getClass().getName();
         String s = "DEAD LETTER: sender:" + senderString + " receiver::msg:" + receiver.getClass().getSimpleName() + "::" + methodName;
         s = s.replace("_ActorProxy","");
         Actors.AddDeadLetter(s);
+        if ( ActorMetrics.ENABLED )
+            ActorMetrics.of(receiver).deadLetter(methodName);
     }
 
     // FIXME: would be much better to do lookup at method invoke time INSIDE actor thread instead of doing it on callside (contended)
@@ -629,6 +669,15 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         return method;
     }
 
+    // single method invokers for methods missing in __invoker's table (e.g. overloaded)
+    ConcurrentHashMap<Method,ActorInvoker> fallbackInvokers;
+    @CallerSideMethod public ActorInvoker __getFallbackInvoker(Method method) {
+        if ( fallbackInvokers == null ) {
+            fallbackInvokers = new ConcurrentHashMap<>(7);
+        }
+        return fallbackInvokers.computeIfAbsent(method, m -> new ActorInvoker(new Method[] {m}));
+    }
+
     /**
      * called if a message invokation from remote is received
      * @return true if a new promise has been created
@@ -638,7 +687,11 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         try {
             if ( delayCode == RateLimitEntry.REJECT )
                 throw new RateLimitException();
-            Object future = getScheduler().enqueueCallFromRemote(registry, null, self(), rce.getMethod(), rce.getArgs(), false, null, callInterceptor);
+            Object future;
+            if ( rce.getMethodIndex() >= 0 ) // access already checked by registry
+                future = getScheduler().enqueueCallFromRemote(registry, null, self(), rce.getMethodIndex(), rce.getArgs(), false);
+            else
+                future = getScheduler().enqueueCallFromRemote(registry, null, self(), rce.getMethod(), rce.getArgs(), false, null, callInterceptor);
             if ( future instanceof IPromise) {
                 Promise p = null;
                 if ( createdFutures != null ) {
@@ -710,7 +763,7 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
      * @param publishedActorIds - published actors of sender
      * @return
      */
-    @Remoted
+    @Remoted @Priority
     public IPromise<Long> router$clientPing(long tim, long[] publishedActorIds) {
         ConnectionRegistry remoteConnection = connection.get();
         if ( remoteConnection != null ) {
@@ -719,6 +772,18 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         return resolve(tim);
     }
 
+    /**
+     * liveness check of a krouter on its services. In contrast to ping() this is processed on the
+     * priority lane, so a service busy with a long mailbox is not considered dead.
+     *
+     * @param tim - echoed
+     * @return
+     */
+    @Remoted @Priority
+    public IPromise<Long> router$servicePing(long tim) {
+        return resolve(tim);
+    }
+
     private long zzLastLiveActorIds[];
     @Remoted
     public void zzRoutingRefGC(long ids[]) {
@@ -776,7 +841,10 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
 
     @Override @Local
     public IPromise getReport() {
-        return new Promise( new ActorReport(getActor().getClass().getSimpleName(), getMailboxSize(), getCallbackSize() ) );
+        ActorReport report = new ActorReport(getActor().getClass().getSimpleName(), getMailboxSize(), getCallbackSize());
+        if ( ActorMetrics.ENABLED )
+            report.metrics = ActorMetrics.of(this).getReport();
+        return new Promise(report);
     }
 
     @Override @Local
@@ -791,6 +859,7 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
         String clz;
         int mailboxSize;
         int cbqSize;
+        ActorMetrics.Report metrics; // per class, null if ActorMetrics are disabled
 
         public ActorReport() {
         }
@@ -813,6 +882,10 @@ public class Actor<SELF extends Actor> extends Actors implements Serializable, M
             return cbqSize;
         }
 
+        public ActorMetrics.Report getMetrics() {
+            return metrics;
+        }
+
     }
 
 
@@ -16,6 +16,7 @@ See https://www.gnu.org/licenses/lgpl.txt
 
 package org.nustaq.kontraktor;
 
+import org.nustaq.kontraktor.annotations.BoundedMailbox;
 import org.nustaq.kontraktor.impl.*;
 import org.nustaq.kontraktor.util.Log;
 import org.nustaq.kontraktor.util.PromiseLatch;
@@ -75,10 +76,21 @@ public class Actors {
         );
         exec.allowCoreThreadTimeOut(true);
     }
+    /**
+     * executes blocking calls (Actor.execInThreadPool, Scheduler.runBlockingCall). If not set,
+     * a virtual thread per call is used on JDK 21+ (see VirtualThreads.ENABLED), else exec.
+     * Can be overridden per scheduler, see SimpleScheduler.setBlockingExecutor.
+     */
+    public static volatile Executor blockingExec;
     public static ActorsImpl instance = new ActorsImpl(); // public for testing
-    public static Timer delayedCalls = new Timer();
+    private static Timer delayedCalls; // created on first use, see getDelayedCalls
+    /**
+     * executes delayed calls, cyclic tasks and promise timeouts
+     */
+    public static TimingWheel timingWheel = new TimingWheel("kontraktor timer");
 
-    public static Supplier<Scheduler> defaultScheduler = () -> new SimpleScheduler();
+    public static Supplier<Scheduler> defaultScheduler = () ->
+        VirtualThreads.ACTOR_THREADS && VirtualThreads.isAvailable() ? new VirtualThreadScheduler() : new SimpleScheduler();
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     //
@@ -121,6 +133,17 @@ public class Actors {
         return isCont(error);
     }
 
+    /**
+     * @deprecated kontraktor schedules delayed calls and timeouts on timingWheel, kept for compatibility.
+     * The timer (and its thread) is created on first call.
+     */
+    @Deprecated
+    public static synchronized Timer getDelayedCalls() {
+        if ( delayedCalls == null )
+            delayedCalls = new Timer();
+        return delayedCalls;
+    }
+
     /**
      * helper to check for "special" error objects.
      * @param err
@@ -130,16 +153,34 @@ public class Actors {
         return err != null && ! CONT.equals(err);
     }
 
+    /**
+     * @return executor used for blocking calls, see blockingExec
+     */
+    public static Executor getBlockingExecutor() {
+        Executor res = blockingExec;
+        if ( res == null ) {
+            synchronized (Actors.class) {
+                if ( blockingExec == null ) {
+                    blockingExec = exec;
+                    if ( VirtualThreads.ENABLED && VirtualThreads.isAvailable() ) {
+                        try {
+                            blockingExec = VirtualThreads.newVirtualThreadPerTaskExecutor();
+                        } catch (UnsupportedOperationException e) {
+                            Log.Warn(Actors.class, "virtual threads not usable, blocking calls are run by the thread pool");
+                        }
+                    }
+                }
+                res = blockingExec;
+            }
+        }
+        return res;
+    }
+
     /**
      * utility function. Executed in foreign thread. Use Actor::delayed() to have the runnable executed inside actor thread
      */
     public static void SubmitDelayed( long millis, Runnable task ) {
-        Actors.delayedCalls.schedule( new TimerTask() {
-            @Override
-            public void run() {
-                task.run();
-            }
-        },millis);
+        Actors.timingWheel.schedule(millis, task);
     }
 
     public static void AddDeadLetter(String s) {
@@ -203,6 +244,19 @@ public class Actors {
         return (T) instance.newProxy(actorClazz, defaultScheduler.get(), qSize);
     }
 
+    /**
+     * create an new actor having a bounded mailbox of given size.
+     *
+     * @param actorClazz
+     * @param qSize - mailbox capacity (rounded up to a power of 2)
+     * @param overflow - behaviour in case mailbox is full
+     * @param <T>
+     * @return
+     */
+    public static <T extends Actor> T AsActor(Class<T> actorClazz, int qSize, BoundedMailbox.Overflow overflow) {
+        return (T) instance.newProxy(null, actorClazz, defaultScheduler.get(), qSize, overflow);
+    }
+
     /**
      * create an new actor dispatched in the given DispatcherThread
      *
@@ -451,6 +505,8 @@ public class Actors {
                     term = true;
                 }
             }
+        } else if ( VirtualThreadScheduler.currentLoop() != null ) {
+            VirtualThreadScheduler.currentLoop().yield(timeout);
         } else {
             if ( timeout > 0 ) {
                 try {
@@ -494,6 +550,8 @@ public class Actors {
                     term = true;
                 }
             }
+        } else if ( VirtualThreadScheduler.currentLoop() != null ) {
+            VirtualThreadScheduler.currentLoop().yield(timeout);
         } else {
             if ( timeout > 0 ) {
                 try {
@@ -17,12 +17,16 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor;
 
 import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.TimingWheel;
+import org.nustaq.kontraktor.impl.VirtualThreadScheduler;
+import org.nustaq.kontraktor.monitoring.TraceContext;
+import org.nustaq.kontraktor.monitoring.Tracing;
 import org.nustaq.serialization.util.FSTUtil;
 
-import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -37,17 +41,46 @@ import java.util.function.Supplier;
  * Its 'settled' or 'completed' once a result or error has been set.
  */
 public class Promise<T> implements IPromise<T> {
-    protected Object result = null;
-    protected Object error;
-    protected Callback resultReceiver;
-    // fixme: use bits
-    protected volatile boolean hadResult;
-    protected boolean hasFired;
-    // probably unnecessary, increases cost
-    // of allocation. However for now stay safe and optimize
-    // from a proven-working implementation
-    // note: if removed some field must set to volatile
-    final AtomicBoolean lock = new AtomicBoolean(false); // (AtomicFieldUpdater is slower!)
+
+    static final AtomicReferenceFieldUpdater<Promise,Object> STATE = AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "state");
+    static final AtomicIntegerFieldUpdater<Promise> FIRED = AtomicIntegerFieldUpdater.newUpdater(Promise.class, "fired");
+
+    /**
+     * registered result callback of an unsettled promise
+     */
+    static final class Listener {
+        final Callback cb;
+        final Promise next; // null if cb is a promise itself
+        final TraceContext trace; // context of the registering thread, restored when firing
+
+        Listener(Callback cb, Promise next) {
+            this.cb = cb;
+            this.next = next;
+            this.trace = Tracing.ENABLED ? Tracing.current() : null;
+        }
+    }
+
+    /**
+     * settlement with an error or a null result
+     */
+    static final class Settled {
+        final Object result;
+        final Object error;
+
+        Settled(Object result, Object error) {
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    static final Settled RESOLVED_NULL = new Settled(null, null);
+
+    // all transitions are done by CAS on state, no locking:
+    // null (unsettled) | Listener (unsettled, callback registered) -> Settled or result object (settled).
+    // Resolving with a non null result stores the result as is, so the common case does not allocate.
+    volatile Object state;
+    volatile int fired; // 1 once the callback has been invoked or registered on the settled promise
+    volatile TimingWheel.Task timeoutTask; // cancelled once settled
     String id;
     IPromise nextFuture;
 
@@ -57,9 +90,7 @@ public class Promise<T> implements IPromise<T> {
      * @param error
      */
     public Promise(T result, Object error) {
-        this.result = result;
-        this.error = error;
-        hadResult = true;
+        state = settlement(result, error);
     }
 
     /**
@@ -237,9 +268,7 @@ public class Promise<T> implements IPromise<T> {
      * see IPromise (inheriting Callback) interface
      */
     public void timedOut( Timeout to ) {
-        if (!hadResult ) {
-            complete(null, to);
-        }
+        tryComplete(null, to);
     }
 
     /**
@@ -247,70 +276,50 @@ public class Promise<T> implements IPromise<T> {
      */
     @Override
     public IPromise then(Callback resultCB) {
-        // FIXME: this can be implemented more efficient
-        while( !lock.compareAndSet(false,true) ) {}
-        try {
-            if (resultReceiver != null)
-                throw new RuntimeException("Double register of promise listener");
-            resultReceiver = resultCB;
-            if (hadResult) {
-                hasFired = true;
-                if (nextFuture == null) {
-                    nextFuture = new Promise(result, error);
-                    lock.set(false);
-                    resultCB.complete(result, error);
-                } else {
-                    lock.set(false);
-                    resultCB.complete(result, error);
-                    nextFuture.complete(result, error);
-                    return nextFuture;
+        Listener listener = null;
+        for (;;) {
+            Object s = state;
+            if ( s == null ) {
+                if ( listener == null )
+                    listener = new Listener(resultCB, resultCB instanceof IPromise ? null : new Promise());
+                if ( STATE.compareAndSet(this, null, listener) ) {
+                    return listener.next != null ? listener.next : (IPromise) resultCB;
                 }
-            }
-            if (resultCB instanceof IPromise) {
-                return (IPromise) resultCB;
-            }
-            lock.set(false);
-            while( !lock.compareAndSet(false,true) ) {}
-            if (nextFuture == null) {
-                return nextFuture = new Promise();
+            } else if ( s instanceof Listener || ! FIRED.compareAndSet(this, 0, 1) ) {
+                throw new RuntimeException("Double register of promise listener");
             } else {
-                return nextFuture;
+                Object result = resultOf(s), error = errorOf(s);
+                IPromise next = resultCB instanceof IPromise ? (IPromise) resultCB : new Promise(result, error);
+                nextFuture = next;
+                resultCB.complete(result, error);
+                return next;
             }
-        } finally {
-            lock.set(false);
         }
     }
 
     /**
-     * special method for tricky things. Creates a nextFuture or returns it.
-     * current
+     * special method for tricky things. Returns the promise created by then() or a new one.
      * @return
      */
     public Promise getNext() {
-        while( !lock.compareAndSet(false,true) ) {}
-        try {
-            if (nextFuture == null)
-                return new Promise();
-            else
-                return (Promise) nextFuture;
-        } finally {
-            lock.set(false);
-        }
+        Object s = state;
+        if ( s instanceof Listener && ((Listener) s).next != null )
+            return ((Listener) s).next;
+        IPromise next = nextFuture;
+        if ( next instanceof Promise )
+            return (Promise) next;
+        return new Promise();
     }
 
     /**
      * see IPromise (inheriting Callback) interface
      */
     public Promise getLast() {
-        while( !lock.compareAndSet(false,true) ) {}
-        try {
-            if (nextFuture == null)
-                return this;
-            else
-                return ((Promise)nextFuture).getLast();
-        } finally {
-            lock.set(false);
-        }
+        Object s = state;
+        IPromise next = s instanceof Listener ? ((Listener) s).next : nextFuture;
+        if ( next instanceof Promise )
+            return ((Promise) next).getLast();
+        return this;
     }
 
     /**
@@ -318,19 +327,20 @@ public class Promise<T> implements IPromise<T> {
      * @param resultCB
      */
     public void finallyDo(Callback resultCB) {
-        // FIXME: this can be implemented more efficient
-        while( !lock.compareAndSet(false,true) ) {}
-        try {
-            if (resultReceiver != null)
+        Listener listener = null;
+        for (;;) {
+            Object s = state;
+            if ( s == null ) {
+                if ( listener == null )
+                    listener = new Listener(resultCB, null);
+                if ( STATE.compareAndSet(this, null, listener) )
+                    return;
+            } else if ( s instanceof Listener || ! FIRED.compareAndSet(this, 0, 1) ) {
                 throw new RuntimeException("Double register of future listener");
-            resultReceiver = resultCB;
-            if (hadResult) {
-                hasFired = true;
-                lock.set(false);
-                resultCB.complete(result, error);
+            } else {
+                resultCB.complete(resultOf(s), errorOf(s));
+                return;
             }
-        } finally {
-            lock.set(false);
         }
     }
 
@@ -339,49 +349,77 @@ public class Promise<T> implements IPromise<T> {
      */
     @Override
     public final void complete(Object res, Object error) {
-        this.result = res;
-        Object prevErr = this.error;
-        this.error = error;
-        while( !lock.compareAndSet(false,true) ) {}
-        try {
-            if (hadResult) {
-                if ( prevErr instanceof Timeout ) {
-                    this.error = prevErr;
-                    lock.set(false);
-                    return;
-                }
-                lock.set(false);
-                throw new RuntimeException("Double result received on future prevErr:" + prevErr +" (res,err) "+res+","+error );
+        if ( ! tryComplete(res, error) ) {
+            Object prevErr = errorOf(state);
+            if ( prevErr instanceof Timeout ) // late result after timeout
+                return;
+            throw new RuntimeException("Double result received on future prevErr:" + prevErr +" (res,err) "+res+","+error );
+        }
+    }
+
+    /**
+     * settle the promise and fire a registered callback
+     * @return false if the promise has been settled already
+     */
+    protected boolean tryComplete(Object res, Object error) {
+        Object settled = settlement(res, error);
+        for (;;) {
+            Object s = state;
+            if ( s != null && ! (s instanceof Listener) )
+                return false;
+            if ( s != null ) {
+                fired = 1;
+                nextFuture = ((Listener) s).next;
             }
-            hadResult = true;
-            if (resultReceiver != null) {
-                if (hasFired) {
-                    lock.set(false);
-                    throw new RuntimeException("Double fire on callback");
+            if ( STATE.compareAndSet(this, s, settled) ) {
+                TimingWheel.Task task = timeoutTask;
+                if ( task != null ) {
+                    timeoutTask = null;
+                    task.cancel();
                 }
-                hasFired = true;
-                lock.set(false);
-                resultReceiver.complete(result, error);
-                resultReceiver = null;
-                while (!lock.compareAndSet(false, true)) {
+                if ( s != null ) {
+                    Listener listener = (Listener) s;
+                    TraceContext prev = listener.trace != null ? Tracing.enter(listener.trace) : null;
+                    try {
+                        listener.cb.complete(res, error);
+                        if ( listener.next != null )
+                            listener.next.complete(res, error);
+                    } finally {
+                        if ( listener.trace != null )
+                            Tracing.exit(prev);
+                    }
                 }
-                if (nextFuture != null) {
-                    lock.set(false);
-                    nextFuture.complete(result, error);
-                }
-                return;
+                return true;
             }
-        } finally {
-            lock.set(false);
         }
     }
 
+    static Object settlement(Object res, Object error) {
+        if ( error == null && res != null && ! (res instanceof Listener) && ! (res instanceof Settled) )
+            return res;
+        if ( error == null && res == null )
+            return RESOLVED_NULL;
+        return new Settled(res, error);
+    }
+
+    static Object resultOf(Object state) {
+        if ( state == null || state instanceof Listener )
+            return null;
+        if ( state instanceof Settled )
+            return ((Settled) state).result;
+        return state;
+    }
+
+    static Object errorOf(Object state) {
+        return state instanceof Settled ? ((Settled) state).error : null;
+    }
+
     /**
      * see IPromise (inheriting Callback) interface
      */
     @Override
     public T get() {
-        return (T) result;
+        return (T) resultOf(state);
     }
 
     /**
@@ -422,6 +460,10 @@ public class Promise<T> implements IPromise<T> {
             }
             dt.__stack.remove(dt.__stack.size()-1);
             return this;
+        } else if ( VirtualThreadScheduler.currentLoop() != null ) {
+            // suspend the actor's virtual thread
+            VirtualThreadScheduler.currentLoop().await(this, endtime);
+            return this;
         } else {
             // if outside of actor machinery, just block
             CountDownLatch latch = new CountDownLatch(1);
@@ -462,16 +504,19 @@ public class Promise<T> implements IPromise<T> {
      */
     @Override
     public IPromise timeoutIn(long millis) {
+        if ( isSettled() )
+            return this;
         final Actor actor = Actor.sender.get();
+        TimingWheel.Task task;
         if ( actor != null )
-            actor.delayed(millis, ()-> timedOut(Timeout.INSTANCE));
-        else {
-            Actors.delayedCalls.schedule( new TimerTask() {
-                @Override
-                public void run() {
-                    timedOut(Timeout.INSTANCE);
-                }
-            },millis);
+            task = actor.__scheduler.delayedCall(millis, actor.self(), () -> timedOut(Timeout.INSTANCE));
+        else
+            task = Actors.timingWheel.schedule(millis, () -> timedOut(Timeout.INSTANCE));
+        if ( task != null ) {
+            // in case of multiple timeouts, earlier ones just expire
+            timeoutTask = task;
+            if ( isSettled() ) // raced with completion
+                task.cancel();
         }
         return this;
     }
@@ -481,7 +526,7 @@ public class Promise<T> implements IPromise<T> {
      */
     @Override
     public Object getError() {
-        return error;
+        return errorOf(state);
     }
 
     /**
@@ -489,25 +534,27 @@ public class Promise<T> implements IPromise<T> {
      */
     @Override
     public boolean isSettled() {
-        return hadResult;
+        Object s = state;
+        return s != null && ! (s instanceof Listener);
     }
 
 
     // debug
     public boolean _isHadResult() {
-        return hadResult;
+        return isSettled();
     }
 
     // debug
     public boolean _isHasFired() {
-        return hasFired;
+        return fired != 0;
     }
 
     @Override
     public String toString() {
+        Object s = state;
         return "Result{" +
-            "result=" + result +
-            ", error=" + error +
+            "result=" + resultOf(s) +
+            ", error=" + errorOf(s) +
             '}';
     }
 }
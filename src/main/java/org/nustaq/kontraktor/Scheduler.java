@@ -18,6 +18,8 @@ package org.nustaq.kontraktor;
 
 import org.nustaq.kontraktor.impl.BackOffStrategy;
 import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.TimingWheel;
+import org.nustaq.kontraktor.impl.UnboxedCallEntry;
 import org.nustaq.kontraktor.monitoring.Monitorable;
 import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
 
@@ -43,8 +45,38 @@ public interface Scheduler extends Monitorable{
 
     Object enqueueCall(ConnectionRegistry reg, Actor sendingActor, Actor receiver, String methodName, Object[] args, boolean isCB);
 
+    /**
+     * enqueue a call from a generated proxy. methodIndex and callbackArgs are determined at proxy generation
+     * time, so no method lookup and argument scanning is required.
+     *
+     * @param methodIndex - index into the receiver's method table (see ActorInvoker), -1 if unknown. Falls back
+     *                    to lookup by name if it does not match methodName.
+     * @param callbackArgs - bit i set if argument i might be a Callback to be wrapped (-1 => check all)
+     */
+    default Object enqueueCall(Actor sendingActor, Actor receiver, String methodName, int methodIndex, long callbackArgs, Object args[], boolean isCB) {
+        return enqueueCall(sendingActor, receiver, methodName, args, isCB);
+    }
+
+    /**
+     * like enqueueCall(.., methodIndex, callbackArgs, args, ..), args are held unboxed by the entry which
+     * is enqueued as is.
+     */
+    default Object enqueueCall(Actor sendingActor, Actor receiver, String methodName, int methodIndex, long callbackArgs, UnboxedCallEntry entry, boolean isCB) {
+        return enqueueCall(sendingActor, receiver, methodName, methodIndex, callbackArgs, entry.getArgs(), isCB);
+    }
+
     Object enqueueCallFromRemote(ConnectionRegistry reg, Actor sendingActor, Actor receiver, String methodName, Object[] args, boolean isCB, Object securityContext, BiFunction<Actor, String, Boolean> callInterceptor);
 
+    /**
+     * enqueue a remote call addressed by index into the receiver's method table (see ActorInvoker).
+     * Access checks are expected to be done by the caller (ConnectionRegistry caches them per index).
+     * Defaults to a lookup by name for schedulers not dispatching by index.
+     */
+    default Object enqueueCallFromRemote(ConnectionRegistry reg, Actor sendingActor, Actor receiver, int methodIndex, Object[] args, boolean isCB) {
+        String methodName = receiver.__invoker.getMethodName(methodIndex);
+        return enqueueCallFromRemote(reg, sendingActor, receiver, methodName, args, isCB, null, null);
+    }
+
     void threadStopped(DispatcherThread th);
 
     void terminateIfIdle();
@@ -63,6 +95,16 @@ public interface Scheduler extends Monitorable{
 
     void delayedCall(long millis, Runnable toRun);
 
+    /**
+     * run toRun inside the thread of the given actor after given delay.
+     *
+     * @return handle to cancel the call or null if not supported by this scheduler
+     */
+    default TimingWheel.Task delayedCall(long millis, Actor target, Runnable toRun) {
+        delayedCall(millis, inThread(target, toRun));
+        return null;
+    }
+
     <T> void runBlockingCall(Actor emitter, Callable<T> toCall, Callback<T> resultHandler);
 
     public DispatcherThread assignDispatcher(int minLoadPerc);
@@ -0,0 +1,67 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.annotations;
+
+import java.lang.annotation.*;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+
+/**
+ * class modifier: create actors of this class with a bounded mailbox (array based, fixed capacity)
+ * instead of the default unbounded queue. Callback queues are never bounded.
+ *
+ * If such an actor is published, remote (kontraktor) peers calling it are told when its mailbox turns
+ * pressured (more than half full) and relieved again, so isMailboxPressured() of their remote refs
+ * reflects the receiver's state and senders can throttle before calls get rejected or block.
+ *
+ * Programmatic alternative: Actors.AsActor(clazz, qsize, overflow)
+ */
+public @interface BoundedMailbox {
+
+    /**
+     * what happens if a message is sent to an actor having a full mailbox
+     */
+    enum Overflow {
+        /**
+         * sender spins/parks until the message can be enqueued. A sender running on the receiver's
+         * dispatcher thread can't wait for it, the message is rejected like with REJECT
+         */
+        BLOCK,
+        /**
+         * message is dropped, a returned promise is rejected with MailboxFullException
+         */
+        REJECT,
+        /**
+         * oldest queued message is dropped (rejecting its promise) to make room
+         */
+        DROP_OLDEST,
+        /**
+         * local senders are blocked, calls received from remote connections are rejected, so network
+         * threads never stall and remote senders get an error instead. Remote senders should watch
+         * isMailboxPressured() of their remote ref to avoid rejection
+         */
+        REJECT_REMOTE,
+    }
+
+    /**
+     * @return capacity, rounded up to a power of 2. 0 = scheduler's default queue size
+     */
+    int size() default 0;
+
+    Overflow overflow() default Overflow.BLOCK;
+}
@@ -0,0 +1,37 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.annotations;
+
+import java.lang.annotation.*;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@Inherited
+
+/**
+ * method modifier: like Priority, calls are put onto the actor's priority lane. Additionally a call
+ * not being processed within the given time after it has been enqueued (for remote calls: received) is
+ * dropped. A returned promise is rejected with DeadlineExceededException then.
+ *
+ * Overriding methods inherit the annotation.
+ */
+public @interface Deadline {
+    /**
+     * @return max time in milliseconds a call may wait in the queue
+     */
+    long value();
+}
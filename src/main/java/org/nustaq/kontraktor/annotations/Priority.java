@@ -0,0 +1,36 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.annotations;
+
+import java.lang.annotation.*;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@Inherited
+
+/**
+ * method modifier: calls are put onto the actor's priority lane, which is drained after the callback
+ * queue but before the mailbox. Use for control plane methods (health checks, pings, admin calls)
+ * which must be answered in time even if the mailbox is backed up with bulk work.
+ *
+ * Note ordering is only kept among priority calls, a priority call overtakes queued mailbox messages.
+ * Overriding methods inherit the annotation.
+ *
+ * @see Deadline
+ */
+public @interface Priority {
+}
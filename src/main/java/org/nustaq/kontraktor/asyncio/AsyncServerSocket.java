@@ -35,8 +35,11 @@ import java.util.function.BiFunction;
 /**
  * Created by ruedi on 04/05/15.
  *
- * Implements NIO based TCP server
+ * Implements NIO based TCP server polled from the thread of the current actor. Connection callbacks are
+ * run in the actor's thread.
  *
+ * As the selector is polled by rescheduling on the actor, prefer NIOReactor for servers with many
+ * connections.
  */
 public class AsyncServerSocket {
 
@@ -62,8 +65,8 @@ public class AsyncServerSocket {
             t = Thread.currentThread();
         else {
             if ( t != Thread.currentThread() ) {
-                System.out.println("FATAL");
-                System.exit(-1);
+                Log.Error(this, "receiveLoop must be run from the thread of the actor having called connect, stopped polling");
+                return;
             }
         }
         boolean hadStuff = false;
@@ -82,29 +85,21 @@ public class AsyncServerSocket {
                                     hadStuff = true;
                                     accept.configureBlocking(false);
                                     SelectionKey newKey = accept.register(selector, SelectionKey.OP_READ|SelectionKey.OP_WRITE);
-                                    AsyncSocketConnection con = connectionFactory.apply(key, accept);
+                                    AsyncSocketConnection con = connectionFactory.apply(newKey, accept);
                                     newKey.attach(con);
                                 }
                             }
                         } else {
                             SocketChannel client = (SocketChannel) key.channel();
-                            int written = 0;
+                            long written = 0;
                             if (key.isWritable()) {
                                 AsyncSocketConnection con = (AsyncSocketConnection) key.attachment();
-                                ByteBuffer writingBuffer = con.getWritingBuffer();
-                                if ( writingBuffer != null ) {
+                                if ( con.isWritePending() ) {
                                     hadStuff = true;
                                     try {
-                                        written = con.chan.write(writingBuffer);
-                                        if (written<0) {
+                                        written = con.writePending();
+                                        if ( ! con.isWritePending() )
                                             iterator.remove();
-                                            key.cancel();
-                                            // closed
-                                            con.writeFinished("disconnected");
-                                        } else if ( writingBuffer.remaining() == 0) {
-                                            iterator.remove();
-                                            con.writeFinished(null);
-                                        }
                                     } catch (IOException ioe) {
                                         iterator.remove();
                                         key.cancel();
@@ -39,9 +39,9 @@ public abstract class AsyncSocketConnection {
     protected SelectionKey key;
     protected SocketChannel chan;
 
-    protected Promise writePromise;
-    protected ByteBuffer writingBuffer;
-    protected boolean isClosed;
+    protected volatile Promise writePromise;
+    protected ByteBuffer writingBuffers[];
+    protected volatile boolean isClosed;
     protected Executor myActor;
 
     public AsyncSocketConnection(SelectionKey key, SocketChannel chan) {
@@ -59,6 +59,22 @@ public abstract class AsyncSocketConnection {
         chan.close();
     }
 
+    /**
+     * bind to the selector thread of a NIOReactor, all io is done by this thread then. Writes issued
+     * from other threads are handed over to it.
+     */
+    void bind(NIOReactor.SelectorThread thread) {
+        theExecutingThread = thread;
+        myActor = thread;
+        bound();
+    }
+
+    /**
+     * called in the selector thread once bound to a NIOReactor, before reading starts
+     */
+    protected void bound() {
+    }
+
     /**
      * @return wether more reads are to expect
      * @throws IOException
@@ -97,23 +113,26 @@ public abstract class AsyncSocketConnection {
      */
     protected Thread theExecutingThread; // originally for debugging, but now used to reschedule ..
     protected IPromise directWrite(ByteBuffer buf) {
+        return directWrite(new ByteBuffer[] {buf});
+    }
+
+    /**
+     * gathering variant of directWrite(ByteBuffer), buffers are written in order with as few system calls
+     * as possible.
+     */
+    protected IPromise directWrite(ByteBuffer bufs[]) {
         checkThread();
         if ( myActor == null )
             myActor = Actor.current();
         if ( writePromise != null )
             throw new RuntimeException("concurrent write con:"+chan.isConnected()+" open:"+chan.isOpen());
         writePromise = new Promise();
-        writingBuffer = buf;
+        writingBuffers = bufs;
         Promise res = writePromise;
         try {
-            int written = 0;
-            written = chan.write(buf);
-            if (written<0) {
-                // TODO:closed
-                writeFinished(new IOException("connection closed"));
-            }
-            if ( buf.remaining() > 0 ) {
-//                key.interestOps(SelectionKey.OP_WRITE);
+            chan.write(bufs);
+            if ( hasRemaining(bufs) ) {
+                setWriteInterest(true);
             } else {
                 writeFinished(null);
             }
@@ -124,8 +143,40 @@ public abstract class AsyncSocketConnection {
         return res;
     }
 
-    ByteBuffer getWritingBuffer() {
-        return writingBuffer;
+    /**
+     * continue a partial write once the channel is writable
+     * @return number of bytes written, -1 if no write is pending
+     */
+    long writePending() throws IOException {
+        ByteBuffer bufs[] = writingBuffers;
+        if ( bufs == null )
+            return -1;
+        long written = chan.write(bufs);
+        if ( ! hasRemaining(bufs) )
+            writeFinished(null);
+        return written;
+    }
+
+    static boolean hasRemaining(ByteBuffer bufs[]) {
+        for (int i = bufs.length - 1; i >= 0; i--) {
+            if ( bufs[i].hasRemaining() )
+                return true;
+        }
+        return false;
+    }
+
+    // register for write readiness while a partial write is pending, so a blocking select() does not spin
+    protected void setWriteInterest(boolean pending) {
+        if ( key == null || ! key.isValid() || key.channel() != chan )
+            return;
+        int ops = key.interestOps();
+        int newOps = pending ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE;
+        if ( ops != newOps )
+            key.interestOps(newOps);
+    }
+
+    boolean isWritePending() {
+        return writingBuffers != null;
     }
 
     public boolean canWrite() {
@@ -136,7 +187,8 @@ public abstract class AsyncSocketConnection {
     // error = null => ok
     void writeFinished(Object error) {
         checkThread();
-        writingBuffer = null;
+        writingBuffers = null;
+        setWriteInterest(false);
         Promise wp = this.writePromise;
         writePromise = null;
         if ( ! wp.isSettled() ) {
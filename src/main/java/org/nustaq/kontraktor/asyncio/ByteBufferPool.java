@@ -0,0 +1,104 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+
+package org.nustaq.kontraktor.asyncio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct ByteBuffers used for socket writes. Buffers are pooled by power of two size classes
+ * from MIN_SIZE to MAX_POOLED_SIZE, larger requests are served by unpooled heap buffers.
+ *
+ * Buffers are usually acquired by the thread encoding a message and released by the io thread once
+ * written, so the pool is thread safe. Buffers are little endian, as frame lengths are written by BinaryQueue.
+ */
+public class ByteBufferPool {
+
+    public static int MIN_SIZE = 4096;
+    public static int MAX_POOLED_SIZE = 1024 * 1024;
+    /**
+     * max number of idle buffers kept per size class
+     */
+    public static int MAX_IDLE = 64;
+
+    public static final ByteBufferPool Shared = new ByteBufferPool();
+
+    final int minShift = Integer.numberOfTrailingZeros(Integer.highestOneBit(MIN_SIZE));
+    final ConcurrentLinkedQueue<ByteBuffer> idle[];
+    final AtomicInteger idleCount[];
+
+    public ByteBufferPool() {
+        int classes = Integer.numberOfTrailingZeros(Integer.highestOneBit(MAX_POOLED_SIZE)) - minShift + 1;
+        idle = new ConcurrentLinkedQueue[Math.max(1,classes)];
+        idleCount = new AtomicInteger[idle.length];
+        for (int i = 0; i < idle.length; i++) {
+            idle[i] = new ConcurrentLinkedQueue<>();
+            idleCount[i] = new AtomicInteger();
+        }
+    }
+
+    int sizeClass(int capacity) {
+        if ( capacity <= 1 << minShift )
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - minShift;
+    }
+
+    /**
+     * @return a cleared buffer having at least given capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClass(minCapacity);
+        if ( sizeClass >= idle.length )
+            return ByteBuffer.allocate(minCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buf = idle[sizeClass].poll();
+        if ( buf == null )
+            return ByteBuffer.allocateDirect(1 << (sizeClass + minShift)).order(ByteOrder.LITTLE_ENDIAN);
+        idleCount[sizeClass].decrementAndGet();
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * return a buffer obtained by acquire, it must not be used afterwards
+     */
+    public void release(ByteBuffer buf) {
+        if ( ! buf.isDirect() )
+            return;
+        int sizeClass = sizeClass(buf.capacity());
+        if ( sizeClass >= idle.length || buf.capacity() != 1 << (sizeClass + minShift) )
+            return;
+        if ( idleCount[sizeClass].incrementAndGet() > MAX_IDLE ) {
+            idleCount[sizeClass].decrementAndGet();
+            return;
+        }
+        idle[sizeClass].offer(buf);
+    }
+
+    /**
+     * @return number of idle pooled buffers
+     */
+    public int getIdle() {
+        int res = 0;
+        for (int i = 0; i < idleCount.length; i++) {
+            res += idleCount[i].get();
+        }
+        return res;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+
+package org.nustaq.kontraktor.asyncio;
+
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.util.Log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Reactor for non blocking TCP servers. A fixed set of selector threads block in select(), accepted
+ * connections are spread round robin across them. All io of a connection is done by the selector thread
+ * it is bound to, writes issued from other threads are handed over to this thread (see AsyncSocketConnection.myActor).
+ *
+ * Connection callbacks (dataReceived, closed) are run in the selector thread, so they should not block
+ * and pass received data to actors (see NIOServerConnector).
+ *
+ * Selector threads are daemon threads, the default reactor is shared by all servers of a process.
+ */
+public class NIOReactor {
+
+    /**
+     * number of selector threads of the default reactor
+     */
+    public static int DEFAULT_SELECTOR_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * max number of subsequent full reads from one connection per select, so a busy connection
+     * cannot starve others of the same selector thread
+     */
+    public static int MAX_READS_PER_SELECT = 16;
+
+    static NIOReactor defaultReactor;
+
+    public static synchronized NIOReactor getDefault() {
+        if ( defaultReactor == null || defaultReactor.isShutDown() )
+            defaultReactor = new NIOReactor(DEFAULT_SELECTOR_THREADS);
+        return defaultReactor;
+    }
+
+    protected SelectorThread threads[];
+    protected AtomicInteger nextThread = new AtomicInteger();
+    protected volatile boolean shutDown;
+
+    public NIOReactor(int numThreads) {
+        threads = new SelectorThread[Math.max(1,numThreads)];
+        try {
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new SelectorThread("NIOReactor " + i);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+    }
+
+    /**
+     * @return selector thread next in turn (round robin)
+     */
+    public SelectorThread nextThread() {
+        return threads[(nextThread.getAndIncrement() & Integer.MAX_VALUE) % threads.length];
+    }
+
+    /**
+     * accept connections on given port
+     *
+     * @param connectionFactory - creates the connection object of an accepted channel, called in the
+     *                          selector thread the connection is bound to
+     */
+    public Listener listen(int port, BiFunction<SelectionKey,SocketChannel,AsyncSocketConnection> connectionFactory) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.socket().bind(new InetSocketAddress(port));
+        SelectorThread acceptor = nextThread();
+        Listener listener = new Listener(server, acceptor, connectionFactory);
+        acceptor.execute(() -> {
+            try {
+                server.register(acceptor.selector, SelectionKey.OP_ACCEPT, listener);
+            } catch (IOException e) {
+                Log.Warn(this, e, "failed to register server socket");
+            }
+        });
+        return listener;
+    }
+
+    public int getNumThreads() {
+        return threads.length;
+    }
+
+    public boolean isShutDown() {
+        return shutDown;
+    }
+
+    /**
+     * stop all selector threads, open channels are closed
+     */
+    public void shutDown() {
+        shutDown = true;
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].stopAndClose();
+        }
+    }
+
+    /**
+     * a server socket accepting connections
+     */
+    public class Listener {
+
+        final ServerSocketChannel channel;
+        final SelectorThread thread;
+        final BiFunction<SelectionKey,SocketChannel,AsyncSocketConnection> connectionFactory;
+
+        Listener(ServerSocketChannel channel, SelectorThread thread, BiFunction<SelectionKey, SocketChannel, AsyncSocketConnection> connectionFactory) {
+            this.channel = channel;
+            this.thread = thread;
+            this.connectionFactory = connectionFactory;
+        }
+
+        void accept() throws IOException {
+            SocketChannel accepted;
+            while ( (accepted = channel.accept()) != null ) {
+                nextThread().register(accepted, connectionFactory);
+            }
+        }
+
+        /**
+         * stop accepting, already accepted connections stay open. Returned promise is resolved once
+         * the port has been released.
+         */
+        public IPromise close() {
+            Promise res = new Promise();
+            thread.execute(() -> {
+                try {
+                    channel.close();
+                    thread.selector.selectNow(); // deregister, so the port is released
+                    res.resolve();
+                } catch (IOException e) {
+                    res.reject(e);
+                }
+            });
+            return res;
+        }
+
+        public boolean isClosed() {
+            return ! channel.isOpen();
+        }
+    }
+
+    public static class SelectorThread extends Thread implements Executor {
+
+        final Selector selector;
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+        volatile boolean stopped;
+
+        public SelectorThread(String name) throws IOException {
+            super(name);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        /**
+         * run task in this thread, wakes up the selector if required
+         */
+        @Override
+        public void execute(Runnable task) {
+            tasks.offer(task);
+            if ( Thread.currentThread() != this && wakeupPending.compareAndSet(false, true) )
+                selector.wakeup();
+        }
+
+        /**
+         * register an accepted channel, the connection created by the factory is bound to this thread
+         */
+        public void register(SocketChannel channel, BiFunction<SelectionKey,SocketChannel,AsyncSocketConnection> connectionFactory) {
+            execute(() -> {
+                try {
+                    channel.configureBlocking(false);
+                    SelectionKey key = channel.register(selector, 0);
+                    AsyncSocketConnection con = connectionFactory.apply(key, channel);
+                    con.bind(this);
+                    key.attach(con);
+                    key.interestOps(SelectionKey.OP_READ);
+                } catch (Throwable e) {
+                    Log.Warn(this, e, "failed to register connection");
+                    try {
+                        channel.close();
+                    } catch (IOException e1) {
+                        Log.Warn(this, e1);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            while ( ! stopped ) {
+                try {
+                    // reset before draining tasks, so a task offered meanwhile either gets drained or wakes up select
+                    wakeupPending.set(false);
+                    runTasks();
+                    // tasks may have called selectNow (see Listener.close), keys selected by it would not be
+                    // reported again by a blocking select
+                    if ( tasks.isEmpty() && selector.selectedKeys().isEmpty() )
+                        selector.select();
+                    else
+                        selector.selectNow();
+                    processSelectedKeys();
+                } catch (Throwable e) {
+                    Log.Warn(this, e, "");
+                }
+            }
+            selector.keys().forEach( key -> {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    Log.Warn(this, e);
+                }
+            });
+            try {
+                selector.close();
+            } catch (IOException e) {
+                Log.Warn(this, e);
+            }
+        }
+
+        void stopAndClose() {
+            stopped = true;
+            selector.wakeup();
+        }
+
+        protected void runTasks() {
+            Runnable task;
+            while ( (task = tasks.poll()) != null ) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    Log.Warn(this, e, "");
+                }
+            }
+        }
+
+        protected void processSelectedKeys() {
+            for (Iterator<SelectionKey> iterator = selector.selectedKeys().iterator(); iterator.hasNext(); ) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                Object attachment = key.attachment();
+                try {
+                    if ( attachment instanceof Listener ) {
+                        if ( key.isAcceptable() )
+                            ((Listener) attachment).accept();
+                    } else if ( attachment instanceof AsyncSocketConnection ) {
+                        handle(key, (AsyncSocketConnection) attachment);
+                    }
+                } catch (CancelledKeyException cke) {
+                    // closed meanwhile
+                } catch (Throwable e) {
+                    Log.Warn(this, e, "");
+                }
+            }
+        }
+
+        protected void handle(SelectionKey key, AsyncSocketConnection con) {
+            try {
+                if ( key.isWritable() && con.writePending() < 0 ) {
+                    con.setWriteInterest(false); // nothing pending
+                }
+                if ( key.isValid() && key.isReadable() ) {
+                    int reads = 1;
+                    while ( con.readData() && reads++ < MAX_READS_PER_SELECT ) {
+                        // buffer was filled completely, read on
+                    }
+                }
+            } catch (Exception e) {
+                if ( e instanceof EOFException ) {
+                    Log.Info(this, "" + e);
+                } else {
+                    Log.Info(this, e);
+                }
+                key.cancel();
+                try {
+                    con.chan.close();
+                } catch (IOException ioe) {
+                    Log.Warn(this, ioe);
+                }
+                con.closed(e);
+            }
+        }
+    }
+
+}
@@ -25,6 +25,8 @@ import org.nustaq.serialization.FSTConfiguration;
 import org.nustaq.serialization.util.FSTUtil;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
@@ -56,19 +58,45 @@ public abstract class ObjectAsyncSocketConnection extends QueuingAsyncSocketConn
         return conf;
     }
 
+    /**
+     * complete frames are decoded straight from the receive buffer, only a trailing partial frame
+     * is staged in the read queue.
+     */
+    @Override
+    public void dataReceived(ByteBuffer buf) {
+        if ( readQueue.available() == 0 ) {
+            checkThread();
+            buf.order(ByteOrder.LITTLE_ENDIAN); // as written by BinaryQueue.addInt and encodeFrame
+            while ( buf.remaining() > 4 ) {
+                int len = buf.getInt(buf.position());
+                if ( len <= 0 ) {
+                    invalidFrame(len);
+                    return;
+                }
+                if ( buf.remaining() - 4 < len )
+                    break;
+                buf.position(buf.position() + 4);
+                byte bytes[] = new byte[len];
+                buf.get(bytes);
+                receivedFrame(bytes);
+            }
+            if ( ! buf.hasRemaining() )
+                return;
+        }
+        super.dataReceived(buf);
+    }
+
     @Override
     public void dataReceived(BinaryQueue q) {
         checkThread();
         while ( q.available() > 4 ) {
             int len = q.readInt();
-            if ( len <= 0 )
-            {
-                System.out.println("object len ?? "+len);
+            if ( len <= 0 ) {
+                invalidFrame(len);
                 return;
             }
             if ( q.available() >= len ) {
-                byte[] bytes = q.readByteArray(len);
-                receivedObject(conf.asObject(bytes));
+                receivedFrame(q.readByteArray(len));
             } else {
                 q.back(4);
                 break;
@@ -76,10 +104,30 @@ public abstract class ObjectAsyncSocketConnection extends QueuingAsyncSocketConn
         }
     }
 
+    // stream is out of sync, following data can't be decoded
+    protected void invalidFrame(int len) {
+        IOException ex = new IOException("invalid frame length " + len + ", closing connection");
+        Log.Warn(this, ex.getMessage());
+        try {
+            chan.close();
+        } catch (IOException e) {
+            Log.Warn(this, e);
+        }
+        closed(ex);
+    }
+
     public int getId() {
         return id;
     }
 
+    /**
+     * called with the encoded bytes of each received object, decodes and passes it to receivedObject
+     * by default. Override to decode in another thread.
+     */
+    protected void receivedFrame(byte[] bytes) {
+        receivedObject(conf.asObject(bytes));
+    }
+
     public abstract void receivedObject(Object o);
 
     public void writeObject(Object o) {
@@ -93,7 +141,7 @@ public abstract class ObjectAsyncSocketConnection extends QueuingAsyncSocketConn
             });
             return;
         }
-        if ( myActor != null )
+        if ( myActor == null )
             myActor = Actor.current();
         checkThread();
         objects.add(o);
@@ -126,12 +174,24 @@ public abstract class ObjectAsyncSocketConnection extends QueuingAsyncSocketConn
         Object[] objArr = objects.toArray();
         objects.clear();
 
-        byte[] bytes = conf.asByteArray(objArr);
-        write(bytes.length);
-        write(bytes);
+        writeBuffer(encodeFrame(objArr));
         tryFlush();
     }
 
+    /**
+     * encode a length prefixed frame into a pooled buffer, ready to be passed to writeBuffer. Encoding
+     * uses the conf's thread local output, so the only copy made is the one into the (direct) buffer.
+     */
+    protected ByteBuffer encodeFrame(Object o) {
+        int len[] = {0};
+        byte bytes[] = conf.asSharedByteArray(o, len);
+        ByteBuffer buf = ByteBufferPool.Shared.acquire(len[0] + 4);
+        buf.putInt(len[0]);
+        buf.put(bytes, 0, len[0]);
+        buf.flip();
+        return buf;
+    }
+
     public Throwable getLastError() {
         return lastError;
     }
@@ -17,6 +17,7 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor.asyncio;
 
 import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.impl.DispatcherThread;
 import org.nustaq.kontraktor.util.Log;
 import org.nustaq.offheap.BinaryQueue;
 import org.nustaq.offheap.bytez.niobuffers.ByteBufferBasicBytez;
@@ -26,6 +27,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 
 /**
@@ -35,16 +38,64 @@ import java.util.concurrent.locks.LockSupport;
  * an application can easily parse and process data async in chunks without having
  * to maintain complex state machines.
  *
+ * Outgoing bytes are accounted per connection. Once above the high watermark canWrite() returns false
+ * until the queue has drained below the low watermark, so senders polling canWrite() (e.g. remote ref
+ * mailboxes, see ConnectionRegistry.pollAndSend2Remote) pause for this connection. Frames exceeding
+ * the hard limit (maxQueued) are handled according to the OverflowPolicy.
  */
 public abstract class QueuingAsyncSocketConnection extends AsyncSocketConnection {
 
+    public enum OverflowPolicy {
+        /**
+         * close the connection
+         */
+        DISCONNECT,
+        /**
+         * drop the frame
+         */
+        DROP,
+        /**
+         * block the sending thread until drained below low watermark, at most BLOCK_TIMEOUT_MILLIS (then the
+         * connection is closed). The io thread and actor threads (e.g. the one polling remote refs) are never
+         * blocked, their frames are enqueued. As canWrite() is false then, remote refs are not drained anymore
+         * and senders are backpressured by the remote refs' mailboxes instead.
+         */
+        BLOCK
+    }
+
+    /**
+     * default hard limit of queued bytes, see OverflowPolicy
+     */
     public static long MAX_Q_SIZE_BYTES = 10_000_000;
+    public static long DEFAULT_HIGH_WATERMARK = 4_000_000;
+    public static long DEFAULT_LOW_WATERMARK = 1_000_000;
+    public static OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DISCONNECT;
+    /**
+     * max time a sender is blocked by OverflowPolicy.BLOCK
+     */
+    public static long BLOCK_TIMEOUT_MILLIS = 5000;
+    /**
+     * max number of buffers passed to a single gathering write
+     */
+    public static int MAX_GATHER_BUFFERS = 16;
 
     protected BinaryQueue readQueue = new BinaryQueue();
     protected BinaryQueue writeQueue = new BinaryQueue();
 
     protected ByteBufferBasicBytez wrapper = new ByteBufferBasicBytez(null);
 
+    // pooled buffers waiting to be written, released to ByteBufferPool.Shared once written
+    protected ArrayDeque<ByteBuffer> pendingBuffers = new ArrayDeque<>();
+    // bytes of pending + currently written buffers (and reserved ones handed over to the io thread)
+    protected final AtomicLong queuedBytes = new AtomicLong();
+    protected volatile boolean aboveHighWatermark;
+    protected volatile Runnable writableListener;
+
+    protected long lowWatermark = DEFAULT_LOW_WATERMARK;
+    protected long highWatermark = DEFAULT_HIGH_WATERMARK;
+    protected long maxQueued = MAX_Q_SIZE_BYTES;
+    protected OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
     public QueuingAsyncSocketConnection(SelectionKey key, SocketChannel chan) {
         super(key, chan);
     }
@@ -52,53 +103,177 @@ public abstract class QueuingAsyncSocketConnection extends AsyncSocketConnection
     ByteBufferBasicBytez tmp = new ByteBufferBasicBytez(null);
     HeapBytez tmpBA = new HeapBytez(new byte[0]);
 
-    protected void checkQSize() {
-        if ( writeQueue.available() > MAX_Q_SIZE_BYTES ) {
-            LockSupport.parkNanos(1); // poor man's backpressure in case buffer is too large
+    public void setWatermarks(long low, long high, long maxQueued) {
+        this.lowWatermark = low;
+        this.highWatermark = high;
+        this.maxQueued = maxQueued;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return false while above high watermark (until drained below low watermark)
+     */
+    @Override
+    public boolean canWrite() {
+        return ! aboveHighWatermark;
+    }
+
+    /**
+     * @param listener - run (in the io thread usually) once canWrite() turns true again
+     */
+    public void setWritableListener(Runnable listener) {
+        this.writableListener = listener;
+    }
+
+    /**
+     * @return bytes queued but not yet written
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * account a frame before it is enqueued, may be called from any thread. Applies the overflow policy
+     * in case the hard limit is exceeded. A frame is always accepted if nothing is queued.
+     *
+     * @return false if the frame must not be enqueued
+     */
+    protected boolean reserve(long bytes) {
+        long queued = queuedBytes.addAndGet(bytes);
+        if ( queued > highWatermark )
+            aboveHighWatermark = true;
+        if ( queued <= maxQueued || queued == bytes )
+            return true;
+        switch (overflowPolicy) {
+            case BLOCK:
+                Thread current = Thread.currentThread();
+                if ( current == theExecutingThread || current instanceof DispatcherThread )
+                    return true;
+                // wait without own bytes, else a frame larger than lowWatermark would never be released
+                unreserve(bytes);
+                long deadline = System.nanoTime() + BLOCK_TIMEOUT_MILLIS * 1_000_000;
+                while ( queuedBytes.get() > lowWatermark && chan.isOpen() && ! isClosed ) {
+                    if ( System.nanoTime() - deadline > 0 ) {
+                        overflowClose("write queue not drained within "+BLOCK_TIMEOUT_MILLIS+" ms, closing connection");
+                        return false;
+                    }
+                    LockSupport.parkNanos(100_000);
+                }
+                if ( isClosed || ! chan.isOpen() )
+                    return false;
+                if ( queuedBytes.addAndGet(bytes) > highWatermark )
+                    aboveHighWatermark = true;
+                return true;
+            case DROP:
+                unreserve(bytes);
+                Log.Lg.warn(this, "write queue limit exceeded, dropping frame of "+bytes+" bytes");
+                return false;
+            default:
+                unreserve(bytes);
+                overflowClose("write queue limit exceeded, closing connection");
+                return false;
+        }
+    }
+
+    protected void overflowClose(String reason) {
+        Log.Lg.warn(this, reason);
+        try {
+            close();
+        } catch (IOException e) {
+            Log.Warn(this, e);
+        }
+    }
+
+    protected void unreserve(long bytes) {
+        long queued = queuedBytes.addAndGet(-bytes);
+        if ( aboveHighWatermark && queued <= lowWatermark ) {
+            aboveHighWatermark = false;
+            Runnable listener = writableListener;
+            if ( listener != null )
+                listener.run();
         }
     }
 
     public void write( ByteBuffer buf ) {
         checkThread();
-        checkQSize();
         tmp.setBuffer(buf);
         writeQueue.add(tmp);
     }
 
     public void write( byte b[] ) {
         checkThread();
-        checkQSize();
         write(b, 0, b.length);
     }
 
     public void write( byte b[], int off, int len ) {
         checkThread();
-        checkQSize();
         tmpBA.setBase(b, off, len);
         writeQueue.add(tmpBA);
     }
 
     public void write( int val ) {
         checkThread();
-        checkQSize();
         writeQueue.addInt(val);
     }
 
-    // quite some fiddling required to deal with various byte abstractions
+    /**
+     * enqueue a flipped buffer obtained from ByteBufferPool.Shared. It is written as is (no copy) and
+     * released to the pool once written, so it must not be touched afterwards.
+     */
+    public void writeBuffer( ByteBuffer pooled ) {
+        checkThread();
+        if ( reserve(pooled.remaining()) )
+            writeReserved(pooled);
+        else
+            ByteBufferPool.Shared.release(pooled);
+    }
 
-    ByteBuffer qWriteTmp = ByteBuffer.allocateDirect(128000);
-    public void tryFlush() {
+    /**
+     * enqueue a pooled buffer already accounted by reserve (e.g. in the encoding thread)
+     */
+    protected void writeReserved( ByteBuffer pooled ) {
         checkThread();
-        if ( canWrite() ) {
-            qWriteTmp.position(0);
-            qWriteTmp.limit(qWriteTmp.capacity());
-            tmp.setBuffer(qWriteTmp);
+        drainWriteQueue();
+        pendingBuffers.add(pooled);
+    }
+
+    // move bytes added by write* into pooled buffers, keeps ordering with writeBuffer
+    protected void drainWriteQueue() {
+        while ( writeQueue.available() > 0 ) {
+            ByteBuffer buf = ByteBufferPool.Shared.acquire((int) Math.min(writeQueue.available(), ByteBufferPool.MAX_POOLED_SIZE));
+            tmp.setBuffer(buf);
             long poll = writeQueue.poll(tmp, 0, tmp.length());
-//            System.out.println("try write "+poll+" avail:"+writeQueue.available()+" cap:"+writeQueue.capacity());
-            if (poll > 0) {
-                qWriteTmp.limit((int) poll);
-                IPromise queueDataAvailablePromise = directWrite(qWriteTmp);
+            buf.limit((int) poll);
+            pendingBuffers.add(buf);
+            queuedBytes.addAndGet(poll); // raw writes are accounted once moved, never dropped (might be part of a frame)
+        }
+    }
+
+    public void tryFlush() {
+        checkThread();
+        if ( writePromise == null ) {
+            drainWriteQueue();
+            if ( pendingBuffers.size() > 0 ) {
+                ByteBuffer bufs[] = new ByteBuffer[Math.min(pendingBuffers.size(), MAX_GATHER_BUFFERS)];
+                long size = 0;
+                for (int i = 0; i < bufs.length; i++) {
+                    bufs[i] = pendingBuffers.poll();
+                    size += bufs[i].remaining();
+                }
+                long written = size;
+                IPromise queueDataAvailablePromise = directWrite(bufs);
                 queueDataAvailablePromise.then((res, err) -> {
+                    for (int i = 0; i < bufs.length; i++) {
+                        ByteBufferPool.Shared.release(bufs[i]);
+                    }
+                    unreserve(written);
                     if ( err != null ) {
                         if (err instanceof Throwable ) {
                             Log.Lg.error(this, (Throwable) err, "write failure");
@@ -118,7 +293,7 @@ public abstract class QueuingAsyncSocketConnection extends AsyncSocketConnection
     @Override
     public void dataReceived(ByteBuffer buf) {
         wrapper.setBuffer(buf);
-        readQueue.add(wrapper, buf.position(), buf.limit());
+        readQueue.add(wrapper, buf.position(), buf.remaining());
         dataReceived(readQueue);
     }
 
@@ -85,20 +85,11 @@ public class _AsyncClientSocket implements Runnable {
                 if ( con != null ) {
                     boolean wrote = false;
                     if (key.isWritable()) {
-                        ByteBuffer writingBuffer = con.getWritingBuffer();
-                        if ( writingBuffer != null ) {
-                            int written = channel.write(writingBuffer);
-                            if (written<0) {
+                        if ( con.isWritePending() ) {
+                            con.writePending();
+                            if ( ! con.isWritePending() ) {
                                 wrote = true;
                                 iterator.remove();
-                                key.cancel();
-                                // closed
-                                con.writeFinished("disconnected");
-                            } else
-                            if ( writingBuffer.remaining() == 0) {
-                                wrote = true;
-                                iterator.remove();
-                                con.writeFinished(null);
                             }
                         }
                     }
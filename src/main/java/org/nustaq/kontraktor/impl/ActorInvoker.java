@@ -0,0 +1,279 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.annotations.Deadline;
+import org.nustaq.kontraktor.annotations.Priority;
+import org.nustaq.serialization.util.FSTUtil;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Holds the method table of an actor class and dispatches a CallEntry to the actual method
+ * by index.
+ *
+ * This base class invokes via reflection. ActorProxyFactory generates a subclass per actor class
+ * (named [ActorClass]_ActorInvoker) overriding invoke() with a switch over method indices calling
+ * the target methods directly. Indices not covered by the generated switch (e.g. inaccessible
+ * parameter types) fall back to reflection. invokeUnboxed() is generated the same way for methods
+ * called with UnboxedCallEntries.
+ *
+ * Instances are immutable after init and shared by all actors of a class, so lookups can be done
+ * from any thread.
+ */
+public class ActorInvoker {
+
+    /**
+     * invoker for CallbackWrapper results (Callback.complete(result,error)). Avoids reflection
+     * for the most frequent callback queue entry.
+     */
+    public static final ActorInvoker CALLBACK;
+
+    static {
+        ActorInvoker cbInvoker = null;
+        try {
+            cbInvoker = new ActorInvoker() {
+                @Override
+                public Object invoke(Object target, int methodIndex, Object[] args) throws Exception {
+                    ((Callback) target).complete(args[0], args[1]);
+                    return null;
+                }
+            };
+            cbInvoker.init(new Method[] {Callback.class.getMethod("complete", Object.class, Object.class)});
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+        }
+        CALLBACK = cbInvoker;
+    }
+
+    /**
+     * invoker for runnables scheduled with Scheduler.delayedCall(millis,actor,runnable)
+     */
+    public static final ActorInvoker RUNNABLE;
+
+    static {
+        ActorInvoker runInvoker = null;
+        try {
+            runInvoker = new ActorInvoker() {
+                @Override
+                public Object invoke(Object target, int methodIndex, Object[] args) throws Exception {
+                    ((Runnable) target).run();
+                    return null;
+                }
+            };
+            runInvoker.init(new Method[] {Runnable.class.getMethod("run")});
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+        }
+        RUNNABLE = runInvoker;
+    }
+
+    protected Method methods[];
+    protected boolean futureResult[];
+    protected boolean priority[];        // enqueue to priority lane (@Priority, @Deadline)
+    protected long deadlineNanos[];      // max queueing time, 0 = none (@Deadline)
+    protected HashMap<String,Integer> indexMap;
+
+    public ActorInvoker() {
+    }
+
+    public ActorInvoker(Method methods[]) {
+        init(methods);
+    }
+
+    public void init(Method methods[]) {
+        this.methods = methods;
+        futureResult = new boolean[methods.length];
+        priority = new boolean[methods.length];
+        deadlineNanos = new long[methods.length];
+        indexMap = new HashMap<>(methods.length*2);
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            futureResult[i] = method.getReturnType() == IPromise.class;
+            Deadline deadline = ActorProxyFactory.getInheritedAnnotation(Deadline.class, method);
+            if ( deadline != null )
+                deadlineNanos[i] = Math.max(1, deadline.value() * 1_000_000);
+            priority[i] = deadline != null || ActorProxyFactory.getInheritedAnnotation(Priority.class, method) != null;
+            indexMap.put(method.getName(),i);
+        }
+    }
+
+    /**
+     * @return index of the method or -1 if not present
+     */
+    public int getMethodIndex(String name) {
+        Integer index = indexMap.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public Method getMethod(int index) {
+        return methods[index];
+    }
+
+    public String getMethodName(int index) {
+        return methods[index].getName();
+    }
+
+    public boolean hasFutureResult(int index) {
+        return futureResult[index];
+    }
+
+    /**
+     * @return true if calls to this method go to the priority lane of the actor
+     */
+    public boolean isPriority(int index) {
+        return priority[index];
+    }
+
+    /**
+     * @return max nanos a call to this method may be queued until it's dropped, 0 if unlimited
+     */
+    public long getDeadlineNanos(int index) {
+        return deadlineNanos[index];
+    }
+
+    public int getNumMethods() {
+        return methods.length;
+    }
+
+    /**
+     * invoke method with given index on target. Exceptions thrown by the target method are
+     * passed through unwrapped (no InvocationTargetException).
+     */
+    public Object invoke(Object target, int methodIndex, Object args[]) throws Exception {
+        Method method = methods[methodIndex];
+        try {
+            try {
+                return method.invoke(target, args);
+            } catch (IllegalArgumentException iae) {
+                // FIXME: boolean is translated wrong by minbin .. this fix is expensive
+                final Class<?>[] parameterTypes = method.getParameterTypes();
+                if ( args != null && args.length == parameterTypes.length ) {
+                    for (int i = 0; i < args.length; i++) {
+                        Object arg = args[i];
+                        if ( (parameterTypes[i] == boolean.class || parameterTypes[i] == Boolean.class) &&
+                             arg instanceof Byte ) {
+                            args[i] = ((Byte) arg).intValue()!=0;
+                        }
+                    }
+                    return method.invoke(target, args);
+                }
+                System.err.println("method:"+ method.toString());
+                System.err.println("arguments given:"+ Arrays.toString(args));
+                throw iae;
+            }
+        } catch (InvocationTargetException ite) {
+            FSTUtil.<Exception>rethrow(ite.getTargetException());
+            return null; // never reached
+        }
+    }
+
+    /**
+     * invoke method with given index, args are taken from the fields of an UnboxedCallEntry. Boxes
+     * the args unless overridden by a generated invoker.
+     */
+    public Object invokeUnboxed(Object target, int methodIndex, UnboxedCallEntry entry) throws Exception {
+        return invoke(target, methodIndex, entry.getArgs());
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////
+    // conversion helpers used by generated code (minbin/json decoders do not necessary deliver
+    // exact wrapper types)
+
+    public static boolean toBoolean(Object o) {
+        if ( o instanceof Boolean )
+            return (Boolean) o;
+        return ((Number) o).intValue() != 0;
+    }
+
+    public static char toChar(Object o) {
+        if ( o instanceof Character )
+            return (Character) o;
+        return (char) ((Number) o).intValue();
+    }
+
+    public static byte toByte(Object o) {
+        return ((Number) o).byteValue();
+    }
+
+    public static short toShort(Object o) {
+        return ((Number) o).shortValue();
+    }
+
+    public static int toInt(Object o) {
+        if ( o instanceof Character )
+            return (Character) o;
+        return ((Number) o).intValue();
+    }
+
+    public static long toLong(Object o) {
+        if ( o instanceof Character )
+            return (Character) o;
+        return ((Number) o).longValue();
+    }
+
+    public static float toFloat(Object o) {
+        return ((Number) o).floatValue();
+    }
+
+    public static double toDouble(Object o) {
+        return ((Number) o).doubleValue();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////
+    // method table
+
+    /**
+     * @return the methods dispatchable on an actor class. Method names are unique
+     * as overloading is not supported for actors, methods of java.lang.Object are excluded.
+     * Order is stable (sorted by name) so indices are identical for each process
+     * using the same class version.
+     */
+    public static Method[] getInvokableMethods(Class clazz) {
+        Method[] all = clazz.getMethods();
+        HashMap<String,Method> byName = new HashMap<>();
+        HashMap<String,Integer> count = new HashMap<>();
+        for (int i = 0; i < all.length; i++) {
+            Method m = all[i];
+            if ( Modifier.isStatic(m.getModifiers()) || m.isBridge() || m.isSynthetic() ||
+                 m.getDeclaringClass() == Object.class )
+                continue;
+            Method prev = byName.get(m.getName());
+            if ( prev == null ) {
+                byName.put(m.getName(),m);
+            } else if ( ! Arrays.equals(prev.getParameterTypes(),m.getParameterTypes()) ) {
+                count.put(m.getName(),2); // real overload, ambiguous
+            }
+        }
+        List<Method> res = new ArrayList<>();
+        byName.forEach( (name,m) -> {
+            if ( count.get(name) == null )
+                res.add(m);
+        });
+        res.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return res.toArray(new Method[res.size()]);
+    }
+
+}
@@ -31,7 +31,12 @@ import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Copyright (c) 2012, Ruediger Moeller. All rights reserved.
@@ -61,7 +66,20 @@ import java.util.*;
  */
 public class ActorProxyFactory {
 
-    Map<Class,Class> generatedProxyClasses = new HashMap<Class, Class>();
+    /**
+     * args of calls to methods without parameters, shared by all generated proxies
+     */
+    public static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * if true, proxies and invokers generated at build time (see ActorProxyGenerator) are used if present
+     */
+    public static boolean USE_PREBUILT = true;
+    static final String SIGNATURE_FIELD = "__kontraktorSignature";
+
+    // lookups are lock free, generation is serialized by locking generatedProxyClasses
+    ConcurrentHashMap<Class,Class> generatedProxyClasses = new ConcurrentHashMap<>();
+    ConcurrentHashMap<Class,ActorInvoker> generatedInvokers = new ConcurrentHashMap<>();
 
     public ActorProxyFactory() {
     }
@@ -119,67 +137,349 @@ public class ActorProxyFactory {
     }
 
     protected <T> Class<T> createProxyClass(Class<T> clazz, ClassLoader loader) throws Exception {
+        Class ccClz = generatedProxyClasses.get(clazz);
+        if ( ccClz != null )
+            return ccClz;
+        if ( USE_PREBUILT ) {
+            ccClz = loadPrebuilt(clazz, clazz.getName() + "_ActorProxy");
+            if ( ccClz != null ) {
+                Class prev = generatedProxyClasses.putIfAbsent(clazz, ccClz);
+                return prev != null ? prev : ccClz;
+            }
+        }
         synchronized (generatedProxyClasses) {
-            String proxyName = clazz.getName() + "_ActorProxy";
-            Class ccClz = generatedProxyClasses.get(clazz);
+            ccClz = generatedProxyClasses.get(clazz);
             if (ccClz == null) {
-                ClassPool pool = ClassPool.getDefault();
-                if ( loader instanceof ClassPathProvider ) {
-                    ClassPool local = new ClassPool(pool);
-                    List<File> classPath = ((ClassPathProvider) loader).getClassPath();
-                    for (int i = 0; i < classPath.size(); i++) {
-                        File file = classPath.get(i);
-                        local.appendClassPath(file.getAbsolutePath());
-                    }
-                    pool = local;
+                ClassPool pool = getClassPool(loader);
+                CtClass cc = makeProxyCtClass(clazz, pool);
+                Loader loader1 = createLoader(clazz, pool, cc.getName(), clazz.getName() + "_ActorInvoker");
+                ccClz = loader1.loadClass(cc.getName());
+                if ( generatedInvokers.get(clazz) == null )
+                    generatedInvokers.put(clazz, createInvoker(clazz, pool, loader1));
+                generatedProxyClasses.put(clazz, ccClz);
+            }
+            return ccClz;
+        }
+    }
+
+    /**
+     * @return the (possibly cached) javassist class of the proxy for clazz
+     */
+    protected CtClass makeProxyCtClass(Class clazz, ClassPool pool) throws Exception {
+        String proxyName = clazz.getName() + "_ActorProxy";
+        CtClass cc = getGenerated(pool, proxyName, clazz);
+        if (cc == null) {
+            cc = pool.makeClass(proxyName);
+            CtClass orig;
+            try {
+                orig = pool.get(clazz.getName());
+            } catch (NotFoundException ex) {
+                //insert for next proxy
+                pool.insertClassPath(new ClassClassPath(clazz));
+                orig = pool.get(clazz.getName());
+                if (orig == null)
+                {
+                    throw ex;
+                }
+            }
+            cc.setSuperclass(orig);
+            cc.setInterfaces(new CtClass[]{pool.get(Externalizable.class.getName()), pool.get(ActorProxy.class.getName())});
+
+            defineProxyFields(pool, cc);
+            defineSignatureField(pool, cc, clazz);
+            defineProxyMethods(cc, orig, ActorInvoker.getInvokableMethods(clazz));
+        }
+        return cc;
+    }
+
+    /**
+     * load a class generated at build time by ActorProxyGenerator from the actor's classloader.
+     * @return null if not present or generated from a different version of the actor class
+     */
+    protected Class loadPrebuilt(Class clazz, String name) {
+        ClassLoader loader = clazz.getClassLoader();
+        if ( loader == null )
+            return null;
+        Class res;
+        try {
+            res = Class.forName(name, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        try {
+            Object sig = res.getField(SIGNATURE_FIELD).get(null);
+            if ( signatureOf(clazz).equals(sig) )
+                return res;
+        } catch (Exception e) {
+            // not generated by ActorProxyGenerator
+        }
+        Log.Warn(this, "ignoring outdated prebuilt " + name + ", rerun ActorProxyGenerator");
+        return null;
+    }
+
+    protected void defineSignatureField(ClassPool pool, CtClass cc, Class clazz) throws Exception {
+        CtField sig = new CtField(pool.get(String.class.getName()), SIGNATURE_FIELD, cc);
+        sig.setModifiers(AccessFlag.PUBLIC | AccessFlag.STATIC | AccessFlag.FINAL);
+        cc.addField(sig, CtField.Initializer.constant(signatureOf(clazz)));
+    }
+
+    /**
+     * @return hash of the public methods of an actor class. Proxies and invokers are bound to the method
+     * table they have been generated from.
+     */
+    public static String signatureOf(Class clazz) {
+        Method methods[] = clazz.getMethods();
+        String sigs[] = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            sigs[i] = methods[i].toGenericString();
+        }
+        Arrays.sort(sigs);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (int i = 0; i < sigs.length; i++) {
+                digest.update(sigs[i].getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(Arrays.hashCode(sigs));
+        }
+    }
+
+    /**
+     * @return the invoker dispatching calls to the actor class given. The invoker is generated
+     * along with the proxy class, in case no proxy has been generated for clazz yet (e.g. untyped actors),
+     * it is generated on the fly.
+     */
+    public ActorInvoker getInvoker(Class<? extends Actor> clazz) {
+        ActorInvoker invoker = generatedInvokers.get(clazz);
+        if ( invoker != null )
+            return invoker;
+        if ( USE_PREBUILT ) {
+            Class prebuilt = loadPrebuilt(clazz, clazz.getName() + "_ActorInvoker");
+            if ( prebuilt != null ) {
+                try {
+                    invoker = (ActorInvoker) prebuilt.getDeclaredConstructor().newInstance();
+                    invoker.init(ActorInvoker.getInvokableMethods(clazz));
+                    ActorInvoker prev = generatedInvokers.putIfAbsent(clazz, invoker);
+                    return prev != null ? prev : invoker;
+                } catch (Exception e) {
+                    Log.Warn(this, e, "failed to instantiate prebuilt invoker for " + clazz.getName());
                 }
-                CtClass cc = null;
+            }
+        }
+        synchronized (generatedProxyClasses) {
+            invoker = generatedInvokers.get(clazz);
+            if ( invoker == null ) {
                 try {
-                    cc = pool.getCtClass(proxyName);
-                } catch (NotFoundException ex) {
-                    //ignore
+                    ClassPool pool = getClassPool(clazz.getClassLoader());
+                    String invokerName = clazz.getName() + "_ActorInvoker";
+                    invoker = createInvoker(clazz, pool, createLoader(clazz, pool, invokerName));
+                } catch (Exception e) {
+                    Log.Warn(this, e, "failed to generate invoker for " + clazz.getName() + ", falling back to reflection");
+                    invoker = new ActorInvoker(ActorInvoker.getInvokableMethods(clazz));
                 }
-                if (cc == null) {
-                    cc = pool.makeClass(proxyName);
-                    CtClass orig;
-                    try {
-                        orig = pool.get(clazz.getName());
-                    } catch (NotFoundException ex) {
-                        //insert for next proxy
-                        pool.insertClassPath(new ClassClassPath(clazz));
-                        orig = pool.get(clazz.getName());
-                        if (orig == null)
-                        {
-                            throw ex;
-                        }
-                    }
-                    cc.setSuperclass(orig);
-                    cc.setInterfaces(new CtClass[]{pool.get(Externalizable.class.getName()), pool.get(ActorProxy.class.getName())});
+                generatedInvokers.put(clazz, invoker);
+            }
+            return invoker;
+        }
+    }
+
+    protected ClassPool getClassPool(ClassLoader loader) throws NotFoundException {
+        ClassPool pool = ClassPool.getDefault();
+        if ( loader instanceof ClassPathProvider ) {
+            ClassPool local = new ClassPool(pool);
+            List<File> classPath = ((ClassPathProvider) loader).getClassPath();
+            for (int i = 0; i < classPath.size(); i++) {
+                File file = classPath.get(i);
+                local.appendClassPath(file.getAbsolutePath());
+            }
+            pool = local;
+        }
+        return pool;
+    }
+
+    /**
+     * generates a subclass of ActorInvoker containing a switch over all invokable methods of
+     * the actor class, so dispatching a message does not require Method.invoke + boxing of
+     * results/exceptions.
+     */
+    protected ActorInvoker createInvoker(Class clazz, ClassPool pool, Loader loader) {
+        Method methods[] = ActorInvoker.getInvokableMethods(clazz);
+        try {
+            String invokerName = makeInvokerCtClass(clazz, pool, methods).getName();
+            ActorInvoker invoker = (ActorInvoker) loader.loadClass(invokerName).getDeclaredConstructor().newInstance();
+            invoker.init(methods);
+            return invoker;
+        } catch (Exception e) {
+            Log.Warn(this, e, "failed to generate invoker for " + clazz.getName() + ", falling back to reflection");
+            return new ActorInvoker(methods);
+        }
+    }
+
+    protected CtClass makeInvokerCtClass(Class clazz, ClassPool pool, Method methods[]) throws Exception {
+        String invokerName = clazz.getName() + "_ActorInvoker";
+        CtClass cc = getGenerated(pool, invokerName, clazz);
+        if ( cc == null ) {
+            try {
+                pool.get(clazz.getName());
+            } catch (NotFoundException ex) {
+                pool.insertClassPath(new ClassClassPath(clazz));
+            }
+            cc = pool.makeClass(invokerName);
+            cc.setSuperclass(pool.get(ActorInvoker.class.getName()));
+            defineSignatureField(pool, cc, clazz);
+            cc.addMethod(CtMethod.make(createInvokerMethodSource(clazz, methods), cc));
+            String unboxed = createUnboxedInvokerMethodSource(clazz, methods);
+            if ( unboxed != null )
+                cc.addMethod(CtMethod.make(unboxed, cc));
+        }
+        return cc;
+    }
+
+    /**
+     * @return class already known to the pool (generated before or found on the classpath) if it
+     * matches the current version of clazz
+     */
+    protected CtClass getGenerated(ClassPool pool, String name, Class clazz) {
+        CtClass cc = pool.getOrNull(name);
+        if ( cc == null )
+            return null;
+        try {
+            if ( signatureOf(clazz).equals(cc.getField(SIGNATURE_FIELD).getConstantValue()) )
+                return cc;
+        } catch (NotFoundException e) {
+            // no signature
+        }
+        if ( cc.isFrozen() )
+            cc.defrost(); // outdated, gets replaced
+        return null;
+    }
 
-                    defineProxyFields(pool, cc);
-                    defineProxyMethods(cc, orig);
+    protected String createInvokerMethodSource(Class clazz, Method[] methods) {
+        String clzName = clazz.getName();
+        String inv = ActorInvoker.class.getName();
+        StringBuilder body = new StringBuilder(1000);
+        body.append("public Object invoke(Object target, int methodIndex, Object[] args) throws Exception {");
+        body.append("switch (methodIndex) {");
+        for (int i = 0; i < methods.length; i++) {
+            Method m = methods[i];
+            if ( ! isDirectlyInvokable(m) )
+                continue; // reflective fallback
+            StringBuilder call = new StringBuilder(100);
+            call.append("((").append(clzName).append(")target).").append(m.getName()).append("(");
+            Class<?>[] parameterTypes = m.getParameterTypes();
+            for (int j = 0; j < parameterTypes.length; j++) {
+                Class<?> pt = parameterTypes[j];
+                if ( j > 0 )
+                    call.append(",");
+                if ( pt.isPrimitive() ) {
+                    String name = pt.getName();
+                    call.append(inv).append(".to").append(Character.toUpperCase(name.charAt(0))).append(name.substring(1)).append("(args[").append(j).append("])");
+                } else {
+                    call.append("(").append(getSourceName(pt)).append(")args[").append(j).append("]");
                 }
+            }
+            call.append(")");
+            body.append("case ").append(i).append(": ");
+            if ( m.getReturnType() == void.class ) {
+                body.append(call).append("; return null;");
+            } else {
+                body.append("return ($w)").append(call).append(";");
+            }
+        }
+        body.append("}");
+        body.append("return super.invoke(target,methodIndex,args);");
+        body.append("}");
+        return body.toString();
+    }
 
-                ccClz = loadProxyClass(clazz, pool, cc);
-                generatedProxyClasses.put(clazz, ccClz);
+    /**
+     * @return source of invokeUnboxed reading the args from the fields of UnboxedCallEntries (see
+     * getUnboxedArgsSource), null if no method is called with unboxed entries
+     */
+    protected String createUnboxedInvokerMethodSource(Class clazz, Method[] methods) {
+        String clzName = clazz.getName();
+        StringBuilder body = new StringBuilder(1000);
+        body.append("public Object invokeUnboxed(Object target, int methodIndex, ").append(UnboxedCallEntry.class.getName()).append(" entry) throws Exception {");
+        body.append("switch (methodIndex) {");
+        boolean any = false;
+        for (int i = 0; i < methods.length; i++) {
+            Method m = methods[i];
+            Class<?>[] parameterTypes = m.getParameterTypes();
+            if ( UnboxedCallEntry.argTypesOf(parameterTypes) == 0 || ! isDirectlyInvokable(m) )
+                continue;
+            any = true;
+            String e = "((" + UnboxedCallEntry.class.getName() + "$Of" + parameterTypes.length + ")entry)";
+            StringBuilder call = new StringBuilder(100);
+            call.append("((").append(clzName).append(")target).").append(m.getName()).append("(");
+            for (int j = 0; j < parameterTypes.length; j++) {
+                Class<?> pt = parameterTypes[j];
+                if ( j > 0 )
+                    call.append(",");
+                String p = e + ".p" + j;
+                switch (UnboxedCallEntry.typeOf(pt)) {
+                    case UnboxedCallEntry.REF: call.append("(").append(getSourceName(pt)).append(")").append(e).append(".o").append(j); break;
+                    case UnboxedCallEntry.BOOLEAN: call.append("(").append(p).append(" != 0L)"); break;
+                    case UnboxedCallEntry.FLOAT: call.append("Float.intBitsToFloat((int)").append(p).append(")"); break;
+                    case UnboxedCallEntry.DOUBLE: call.append("Double.longBitsToDouble(").append(p).append(")"); break;
+                    case UnboxedCallEntry.LONG: call.append(p); break;
+                    default: call.append("(").append(pt.getName()).append(")").append(p);
+                }
+            }
+            call.append(")");
+            body.append("case ").append(i).append(": ");
+            if ( m.getReturnType() == void.class ) {
+                body.append(call).append("; return null;");
+            } else {
+                body.append("return ($w)").append(call).append(";");
             }
-            return ccClz;
         }
+        if ( ! any )
+            return null;
+        body.append("}");
+        body.append("return super.invokeUnboxed(target,methodIndex,entry);");
+        body.append("}");
+        return body.toString();
     }
 
-    protected <T> Class loadProxyClass(Class clazz, ClassPool pool, final CtClass cc) throws ClassNotFoundException {
-        Class ccClz;
-        Loader cl = new Loader(clazz.getClassLoader(), pool) {
+    // generated code lives in a different classloader, so package private types are not accessible
+    protected boolean isDirectlyInvokable(Method m) {
+        if ( ! Modifier.isPublic(m.getDeclaringClass().getModifiers()) )
+            return false;
+        Class<?>[] parameterTypes = m.getParameterTypes();
+        for (int j = 0; j < parameterTypes.length; j++) {
+            Class<?> pt = parameterTypes[j];
+            while ( pt.isArray() )
+                pt = pt.getComponentType();
+            if ( ! pt.isPrimitive() && ! Modifier.isPublic(pt.getModifiers()) )
+                return false;
+        }
+        return true;
+    }
+
+    protected String getSourceName(Class<?> type) {
+        if ( type.isArray() )
+            return getSourceName(type.getComponentType()) + "[]";
+        return type.getName();
+    }
+
+    protected Loader createLoader(Class clazz, ClassPool pool, final String ... generatedNames) {
+        return new Loader(clazz.getClassLoader(), pool) {
             protected Class loadClassByDelegation(String name)
                     throws ClassNotFoundException
             {
-                if ( name.equals(cc.getName()) )
-                    return null;
+                for (int i = 0; i < generatedNames.length; i++) {
+                    if ( name.equals(generatedNames[i]) )
+                        return null;
+                }
                 return delegateToParent(name);
             }
         };
-        ccClz = cl.loadClass(cc.getName());
-        return ccClz;
+    }
+
+    protected <T> Class loadProxyClass(Class clazz, ClassPool pool, final CtClass cc) throws ClassNotFoundException {
+        return createLoader(clazz, pool, cc.getName()).loadClass(cc.getName());
     }
 
     protected void defineProxyFields(ClassPool pool, CtClass cc) throws CannotCompileException, NotFoundException {
@@ -188,8 +488,98 @@ public class ActorProxyFactory {
         cc.addField(target);
     }
 
-    //FIXME: needs cleanup ...
     protected void defineProxyMethods(CtClass cc, CtClass orig) throws Exception {
+        defineProxyMethods(cc, orig, null);
+    }
+
+    /**
+     * @return bit i set if parameter i might hold a Callback at runtime, which has to be wrapped on enqueue
+     */
+    protected long getCallbackArgs(CtClass[] parameterTypes) {
+        long res = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if ( i >= 63 ) // keep literal positive
+                return -1;
+            if ( mightBeCallback(parameterTypes[i]) )
+                res |= 1L << i;
+        }
+        return res;
+    }
+
+    protected boolean mightBeCallback(CtClass type) {
+        if ( type.isPrimitive() || type.isArray() )
+            return false;
+        if ( ! Modifier.isFinal(type.getModifiers()) )
+            return true; // a subclass/implementation might be a Callback
+        try {
+            return type.subtypeOf(type.getClassPool().get(Callback.class.getName()));
+        } catch (NotFoundException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return UnboxedCallEntry.argTypes of a proxied method, 0 if calls pass args as Object[]
+     */
+    protected long getUnboxedArgTypes(CtClass[] parameterTypes) {
+        if ( parameterTypes.length == 0 || parameterTypes.length > UnboxedCallEntry.MAX_ARGS )
+            return 0;
+        long res = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            res |= (long) getUnboxedType(parameterTypes[i]) << (i * 4);
+        }
+        return res;
+    }
+
+    protected int getUnboxedType(CtClass type) {
+        if ( ! type.isPrimitive() )
+            return UnboxedCallEntry.REF;
+        switch (type.getName()) {
+            case "boolean": return UnboxedCallEntry.BOOLEAN;
+            case "byte": return UnboxedCallEntry.BYTE;
+            case "char": return UnboxedCallEntry.CHAR;
+            case "short": return UnboxedCallEntry.SHORT;
+            case "int": return UnboxedCallEntry.INT;
+            case "long": return UnboxedCallEntry.LONG;
+            case "float": return UnboxedCallEntry.FLOAT;
+            case "double": return UnboxedCallEntry.DOUBLE;
+            default: return UnboxedCallEntry.REF;
+        }
+    }
+
+    // stores the proxy method's args to the fields of UnboxedCallEntry e
+    protected String getUnboxedArgsSource(CtClass[] parameterTypes) {
+        StringBuilder res = new StringBuilder(100);
+        for (int i = 0; i < parameterTypes.length; i++) {
+            String arg = "$" + (i + 1);
+            switch (getUnboxedType(parameterTypes[i])) {
+                case UnboxedCallEntry.REF: res.append("e.o").append(i).append(" = ").append(arg).append(";"); continue;
+                case UnboxedCallEntry.BOOLEAN: arg = "(" + arg + " ? 1L : 0L)"; break;
+                case UnboxedCallEntry.FLOAT: arg = "(long) Float.floatToRawIntBits(" + arg + ")"; break;
+                case UnboxedCallEntry.DOUBLE: arg = "Double.doubleToRawLongBits(" + arg + ")"; break;
+                default: arg = "(long) " + arg;
+            }
+            res.append("e.p").append(i).append(" = ").append(arg).append(";");
+        }
+        return res.toString();
+    }
+
+    protected int getMethodIndex(Method invokable[], String name) {
+        if ( invokable != null ) {
+            for (int i = 0; i < invokable.length; i++) {
+                if ( invokable[i].getName().equals(name) )
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    //FIXME: needs cleanup ...
+    /**
+     * @param invokable - method table of the actor's invoker, used to resolve method indices at generation time.
+     *                  Can be null (calls are dispatched by name then).
+     */
+    protected void defineProxyMethods(CtClass cc, CtClass orig, Method invokable[]) throws Exception {
 //        cc.addMethod( CtMethod.make( "public void __setDispatcher( "+ DispatcherThread.class.getName()+" d ) { __target.__dispatcher(d); }", cc ) );
         CtMethod[] methods = getSortedPublicCtMethods(orig,false);
 
@@ -248,6 +638,7 @@ public class ActorProxyFactory {
                  originalMethod.getName().equals("__unpublish") ||
                  originalMethod.getName().equals("__republished") ||
                  originalMethod.getName().equals("router$clientPing") ||
+                 originalMethod.getName().equals("router$servicePing") ||
                  originalMethod.getName().equals("ping") ||
                  originalMethod.getName().equals("cyclic") ||
                  originalMethod.getName().equals("__submit") ||
@@ -290,14 +681,32 @@ public class ActorProxyFactory {
                         }
                     }
                 }
-                String call = "__target.__enqueueCall( this, \""+method.getName()+"\", args, "+isCallbackCall+" );";
+                // method index and callback arguments are resolved now instead of per call
+                String call = "__target.__enqueueIndexedCall( this, \""+method.getName()+"\", "+
+                    getMethodIndex(invokable, method.getName())+", "+getCallbackArgs(parameterTypes)+"L, args, "+isCallbackCall+" );";
+                long unboxedArgTypes = conversion.length() == 0 ? getUnboxedArgTypes(parameterTypes) : 0;
+                if ( unboxedArgTypes != 0 ) {
+                    // small arity with primitives: no args array, no boxing
+                    call = "__target.__enqueueUnboxedCall( this, \""+method.getName()+"\", "+
+                        getMethodIndex(invokable, method.getName())+", "+getCallbackArgs(parameterTypes)+"L, e, "+isCallbackCall+" );";
+                }
                 if ( ! isVoid ) {
                     call = "return ("+originalMethod.getReturnType().getName()+") (Object)"+call;
                 }
-                String body = "{ Object args[] = $args;" +
-                        conversion +
-                        call+
-                    "}";
+                String body;
+                if ( unboxedArgTypes != 0 ) {
+                    String entryClass = UnboxedCallEntry.class.getName()+"$Of"+parameterTypes.length;
+                    body = "{ "+entryClass+" e = ("+entryClass+") "+CallEntryPool.class.getName()+".obtainUnboxed("+parameterTypes.length+", "+unboxedArgTypes+"L);" +
+                            getUnboxedArgsSource(parameterTypes) +
+                            call +
+                        "}";
+                } else {
+                    String args = parameterTypes.length == 0 ? ActorProxyFactory.class.getName()+".NO_ARGS" : "$args";
+                    body = "{ Object args[] = "+args+";" +
+                            conversion +
+                            call+
+                        "}";
+                }
                 method.setBody(body);
                 cc.addMethod(method);
             } else if ( (method.getModifiers() & (AccessFlag.NATIVE|AccessFlag.FINAL|AccessFlag.STATIC)) == 0 )
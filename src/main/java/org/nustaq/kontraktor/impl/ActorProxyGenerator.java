@@ -0,0 +1,143 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.LoaderClassPath;
+import org.nustaq.kontraktor.Actor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates [Actor]_ActorProxy and [Actor]_ActorInvoker class files at build time, so ActorProxyFactory
+ * does not need to run javassist (and serialize generation) when an actor class is used first. Prebuilt
+ * classes are bound to the actor class version they have been generated from, outdated ones are ignored
+ * at runtime.
+ *
+ * usage: ActorProxyGenerator outputDir (classesDir | actorClassName)...
+ *
+ * A classes directory is scanned for public, concrete Actor subclasses. Run after compilation with the
+ * project classes on the classpath, e.g. using exec-maven-plugin in phase process-classes:
+ * <pre>
+ * &lt;mainClass&gt;org.nustaq.kontraktor.impl.ActorProxyGenerator&lt;/mainClass&gt;
+ * &lt;arguments&gt;&lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;&lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;&lt;/arguments&gt;
+ * </pre>
+ * kontraktor's own build does so with profile 'prebuild-proxies' (mvn -Pprebuild-proxies install), see README
+ * for a complete plugin configuration to be used by downstream projects.
+ * (JS stubs of @GenRemote actors are generated at build time by kontraktor-http's MB2JS already.)
+ */
+public class ActorProxyGenerator {
+
+    final ActorProxyFactory factory = new ActorProxyFactory();
+    final ClassPool pool = new ClassPool(true);
+    final ClassLoader loader;
+
+    public ActorProxyGenerator() {
+        this(Thread.currentThread().getContextClassLoader());
+    }
+
+    public ActorProxyGenerator(ClassLoader loader) {
+        this.loader = loader;
+        pool.appendClassPath(new LoaderClassPath(loader));
+    }
+
+    /**
+     * write proxy and invoker class files of actorClass to outputDir
+     */
+    public void generate(Class<? extends Actor> actorClass, File outputDir) throws Exception {
+        CtClass proxy = factory.makeProxyCtClass(actorClass, pool);
+        CtClass invoker = factory.makeInvokerCtClass(actorClass, pool, ActorInvoker.getInvokableMethods(actorClass));
+        write(proxy, outputDir);
+        write(invoker, outputDir);
+    }
+
+    protected void write(CtClass cc, File outputDir) throws Exception {
+        File file = new File(outputDir, cc.getName().replace('.', File.separatorChar) + ".class");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), cc.toBytecode());
+    }
+
+    /**
+     * @return public concrete actor classes found in a classes directory
+     */
+    public List<Class<? extends Actor>> scan(File classesDir) throws IOException {
+        List<Class<? extends Actor>> res = new ArrayList<>();
+        String root = classesDir.getCanonicalPath();
+        try (Stream<Path> paths = Files.walk(classesDir.toPath())) {
+            paths.forEach( path -> {
+                String name = path.toString();
+                if ( ! name.endsWith(".class") || name.endsWith("_ActorProxy.class") || name.endsWith("_ActorInvoker.class") )
+                    return;
+                String clzName;
+                try {
+                    clzName = path.toFile().getCanonicalPath().substring(root.length() + 1);
+                } catch (IOException e) {
+                    return;
+                }
+                clzName = clzName.substring(0, clzName.length() - ".class".length()).replace(File.separatorChar, '.');
+                Class clz;
+                try {
+                    clz = Class.forName(clzName, false, loader);
+                } catch (Throwable e) {
+                    return;
+                }
+                if ( isProxyable(clz) )
+                    res.add(clz);
+            });
+        }
+        return res;
+    }
+
+    protected boolean isProxyable(Class clz) {
+        int mod = clz.getModifiers();
+        return Actor.class.isAssignableFrom(clz) && clz != Actor.class &&
+                   Modifier.isPublic(mod) && ! Modifier.isAbstract(mod) && ! clz.isAnonymousClass() &&
+                   ( ! clz.isMemberClass() || Modifier.isStatic(mod) );
+    }
+
+    public static void main(String[] args) throws Exception {
+        if ( args.length < 2 ) {
+            System.out.println("usage: ActorProxyGenerator outputDir (classesDir | actorClassName)...");
+            System.exit(1);
+        }
+        ActorProxyGenerator gen = new ActorProxyGenerator();
+        File out = new File(args[0]);
+        int count = 0;
+        for (int i = 1; i < args.length; i++) {
+            File dir = new File(args[i]);
+            List<Class<? extends Actor>> classes = new ArrayList<>();
+            if ( dir.isDirectory() )
+                classes.addAll(gen.scan(dir));
+            else
+                classes.add((Class<? extends Actor>) Class.forName(args[i], false, gen.loader));
+            for (Class<? extends Actor> clz : classes) {
+                gen.generate(clz, out);
+                count++;
+            }
+        }
+        System.out.println("generated proxies for " + count + " actor classes into " + out.getAbsolutePath());
+    }
+
+}
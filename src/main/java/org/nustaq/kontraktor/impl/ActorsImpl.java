@@ -18,8 +18,10 @@ package org.nustaq.kontraktor.impl;
 
 import org.eclipse.jetty.util.ConcurrentArrayQueue;
 import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.ActorProxy;
 import org.nustaq.kontraktor.Actors;
 import org.nustaq.kontraktor.Scheduler;
+import org.nustaq.kontraktor.annotations.BoundedMailbox;
 import org.nustaq.serialization.util.FSTUtil;
 
 import java.lang.reflect.Field;
@@ -32,6 +34,11 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class ActorsImpl {
 
+    /**
+     * block size of the per actor priority lane (grows by blocks)
+     */
+    public static int PRIO_QUEUE_BLOCK_SIZE = 16;
+
     protected ConcurrentLinkedQueue deadLetters = new ConcurrentLinkedQueue();
     protected ActorProxyFactory factory;
 
@@ -58,6 +65,14 @@ public class ActorsImpl {
     }
 
     public Actor makeProxy(Actor realActor, Class<? extends Actor> clz, DispatcherThread disp, int qs) {
+        return makeProxy(realActor, clz, disp, qs, null);
+    }
+
+    /**
+     * @param overflow - if not null, a bounded mailbox is created. If null the BoundedMailbox annotation of the
+     *                 actor class is evaluated.
+     */
+    public Actor makeProxy(Actor realActor, Class<? extends Actor> clz, DispatcherThread disp, int qs, BoundedMailbox.Overflow overflow) {
         try {
             if ( realActor == null ) {
                 if (Modifier.isAbstract(clz.getModifiers())) { // pseudo interface/abstract
@@ -68,15 +83,25 @@ public class ActorsImpl {
                 } else
                     realActor = clz.newInstance();
             }
-            if ( qs <= 100 )
+            BoundedMailbox bounded = clz.getAnnotation(BoundedMailbox.class);
+            if ( overflow == null && bounded != null ) {
+                overflow = bounded.overflow();
+                if ( bounded.size() > 0 )
+                    qs = bounded.size();
+            }
+            if ( disp.getScheduler() instanceof RemoteScheduler )
+                overflow = null; // remote refs are drained by the ref poller, never bound
+            if ( qs <= 100 && (overflow == null || qs < 1) )
                 qs = disp.getScheduler().getDefaultQSize();
 
             qs = FSTUtil.nextPow2(qs);
 
-            realActor.__mailbox =  createQueue(qs);
+            realActor.__mailbox = overflow != null ? createBoundedQueue(qs) : createQueue(qs);
+            realActor.__overflow = overflow;
             realActor.__mailboxCapacity = qs;
             realActor.__mbCapacity = realActor.__mailboxCapacity; // wtf
             realActor.__cbQueue =  createQueue(qs);
+            realActor.__prioQueue = createPriorityQueue();
 
             Actor selfproxy = getFactory().instantiateProxy(clz,realActor);
             realActor.__self = selfproxy;
@@ -85,11 +110,19 @@ public class ActorsImpl {
             selfproxy.__mailbox = realActor.__mailbox;
             selfproxy.__mailboxCapacity = qs;
             selfproxy.__mbCapacity = realActor.__mbCapacity;
+            selfproxy.__overflow = overflow;
             selfproxy.__cbQueue = realActor.__cbQueue;
+            selfproxy.__prioQueue = realActor.__prioQueue;
 
             realActor.__scheduler = disp.getScheduler();
             selfproxy.__scheduler = disp.getScheduler();
 
+            ActorInvoker invoker = getFactory().getInvoker(realActor instanceof ActorProxy ? clz : realActor.getClass());
+            realActor.__invoker = invoker;
+            selfproxy.__invoker = invoker;
+            selfproxy.__ready = realActor.__ready;
+            selfproxy.__runState = realActor.__runState;
+
             realActor.__currentDispatcher = disp;
             selfproxy.__currentDispatcher = disp;
 
@@ -106,14 +139,32 @@ public class ActorsImpl {
         return new ConcurrentArrayQueue<>( Math.max(512, qSize/10) );
     }
 
+    /**
+     * queue for calls to Priority/Deadline methods. Small blocks as it's allocated per actor
+     * but rarely filled.
+     */
+    public Queue createPriorityQueue() {
+        return new ConcurrentArrayQueue<>(PRIO_QUEUE_BLOCK_SIZE);
+    }
+
+    public Queue createBoundedQueue(int qSize) {
+        return new BoundedArrayQueue<>(qSize);
+    }
+
     public Actor newProxy(Class<? extends Actor> clz, Scheduler sched, int qsize) {
         return newProxy(null,clz,sched,qsize);
     }
 
     public Actor newProxy(Actor instance, Class<? extends Actor> clz, Scheduler sched, int qsize) {
+        return newProxy(instance,clz,sched,qsize,null);
+    }
+
+    public Actor newProxy(Actor instance, Class<? extends Actor> clz, Scheduler sched, int qsize, BoundedMailbox.Overflow overflow) {
         if ( sched == null ) {
             if (Thread.currentThread() instanceof DispatcherThread) {
                 sched = ((DispatcherThread) Thread.currentThread()).getScheduler();
+            } else if ( VirtualThreadScheduler.currentLoop() != null ) {
+                sched = VirtualThreadScheduler.currentLoop().getScheduler();
             }
         }
         try {
@@ -121,7 +172,7 @@ public class ActorsImpl {
                 sched = Actors.defaultScheduler.get();
             if ( qsize < 1 )
                 qsize = sched.getDefaultQSize();
-            return makeProxy(instance, clz, sched.assignDispatcher(70), qsize);
+            return makeProxy(instance, clz, sched.assignDispatcher(70), qsize, overflow);
         } catch (Exception e) {
             if ( e instanceof RuntimeException)
                 throw (RuntimeException)e;
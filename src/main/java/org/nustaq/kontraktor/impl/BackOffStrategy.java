@@ -39,6 +39,16 @@ public class BackOffStrategy {
     int parkCount;
     int sleepCount;
     int nanosToPark  = SLEEP_NANOS; // 1 milli (=latency peak on burst ..)
+    boolean busySpin;
+
+    /**
+     * @return a strategy never yielding, parking or sleeping. Gives lowest latency at the price of
+     * one fully used core per dispatcher thread, so only use it with dedicated (pinned, see ThreadAffinity)
+     * cores and less dispatcher threads than cores.
+     */
+    public static BackOffStrategy busySpin() {
+        return new BackOffStrategy().setBusySpin(true);
+    }
 
     public BackOffStrategy() {
         setCounters(SPIN_UNTIL_YIELD, YIELD_UNTIL_PARK, PARK_UNTIL_SLEEP);
@@ -67,7 +77,22 @@ public class BackOffStrategy {
         this.nanosToPark = nanosToPark; return this;
     }
 
+    public boolean isBusySpin() {
+        return busySpin;
+    }
+
+    /**
+     * if true, yield() returns immediately. isYielding/isSleeping still report the counters, so
+     * dispatchers keep doing their housekeeping and blocked senders get reported.
+     */
+    public BackOffStrategy setBusySpin(boolean busySpin) {
+        this.busySpin = busySpin; return this;
+    }
+
     public void yield(int count) {
+        if ( busySpin ) {
+            return;
+        }
         if ( count > sleepCount || count < 0 ) {
             LockSupport.parkNanos(nanosToPark);
         } else if ( count > parkCount) {
@@ -0,0 +1,159 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.impl;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free bounded queue backed by a fixed size array (D. Vyukov's bounded MPMC queue). Used as
+ * bounded actor mailbox. Multiple consumers are supported, so senders can drop the oldest
+ * entry in case the queue is full.
+ *
+ * size() and isEmpty() are O(1) estimations.
+ */
+public class BoundedArrayQueue<T> extends AbstractQueue<T> {
+
+    final Object buffer[];
+    final AtomicLongArray sequence;
+    final int mask;
+    final AtomicLong head = new AtomicLong(); // next to poll
+    final AtomicLong tail = new AtomicLong(); // next to offer
+
+    /**
+     * @param capacity - rounded up to next power of 2
+     */
+    public BoundedArrayQueue(int capacity) {
+        int size = 1;
+        while ( size < capacity )
+            size <<= 1;
+        buffer = new Object[size];
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i,i);
+        }
+        mask = size-1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean offer(T t) {
+        if ( t == null )
+            throw new NullPointerException();
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequence.get(idx) - pos;
+            if ( diff == 0 ) {
+                if ( tail.compareAndSet(pos, pos+1) ) {
+                    buffer[idx] = t;
+                    sequence.lazySet(idx, pos+1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if ( diff < 0 ) {
+                return false; // full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public T poll() {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequence.get(idx) - (pos+1);
+            if ( diff == 0 ) {
+                if ( head.compareAndSet(pos, pos+1) ) {
+                    T res = (T) buffer[idx];
+                    buffer[idx] = null;
+                    sequence.lazySet(idx, pos+mask+1);
+                    return res;
+                }
+                pos = head.get();
+            } else if ( diff < 0 ) {
+                return null; // empty
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public T peek() {
+        long pos = head.get();
+        int idx = (int) (pos & mask);
+        if ( sequence.get(idx) == pos+1 )
+            return (T) buffer[idx];
+        return null;
+    }
+
+    @Override
+    public int size() {
+        long h = head.get();
+        long size = tail.get() - h;
+        return (int) Math.max(0, Math.min(size, buffer.length));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    /**
+     * weakly consistent, elements might be skipped or reported twice under concurrent modification
+     */
+    @Override
+    public Iterator<T> iterator() {
+        long start = head.get();
+        long end = tail.get();
+        return new Iterator<T>() {
+            long pos = start;
+            T next = advance();
+
+            T advance() {
+                while ( pos < end ) {
+                    Object res = buffer[(int) (pos++ & mask)];
+                    if ( res != null )
+                        return (T) res;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if ( next == null )
+                    throw new NoSuchElementException();
+                T res = next;
+                next = advance();
+                return res;
+            }
+        };
+    }
+}
@@ -17,6 +17,7 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor.impl;
 
 import org.nustaq.kontraktor.*;
+import org.nustaq.kontraktor.monitoring.TraceContext;
 import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
 
 import java.lang.reflect.Method;
@@ -26,22 +27,52 @@ import java.lang.reflect.Method;
 */
 public class CallEntry<T> {
 
-    final private Method method;
-    final private Object[] args;
+    private ActorInvoker invoker;
+    private int methodIndex;
+    Object[] args;                        // lazily materialized by UnboxedCallEntry
     private IPromise futureCB;
-    transient final private T target;    // target and target actor are not necessary equal. E.g. target can be callback, but calls are put onto sendingActor Q
+    transient private T target;    // target and target actor are not necessary equal. E.g. target can be callback, but calls are put onto sendingActor Q
     transient private Actor sendingActor; // defines the sender of this message. null in case of outside call
     transient private Actor targetActor;  // defines actor assignment in case target is callback
     transient private boolean onCBQueue;  // determines queue used
     transient private ConnectionRegistry remoteRefRegistry; // remote connection call came from
+    transient CallEntryPool owner;        // pool the entry has been obtained from, null if not pooled
+    transient Object[] cbArgs;            // reused args of pooled callback entries
+    transient long enqueueNanos;          // != 0 if sampled for ActorMetrics or traced
+    transient TraceContext trace;         // parent span if traced, see Tracing
+    transient long deadline;              // System.nanoTime() the call expires at, 0 = none (see Deadline)
+
+    public CallEntry(T target, ActorInvoker invoker, int methodIndex, Object[] args, Actor sender, Actor targetActor, boolean isCB) {
+        init(target, invoker, methodIndex, args, sender, targetActor, isCB);
+    }
 
-    public CallEntry(T target, Method method, Object[] args, Actor sender, Actor targetActor, boolean isCB) {
+    CallEntry init(T target, ActorInvoker invoker, int methodIndex, Object[] args, Actor sender, Actor targetActor, boolean isCB) {
         this.target = target;
-        this.method = method;
+        this.invoker = invoker;
+        this.methodIndex = methodIndex;
         this.args = args;
         this.sendingActor = sender;
         this.targetActor = targetActor;
         this.onCBQueue = isCB;
+        return this;
+    }
+
+    // clear references, so a pooled entry does not keep garbage alive
+    void clear() {
+        target = null;
+        invoker = null;
+        args = null;
+        futureCB = null;
+        sendingActor = null;
+        targetActor = null;
+        remoteRefRegistry = null;
+        enqueueNanos = 0;
+        trace = null;
+        deadline = 0;
+        if ( cbArgs != null ) {
+            cbArgs[0] = null;
+            cbArgs[1] = null;
+        }
     }
 
     public void setRemoteRefRegistry(ConnectionRegistry remoteRefRegistry) {
@@ -58,8 +89,20 @@ public class CallEntry<T> {
     public T getTarget() {
         return target;
     }
+    public ActorInvoker getInvoker() {
+        return invoker;
+    }
+    public int getMethodIndex() {
+        return methodIndex;
+    }
+    /**
+     * resolves the method via the invoker's method table. Avoid on hot paths.
+     */
     public Method getMethod() {
-        return method;
+        return invoker.getMethod(methodIndex);
+    }
+    public String getMethodName() {
+        return invoker.getMethodName(methodIndex);
     }
     public Object[] getArgs() { return args; }
 
@@ -68,7 +111,7 @@ public class CallEntry<T> {
     }
 
     public boolean hasFutureResult() {
-        return method.getReturnType() == IPromise.class;
+        return invoker.hasFutureResult(methodIndex);
     }
 
     public void setFutureCB(IPromise futureCB) {
@@ -81,7 +124,7 @@ public class CallEntry<T> {
     @Override
     public String toString() {
         return "CallEntry{" +
-                   "method=" + method.getName() +
+                   "method=" + getMethodName() +
 //                   ", args=" + Arrays.toString(args) +
                    ", futureCB=" + futureCB +
                    ", target=" + target +
@@ -91,6 +134,14 @@ public class CallEntry<T> {
                    '}';
     }
 
+    public TraceContext getTrace() {
+        return trace;
+    }
+
+    public void setTrace(TraceContext trace) {
+        this.trace = trace;
+    }
+
     public boolean isCallback() {
         return onCBQueue;
     }
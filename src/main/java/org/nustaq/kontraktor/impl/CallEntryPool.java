@@ -0,0 +1,192 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
+
+/**
+ * Recycles CallEntries. Each DispatcherThread owns a pool which is accessed by that thread only:
+ * messages sent from within an actor take an entry from the sender's pool. Once processed, the
+ * receiving dispatcher puts it back into that pool, directly if sender and receiver share the
+ * dispatcher, else by offering it to the owner's bounded return queue, which the owner drains
+ * when running out of entries. So one directional producer/consumer traffic across dispatchers
+ * recycles as well. Entries created by non-dispatcher threads or not fitting into the pool or
+ * return queue are left to the GC.
+ *
+ * Only the CallEntry (and the args array of unboxed and callback entries) is recycled, the
+ * args array of other calls, CallbackWrappers and Promises are still allocated per call.
+ *
+ * Entries put to the queues of remote refs are never pooled, as they are processed by the
+ * remote ref poller.
+ *
+ * Opt-in, set ENABLED to true before creating actors.
+ */
+public class CallEntryPool {
+
+    public static boolean ENABLED = false;
+    public static int MAX_SIZE = 1024;
+
+    final CallEntry pool[] = new CallEntry[MAX_SIZE];
+    int size;
+    // per arity-1, see UnboxedCallEntry
+    final UnboxedCallEntry unboxedPool[][] = new UnboxedCallEntry[UnboxedCallEntry.MAX_ARGS][MAX_SIZE];
+    final int unboxedSize[] = new int[UnboxedCallEntry.MAX_ARGS];
+    // entries released by other dispatchers, multiple producers, polled by the owner only
+    final BoundedArrayQueue<CallEntry> returned = new BoundedArrayQueue<>(MAX_SIZE);
+    long created;
+    long recycled;
+
+    /**
+     * @return pool of the current thread or null if pooling is disabled or current thread is not a dispatcher
+     */
+    public static CallEntryPool get() {
+        if ( ! ENABLED )
+            return null;
+        Thread thread = Thread.currentThread();
+        if ( thread instanceof DispatcherThread )
+            return ((DispatcherThread) thread).callEntryPool; // null if created before enabling
+        return null;
+    }
+
+    /**
+     * create a call entry, pooled if the current thread is a dispatcher
+     */
+    public static CallEntry obtain(Object target, ActorInvoker invoker, int methodIndex, Object[] args, Actor sender, Actor targetActor, boolean isCB, ConnectionRegistry reg) {
+        CallEntryPool pool = get();
+        CallEntry res = pool != null ? pool.take() : new CallEntry(target, invoker, methodIndex, args, sender, targetActor, isCB);
+        if ( pool != null )
+            res.init(target, invoker, methodIndex, args, sender, targetActor, isCB);
+        res.setRemoteRefRegistry(reg);
+        return res;
+    }
+
+    /**
+     * create a call entry completing a callback, args array is recycled together with the entry
+     */
+    public static CallEntry obtainCallback(Callback target, Object result, Object error, Actor sender, Actor targetActor) {
+        CallEntryPool pool = get();
+        if ( pool == null )
+            return new CallEntry(target, ActorInvoker.CALLBACK, 0, new Object[]{result,error}, sender, targetActor, true);
+        CallEntry res = pool.take();
+        Object args[] = res.cbArgs;
+        if ( args == null )
+            args = res.cbArgs = new Object[2];
+        args[0] = result;
+        args[1] = error;
+        return res.init(target, ActorInvoker.CALLBACK, 0, args, sender, targetActor, true);
+    }
+
+    /**
+     * create an entry for a generated proxy storing primitive args unboxed
+     */
+    public static UnboxedCallEntry obtainUnboxed(int arity, long argTypes) {
+        CallEntryPool pool = get();
+        if ( pool == null )
+            return UnboxedCallEntry.create(arity, argTypes);
+        UnboxedCallEntry res = pool.takeUnboxed(arity);
+        res.argTypes = argTypes;
+        return res;
+    }
+
+    UnboxedCallEntry takeUnboxed(int arity) {
+        if ( unboxedSize[arity-1] == 0 )
+            drainReturned();
+        UnboxedCallEntry free[] = unboxedPool[arity-1];
+        int n = unboxedSize[arity-1];
+        if ( n > 0 ) {
+            UnboxedCallEntry res = free[--n];
+            free[n] = null;
+            unboxedSize[arity-1] = n;
+            return res;
+        }
+        created++;
+        UnboxedCallEntry res = UnboxedCallEntry.create(arity, 0);
+        res.owner = this;
+        return res;
+    }
+
+    CallEntry take() {
+        if ( size == 0 )
+            drainReturned();
+        if ( size > 0 ) {
+            CallEntry res = pool[--size];
+            pool[size] = null;
+            return res;
+        }
+        created++;
+        CallEntry res = new CallEntry(null, null, 0, null, null, null, false);
+        res.owner = this;
+        return res;
+    }
+
+    /**
+     * put back an entry after it has been processed. Must only be called by the dispatcher owning
+     * this pool, entries of other pools are handed back via their return queue
+     */
+    void release(CallEntry entry) {
+        CallEntryPool owner = entry.owner;
+        if ( owner == null )
+            return;
+        entry.clear();
+        if ( owner != this )
+            owner.returned.offer(entry); // dropped if full
+        else
+            put(entry);
+    }
+
+    /**
+     * move entries released by other dispatchers to the local pool
+     */
+    void drainReturned() {
+        CallEntry entry;
+        while ( (entry = returned.poll()) != null ) {
+            put(entry);
+        }
+    }
+
+    void put(CallEntry entry) {
+        if ( entry instanceof UnboxedCallEntry ) {
+            int idx = ((UnboxedCallEntry) entry).getArity() - 1;
+            if ( unboxedSize[idx] < unboxedPool[idx].length ) {
+                unboxedPool[idx][unboxedSize[idx]++] = (UnboxedCallEntry) entry;
+                recycled++;
+            }
+            return;
+        }
+        if ( size < pool.length ) {
+            pool[size++] = entry;
+            recycled++;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of entries allocated by this pool
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public long getRecycled() {
+        return recycled;
+    }
+}
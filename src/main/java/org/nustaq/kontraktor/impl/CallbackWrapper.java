@@ -23,7 +23,6 @@ import org.nustaq.kontraktor.util.Log;
 import org.nustaq.serialization.util.*;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -67,16 +66,6 @@ import java.util.function.Supplier;
  */
 public class CallbackWrapper<T> implements IPromise<T>, Serializable {
 
-    static Method receiveRes;
-
-    static {
-        try {
-            receiveRes = Callback.class.getMethod("complete", new Class[]{Object.class,Object.class});
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-    }
-
     final Actor targetActor;
     Callback<T> realCallback;
 
@@ -96,13 +85,9 @@ public class CallbackWrapper<T> implements IPromise<T>, Serializable {
         }
         if ( targetActor == null ) {
             // call came from outside the actor world => use current thread => blocking the callback blocks actor, don't !
-            try {
-                receiveRes.invoke(realCallback, result, error);
-            } catch (Exception e) {
-                FSTUtil.rethrow(e);
-            }
+            realCallback.complete(result, error);
         } else {
-            CallEntry ce = new CallEntry( realCallback, receiveRes, new Object[]{result,error}, Actor.sender.get(), targetActor, true);
+            CallEntry ce = CallEntryPool.obtainCallback( realCallback, result, error, Actor.sender.get(), targetActor);
             targetActor.__scheduler.put2QueuePolling(targetActor.__cbQueue, true, ce, targetActor);
         }
     }
@@ -0,0 +1,102 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.util.Log;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins dispatcher threads to cpus on Linux using taskset (no native library required). Thread i of a
+ * scheduler is bound to cpus[i % cpus.length].
+ *
+ * On NUMA machines pass cpus of a single node (see lscpu) to schedulers whose actors talk to each
+ * other a lot, so queues and actor state stay in that node's caches and memory. Combine with
+ * BackOffStrategy.busySpin() for lowest latency.
+ *
+ * Binding is best effort, if unsupported a warning is logged once and threads run unpinned.
+ */
+public class CpuAffinity implements ThreadAffinity {
+
+    public static String TASKSET = "taskset";
+    static volatile boolean unsupported;
+
+    final int cpus[];
+
+    public CpuAffinity(int ... cpus) {
+        if ( cpus.length == 0 )
+            throw new IllegalArgumentException("no cpus given");
+        this.cpus = cpus;
+    }
+
+    @Override
+    public void bind(DispatcherThread thread, int index) {
+        if ( unsupported )
+            return;
+        int cpu = cpus[index % cpus.length];
+        long tid = currentTid();
+        if ( tid < 0 ) {
+            unsupported("cannot determine native thread id");
+            return;
+        }
+        try {
+            Process proc = new ProcessBuilder(TASKSET, "-p", "-c", "" + cpu, "" + tid).redirectErrorStream(true).start();
+            if ( ! proc.waitFor(5, TimeUnit.SECONDS) ) {
+                proc.destroy();
+                Log.Warn(this, "timeout binding " + thread.getName() + " to cpu " + cpu);
+            } else if ( proc.exitValue() != 0 ) {
+                Log.Warn(this, "failed to bind " + thread.getName() + " to cpu " + cpu + ", exit code " + proc.exitValue());
+            }
+        } catch (Exception e) {
+            unsupported(e.toString());
+        }
+    }
+
+    void unsupported(String reason) {
+        if ( ! unsupported ) {
+            unsupported = true;
+            Log.Warn(this, "thread affinity not supported (" + reason + "), dispatchers run unpinned");
+        }
+    }
+
+    /**
+     * @return native id of the calling thread or -1
+     */
+    public static long currentTid() {
+        File stat = new File("/proc/thread-self/stat");
+        if ( ! stat.exists() )
+            return -1;
+        try {
+            String s = new String(Files.readAllBytes(stat.toPath()));
+            return Long.parseLong(s.substring(0, s.indexOf(' ')));
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    public int[] getCpus() {
+        return cpus;
+    }
+
+    @Override
+    public String toString() {
+        return "CpuAffinity" + Arrays.toString(cpus);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+package org.nustaq.kontraktor.impl;
+
+/**
+ * error a promise is rejected with in case a call has not been processed within its deadline
+ * (see annotations.Deadline)
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public static DeadlineExceededException Instance = new DeadlineExceededException();
+
+    public DeadlineExceededException() {
+        super("deadline exceeded");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -17,9 +17,13 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor.impl;
 
 import org.nustaq.kontraktor.*;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
 import org.nustaq.kontraktor.monitoring.Monitorable;
+import org.nustaq.kontraktor.monitoring.Span;
+import org.nustaq.kontraktor.monitoring.TraceContext;
+import org.nustaq.kontraktor.monitoring.Tracing;
+import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
 import org.nustaq.kontraktor.util.Log;
-import org.nustaq.serialization.util.FSTUtil;
 
 import java.lang.reflect.*;
 import java.util.*;
@@ -74,6 +78,28 @@ public class DispatcherThread extends Thread implements Monitorable {
     public static int QUEUE_PERCENTAGE_TRIGGERING_REBALANCE = 50;      // if queue is X % full, consider rebalance
     public static int MILLIS_AFTER_CREATION_BEFORE_REBALANCING = 2; // give caches a chance to get things going before rebalancing
 
+    /**
+     * if true, new dispatchers only poll actors signaled as ready by enqueuing threads instead of polling all
+     * actor queues round robin. Idle dispatchers are unparked on enqueue, so they can sleep longer.
+     */
+    public static boolean SIGNAL_DRIVEN = false;
+    /**
+     * max park time of an idle signal driven dispatcher. Wake up is signaled, the timeout is only used
+     * for housekeeping (auto shutdown, pending adds)
+     */
+    public static int SIGNAL_DRIVEN_PARK_NANOS = 200*1000*1000;
+
+    /**
+     * scheduling quantum: max number of messages processed in a row for an actor before moving on to
+     * the next one. Callbacks are still drained before mailbox messages. 1 (default) = strict round robin per
+     * message, raise (e.g. 16) to amortize per message overhead, see setQuantum.
+     */
+    public static int QUANTUM_MESSAGES = 1;
+    /**
+     * scheduling quantum: max time spent on an actor in a row. 0 (default) = limit by message count only
+     */
+    public static int QUANTUM_NANOS = 0;
+
     public static AtomicInteger activeDispatchers = new AtomicInteger(0);
 
     public static final int POLL_ALL_Q = 0;
@@ -81,7 +107,7 @@ public class DispatcherThread extends Thread implements Monitorable {
 
     private Scheduler scheduler;
 
-    private Actor actors[] = new Actor[0]; // always refs
+    private volatile Actor actors[] = new Actor[0]; // always refs, read by stealing dispatchers
     ConcurrentLinkedQueue<Actor> toAdd = new ConcurrentLinkedQueue<>();
 
     protected boolean shutDown = false;
@@ -92,14 +118,44 @@ public class DispatcherThread extends Thread implements Monitorable {
     volatile boolean isIsolated = false;
     protected volatile boolean autoShutDown = true;
 
+    // signal driven mode
+    protected final boolean signalDriven;
+    protected final ConcurrentLinkedQueue<Actor> readyQueue = new ConcurrentLinkedQueue<>(); // multi producer
+    protected final ArrayDeque<Actor> runQueue = new ArrayDeque<>(); // accessed by this thread only
+    protected volatile boolean sleeping;
+
+    // stealing, see WorkStealingScheduler. Requires signal driven mode
+    protected boolean claimActors; // claim actors while processing, so they can't be moved away
+    protected final ConcurrentLinkedQueue<Actor> stolen = new ConcurrentLinkedQueue<>(); // taken over by others
+    Actor claimed; // claimed by the last pollReady, released once its batch has been processed
+
+    // scheduling quantum
+    protected int quantumMessages = QUANTUM_MESSAGES;
+    protected long quantumNanos = QUANTUM_NANOS;
+    // quantum usage, written by this thread only
+    protected long batchCount;
+    protected long batchedMessages;
+    protected long quantumExpiredCount;
+    int pollSequence; // detects nested polls
+
+    // applied by this thread, see setAffinity
+    protected volatile ThreadAffinity pendingAffinity;
+    protected volatile int affinityIndex;
+
+    final CallEntryPool callEntryPool = CallEntryPool.ENABLED ? new CallEntryPool() : null;
+
     public DispatcherThread(Scheduler scheduler) {
-        this.scheduler = scheduler;
-        setName("DispatcherThread "+dtcount.incrementAndGet());
+        this(scheduler, true, SIGNAL_DRIVEN);
     }
 
     public DispatcherThread(Scheduler scheduler, boolean autoShutDown) {
+        this(scheduler, autoShutDown, SIGNAL_DRIVEN);
+    }
+
+    public DispatcherThread(Scheduler scheduler, boolean autoShutDown, boolean signalDriven) {
         this.autoShutDown = autoShutDown;
         this.scheduler = scheduler;
+        this.signalDriven = signalDriven;
         setName("DispatcherThread "+dtcount.incrementAndGet());
     }
 
@@ -125,6 +181,183 @@ public class DispatcherThread extends Thread implements Monitorable {
         if ( thisActor != null ) // pseudo interface
             thisActor.__currentDispatcher = this;
         toAdd.offer(ref);
+        if ( sleeping )
+            LockSupport.unpark(this);
+    }
+
+    /**
+     * mark an actor as being processed by this thread (nesting polls increment), fails if it is
+     * currently moved to another dispatcher
+     */
+    protected static boolean claim(Actor actor) {
+        for (;;) {
+            int state = actor.__runState.get();
+            if ( state < 0 )
+                return false;
+            if ( actor.__runState.compareAndSet(state, state + 1) )
+                return true;
+        }
+    }
+
+    protected static void release(Actor actor) {
+        actor.__runState.decrementAndGet();
+    }
+
+    /**
+     * @return an actor of victim having pending messages which is not processed currently, null if victim
+     * is not busy with at least one other actor (there is nothing to gain by moving its only busy actor).
+     */
+    protected static Actor stealCandidate(DispatcherThread victim) {
+        Actor candidate = null;
+        int busy = 0;
+        final Actor actors[] = victim.actors;
+        for (int i = 0; i < actors.length; i++) {
+            Actor actor = actors[i];
+            if ( actor.__stopped || actor.__currentDispatcher != victim )
+                continue;
+            boolean running = actor.__runState.get() != 0;
+            if ( running || hasPending(actor, POLL_ALL_Q) ) {
+                busy++;
+                if ( ! running )
+                    candidate = actor;
+            }
+        }
+        return busy > 1 ? candidate : null;
+    }
+
+    /**
+     * take over an actor having pending messages from another (busy) dispatcher. Must be called from
+     * this thread, both dispatchers have to be signal driven and claim their actors. The actor's queued
+     * messages are processed by this thread afterwards, ordering and single threadedness are kept as an
+     * actor is only moved if it is not processed (also not by a nested poll of an awaiting actor).
+     *
+     * @return true if an actor has been moved to this dispatcher
+     */
+    protected boolean steal(DispatcherThread victim) {
+        Actor actor = stealCandidate(victim);
+        if ( actor == null || ! actor.__runState.compareAndSet(0, -1) )
+            return false;
+        try {
+            if ( actor.__currentDispatcher != victim || actor.__stopped )
+                return false; // moved or stopped in between
+            actor.__currentDispatcher = this;
+            Actor thisActor = actor.getActor();
+            if ( thisActor != null )
+                thisActor.__currentDispatcher = this;
+            if ( ! contains(actors, actor) ) { // might have been stolen back before victim removed it
+                Actor newActors[] = Arrays.copyOf(actors, actors.length + 1);
+                newActors[actors.length] = actor;
+                actors = newActors;
+            }
+            victim.stolen.offer(actor);
+            // a signal still queued at the victim is forwarded, see pollReady
+            actor.__ready.set(true);
+            runQueue.add(actor);
+            return true;
+        } finally {
+            actor.__runState.set(0);
+        }
+    }
+
+    private static boolean contains(Actor actors[], Actor actor) {
+        for (int i = 0; i < actors.length; i++) {
+            if ( actors[i] == actor )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * set max number of messages and time spent on an actor in a row (in between the actor is not
+     * interleaved with other actors of this dispatcher). Lower values improve fairness, higher values
+     * amortize per message overhead.
+     */
+    public void setQuantum(int maxMessages, long maxNanos) {
+        quantumMessages = Math.max(1,maxMessages);
+        quantumNanos = maxNanos;
+    }
+
+    public int getQuantumMessages() {
+        return quantumMessages;
+    }
+
+    public long getQuantumNanos() {
+        return quantumNanos;
+    }
+
+    /**
+     * @return number of polls processing at least one message
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getBatchedMessages() {
+        return batchedMessages;
+    }
+
+    /**
+     * @return number of batches ended by the quantum limits with messages still pending
+     */
+    public long getQuantumExpiredCount() {
+        return quantumExpiredCount;
+    }
+
+    /**
+     * bind this thread using the given affinity. As dispatchers are started by their scheduler's
+     * constructor, binding is done asynchronously by the dispatcher thread itself at its next
+     * schedule tick or idle poll.
+     *
+     * @param index - index of this thread within its scheduler
+     */
+    public void setAffinity(ThreadAffinity affinity, int index) {
+        affinityIndex = index;
+        pendingAffinity = affinity;
+        if ( sleeping )
+            LockSupport.unpark(this);
+    }
+
+    public int getAffinityIndex() {
+        return affinityIndex;
+    }
+
+    protected void applyAffinity() {
+        ThreadAffinity affinity = pendingAffinity;
+        if ( affinity != null ) {
+            pendingAffinity = null;
+            try {
+                affinity.bind(this, affinityIndex);
+            } catch (Throwable th) {
+                Log.Warn(this, th, "failed to apply thread affinity");
+            }
+        }
+    }
+
+    public boolean isSignalDriven() {
+        return signalDriven;
+    }
+
+    /**
+     * mark an actor as having pending messages. Called by enqueuing threads (any thread) after
+     * putting a message to one of the actor's queues. NOP if this dispatcher is polling.
+     */
+    public void signalReady(Actor actor) {
+        if ( signalDriven && actor.__ready.compareAndSet(false, true) ) {
+            readyQueue.offer(actor);
+            if ( sleeping )
+                LockSupport.unpark(this);
+        }
+    }
+
+    /**
+     * signal to the current dispatcher of an actor
+     */
+    public static void signalReadyTo(Actor actor) {
+        Thread dispatcher = actor.__currentDispatcher;
+        if ( dispatcher instanceof DispatcherThread )
+            ((DispatcherThread) dispatcher).signalReady(actor);
+        else if ( dispatcher != null && actor.__ready.compareAndSet(false, true) )
+            LockSupport.unpark(dispatcher); // actor has its own thread, see VirtualThreadScheduler
     }
 
     public boolean isAutoShutDown() {
@@ -159,6 +392,7 @@ public class DispatcherThread extends Thread implements Monitorable {
         boolean isShutDown = false;
         activeDispatchers.incrementAndGet();
         try {
+            applyAffinity();
             while( ! isShutDown ) {
                 try {
                     if ( pollQs() ) {
@@ -171,17 +405,19 @@ public class DispatcherThread extends Thread implements Monitorable {
                             emptySinceLastCheck = 0;
                             scheduleTickTime = System.nanoTime();
                             schedulePendingAdds();
+                            applyAffinity();
                         }
                     }
                     else {
                         emptyCount++;
                         emptySinceLastCheck++;
-                        scheduler.pollDelay(emptyCount);
+                        idle(emptyCount);
                         if (shutDown) // access volatile only when idle
                             isShutDown = true;
                         if ( scheduler.getBackoffStrategy().isSleeping(emptyCount) ) {
                             scheduleTickTime = 0;
                             schedulePendingAdds();
+                            applyAffinity();
                             if ( System.currentTimeMillis()-created > 5000 ) {
                                 if ( autoShutDown && actors.length == 0 && toAdd.peek() == null) {
                                     shutDown();
@@ -213,6 +449,13 @@ public class DispatcherThread extends Thread implements Monitorable {
      * add actors which have been marked to be scheduled on this
      */
     public void schedulePendingAdds() {
+        Actor s;
+        while ( (s = stolen.poll()) != null ) {
+            if ( s.__currentDispatcher != this && contains(actors, s) )
+                removeActorImmediate(s);
+        }
+        if ( toAdd.peek() == null ) // called on each idle poll by busy spinning dispatchers
+            return;
         ArrayList<Actor> newOnes = new ArrayList<>();
         Actor a;
         while ( (a=toAdd.poll()) != null ) {
@@ -224,12 +467,36 @@ public class DispatcherThread extends Thread implements Monitorable {
             for (int i = 0; i < newOnes.size(); i++) {
                 Actor actor = newOnes.get(i);
                 newQueue[actors.length+i] = actor;
+                if ( signalDriven && actor.__ready.compareAndSet(false, true) )
+                    runQueue.add(actor); // might have received messages before being added
             }
             actors = newQueue;
         }
 
     }
 
+    /**
+     * poll the next message of an actor: callbacks first, then the priority lane, then the mailbox.
+     * @param queues - POLL_CB_Q only polls callbacks
+     */
+    public static CallEntry pollActor(Actor actor, int queues) {
+        CallEntry res = (CallEntry) actor.__cbQueue.poll();
+        if ( res == null && queues == POLL_ALL_Q ) {
+            res = (CallEntry) actor.__prioQueue.poll();
+            if ( res == null )
+                res = (CallEntry) actor.__mailbox.poll();
+        }
+        return res;
+    }
+
+    /**
+     * @return true if pollActor(actor,queues) would find a message
+     */
+    public static boolean hasPending(Actor actor, int queues) {
+        return ! actor.__cbQueue.isEmpty() ||
+               (queues == POLL_ALL_Q && (! actor.__prioQueue.isEmpty() || ! actor.__mailbox.isEmpty()));
+    }
+
     // poll all actors in queue arr round robin
     int currentPolledActor = 0;
     protected CallEntry pollQueues(Actor[] actors, int queues) {
@@ -244,9 +511,7 @@ public class DispatcherThread extends Thread implements Monitorable {
                 currentPolledActor = 0;
             }
             Actor actor2poll = actors[currentPolledActor];
-            res = (CallEntry) actor2poll.__cbQueue.poll();
-            if ( res == null && queues == POLL_ALL_Q)
-                res = (CallEntry) actor2poll.__mailbox.poll();
+            res = pollActor(actor2poll, queues);
             currentPolledActor++;
             count++;
         }
@@ -254,6 +519,65 @@ public class DispatcherThread extends Thread implements Monitorable {
     }
 
 
+    // signal driven: poll actors signaled ready round robin
+    protected CallEntry pollReady(int queues) {
+        Actor actor;
+        while ( (actor = readyQueue.poll()) != null ) {
+            runQueue.add(actor);
+        }
+        int count = runQueue.size();
+        while ( count-- > 0 ) {
+            actor = runQueue.poll();
+            if ( actor.__currentDispatcher != this ) {
+                // moved to another dispatcher, we got an outdated signal
+                actor.__ready.set(false);
+                signalReadyTo(actor);
+                continue;
+            }
+            if ( actor.__stopped ) {
+                continue; // removed, stays marked ready so it won't be signaled again
+            }
+            if ( claimActors ) {
+                if ( ! claim(actor) ) {
+                    runQueue.add(actor); // currently moved, recheck owner later
+                    continue;
+                }
+                if ( actor.__currentDispatcher != this ) { // moved after checking above
+                    release(actor);
+                    actor.__ready.set(false);
+                    signalReadyTo(actor);
+                    continue;
+                }
+            }
+            CallEntry res = pollActor(actor, queues);
+            if ( claimActors ) {
+                if ( res != null )
+                    claimed = actor;
+                else
+                    release(actor);
+            }
+            if ( res != null ) {
+                if ( hasPending(actor, POLL_ALL_Q) )
+                    runQueue.add(actor);
+                else
+                    clearReady(actor);
+                return res;
+            }
+            if ( queues != POLL_ALL_Q && hasPending(actor, POLL_ALL_Q) )
+                runQueue.add(actor); // only callbacks requested, keep ready
+            else
+                clearReady(actor);
+        }
+        return null;
+    }
+
+    private void clearReady(Actor actor) {
+        actor.__ready.set(false);
+        // message might have been added after checking queues and before clearing the flag
+        if ( hasPending(actor, POLL_ALL_Q) && actor.__ready.compareAndSet(false, true) )
+            runQueue.add(actor);
+    }
+
     // return true if msg was avaiable
     long created = System.currentTimeMillis();
 
@@ -273,60 +597,161 @@ public class DispatcherThread extends Thread implements Monitorable {
      * @return false if no message could be polled
      */
     public boolean pollQs(Actor actors[], int queues) {
-        CallEntry callEntry = pollQueues(actors,queues);
-        if (callEntry != null) {
-            try {
-                // before calling the actor method, set current sender
-                // to target, so for each method/callback invoked by the actor method,
-                // sender has correct value
-                Actor targetActor = callEntry.getTargetActor();
-                Actor.sender.set(targetActor);
-                Actor.connection.set(callEntry.getRemoteRefRegistry());
-                if (targetActor.__stopped) {
-                    targetActor.__addDeadLetter(targetActor,callEntry.getMethod().getName());
-                    return true;
+        CallEntry callEntry = signalDriven ? pollReady(queues) : pollQueues(actors,queues);
+        if (callEntry == null)
+            return false;
+        Actor claimedActor = claimed;
+        if ( claimedActor == null )
+            return processBatch(callEntry, queues);
+        claimed = null;
+        try {
+            return processBatch(callEntry, queues);
+        } finally {
+            release(claimedActor);
+        }
+    }
+
+    /**
+     * process a polled message and up to quantum - 1 subsequent messages of the same actor
+     * @return false if message processing failed
+     */
+    protected boolean processBatch(CallEntry callEntry, int queues) {
+        // before calling the actor method, set current sender
+        // to target, so for each method/callback invoked by the actor method,
+        // sender has correct value. Done once per batch.
+        Actor targetActor = callEntry.getTargetActor();
+        ConnectionRegistry registry = callEntry.getRemoteRefRegistry();
+        Actor.sender.set(targetActor);
+        Actor.connection.set(registry);
+        int seq = ++pollSequence;
+        boolean res = processMessage(callEntry, targetActor);
+        if ( callEntryPool != null )
+            callEntryPool.release(callEntry);
+        int count = 1;
+        batchCount++;
+        if ( quantumMessages > 1 ) {
+            long start = quantumNanos > 0 ? System.nanoTime() : 0;
+            // drain the same actor, callbacks first, then priority lane
+            while ( res && ! targetActor.__stopped ) {
+                if ( count >= quantumMessages || (quantumNanos > 0 && System.nanoTime() - start >= quantumNanos) ) {
+                    if ( hasPending(targetActor, queues) )
+                        quantumExpiredCount++;
+                    break;
                 }
-                Object invoke = null;
-                try {
-                    invoke = invoke(callEntry);
-                } catch (IllegalArgumentException iae) {
-                    // FIXME: boolean is translated wrong by minbin .. this fix is expensive
-                    final Class<?>[] parameterTypes = callEntry.getMethod().getParameterTypes();
-                    final Object[] args = callEntry.getArgs();
-                    if ( args.length == parameterTypes.length ) {
-                        for (int i = 0; i < args.length; i++) {
-                            Object arg = args[i];
-                            if ( (parameterTypes[i] == boolean.class || parameterTypes[i] == Boolean.class) &&
-                                 arg instanceof Byte ) {
-                                args[i] = ((Byte) arg).intValue()!=0;
-                            }
-                        }
-                        invoke = invoke(callEntry);
-                    } else {
-                        System.out.println("mismatch when invoking method " + callEntry);
-                        for (int i = 0; i < callEntry.getArgs().length; i++) {
-                            Object o = callEntry.getArgs()[i];
-                            System.out.println("arg " + i + " " + o + (o != null ? " " + o.getClass().getSimpleName() : "") + ",");
-                        }
-                        System.out.println();
-                        throw iae;
-                    }
+                callEntry = pollActor(targetActor, queues);
+                if ( callEntry == null )
+                    break;
+                if ( seq != pollSequence ) { // nested poll (await, yield) has overwritten threadlocals
+                    seq = pollSequence;
+                    Actor.sender.set(targetActor);
+                    Actor.connection.set(registry);
                 }
-                if (callEntry.getFutureCB() != null) {
-                    final IPromise futureCB = callEntry.getFutureCB();   // the future of caller side
-                    final Promise invokeResult = (Promise) invoke;  // the future returned sync from call
-                    if ( invokeResult != null ) { // if return null instead a promise, method is handled like void
-                        invokeResult.then( futureCB );
-                    }
+                if ( callEntry.getTargetActor() != targetActor ) { // ref vs. real actor
+                    targetActor = callEntry.getTargetActor();
+                    Actor.sender.set(targetActor);
+                }
+                if ( callEntry.getRemoteRefRegistry() != registry ) {
+                    registry = callEntry.getRemoteRefRegistry();
+                    Actor.connection.set(registry);
                 }
+                res = processMessage(callEntry, callEntry.getTargetActor());
+                if ( callEntryPool != null )
+                    callEntryPool.release(callEntry);
+                count++;
+            }
+        }
+        batchedMessages += count;
+        return res;
+    }
+
+    /**
+     * invoke a single message, sender and connection threadlocals have to be set already.
+     * @return false if message processing failed
+     */
+    protected boolean processMessage(CallEntry callEntry, Actor targetActor) {
+        if ( Tracing.ENABLED )
+            return processTraced(callEntry, targetActor);
+        return processMeasured(callEntry, targetActor);
+    }
+
+    /**
+     * process as child span of the message's trace context (if any), which is current while processing
+     */
+    protected boolean processTraced(CallEntry callEntry, Actor targetActor) {
+        TraceContext parent = callEntry.trace;
+        if ( parent == null ) {
+            TraceContext prev = Tracing.enter(null);
+            try {
+                return processMeasured(callEntry, targetActor);
+            } finally {
+                Tracing.exit(prev);
+            }
+        }
+        TraceContext span = parent.newChild();
+        String method = callEntry.isCallback() ? ActorMetrics.CALLBACKS : callEntry.getMethodName();
+        long enqueued = callEntry.enqueueNanos;
+        long startMicros = Tracing.epochMicros();
+        long start = System.nanoTime();
+        boolean res = false;
+        TraceContext prev = Tracing.enter(span);
+        try {
+            res = processMeasured(callEntry, targetActor);
+        } finally {
+            Tracing.exit(prev);
+            long end = System.nanoTime();
+            Tracing.record(new Span(span, parent.getSpanId(), Tracing.actorName(targetActor), method, startMicros,
+                enqueued != 0 ? start - enqueued : -1, end - start, ! res));
+        }
+        return res;
+    }
+
+    protected boolean processMeasured(CallEntry callEntry, Actor targetActor) {
+        if ( ! ActorMetrics.ENABLED )
+            return invokeMessage(callEntry, targetActor);
+        // resolve name before invoking, pooled callback entries are cleared by then
+        ActorMetrics.MethodMetrics metrics = ActorMetrics.of(targetActor).method(callEntry.isCallback() ? ActorMetrics.CALLBACKS : callEntry.getMethodName());
+        long enqueued = callEntry.enqueueNanos;
+        if ( enqueued == 0 ) {
+            boolean res = invokeMessage(callEntry, targetActor);
+            metrics.processed(res);
+            return res;
+        }
+        long start = System.nanoTime();
+        boolean res = invokeMessage(callEntry, targetActor);
+        metrics.sampled(start - enqueued, System.nanoTime() - start);
+        metrics.processed(res);
+        return res;
+    }
+
+    protected boolean invokeMessage(CallEntry callEntry, Actor targetActor) {
+        try {
+            if (targetActor.__stopped) {
+                targetActor.__addDeadLetter(targetActor,callEntry.getMethodName());
                 return true;
-            } catch ( Throwable e) {
-                if ( e instanceof InvocationTargetException && ((InvocationTargetException) e).getTargetException() == InternalActorStoppedException.Instance ) {
+            }
+            if ( callEntry.deadline != 0 && System.nanoTime() - callEntry.deadline > 0 ) {
+                expireMessage(callEntry, targetActor);
+                return true;
+            }
+            Object invoke = invoke(callEntry);
+            if (callEntry.getFutureCB() != null) {
+                final IPromise futureCB = callEntry.getFutureCB();   // the future of caller side
+                final Promise invokeResult = (Promise) invoke;  // the future returned sync from call
+                if ( invokeResult != null ) { // if return null instead a promise, method is handled like void
+                    invokeResult.then( futureCB );
+                }
+            }
+            return true;
+        } catch ( Throwable e) {
+            if ( e instanceof InvocationTargetException ) {
+                e = ((InvocationTargetException) e).getTargetException();
+            }
+            if ( e == InternalActorStoppedException.Instance ) {
 
-                    // fixme: rare classcast exception with elasticscheduler seen here when stop is called from a callback ..
-                    Actor actor = (Actor) callEntry.getTarget();
-                    actor.__stopped = true;
-                    removeActorImmediate(actor.getActorRef());
+                // fixme: rare classcast exception with elasticscheduler seen here when stop is called from a callback ..
+                Actor actor = (Actor) callEntry.getTarget();
+                actor.__stopped = true;
+                removeActorImmediate(actor.getActorRef());
 // FIXME: Many Testcases fail if uncommented. Rethink
 //                    if (callEntry.getFutureCB() != null)
 //                        callEntry.getFutureCB().complete(null, e);
@@ -336,48 +761,71 @@ public class DispatcherThread extends Thread implements Monitorable {
 //                        callEntry.getFutureCB().complete(null, e);
 //                    else
 //                        Log.Warn(this,e,"");
-                    return true;
-                }
-                if ( e instanceof InvocationTargetException ) {
-                    e = e.getCause();
-                }
-                if (callEntry.getFutureCB() != null) {
-                    Log.Warn(this, e, "unhandled exception in message: '"+callEntry+"'.returned catched exception to future " + e + " set DispatcherThread.DUMP_CATCHED to true in order to dump stack.");
-                    if ( DUMP_CATCHED ) {
-                        e.printStackTrace();
-                    }
-                    callEntry.getFutureCB().complete(null, e);
+                return true;
+            }
+            if (callEntry.getFutureCB() != null) {
+                Log.Warn(this, e, "unhandled exception in message: '"+callEntry+"'.returned catched exception to future " + e + " set DispatcherThread.DUMP_CATCHED to true in order to dump stack.");
+                if ( DUMP_CATCHED ) {
+                    e.printStackTrace();
                 }
-                else
-                    Log.Warn(this,e,"");
+                callEntry.getFutureCB().complete(null, e);
             }
+            else
+                Log.Warn(this,e,"");
         }
         return false;
     }
 
-    private Object invoke(CallEntry poll) throws IllegalAccessException, InvocationTargetException {
-        final Object target = poll.getTarget();
-        Object invoke = null;
-        Method method = poll.getMethod();
-        try {
-            invoke = method.invoke(target, poll.getArgs());
-        } catch (IllegalArgumentException iea) {
-            System.err.println("method:"+ method.toString());
-            System.err.println("arguments given:"+Arrays.toString(poll.getArgs()));
-            FSTUtil.rethrow(iea);
-        }
-        return invoke;
+    /**
+     * drop a call queued longer than its Deadline, a returned promise is rejected
+     */
+    protected void expireMessage(CallEntry callEntry, Actor targetActor) {
+        targetActor.__addDeadLetter(targetActor, callEntry.getMethodName());
+        if ( callEntry.getFutureCB() != null )
+            callEntry.getFutureCB().complete(null, DeadlineExceededException.Instance);
+    }
+
+    private Object invoke(CallEntry poll) throws Exception {
+        if ( poll instanceof UnboxedCallEntry )
+            return poll.getInvoker().invokeUnboxed(poll.getTarget(), poll.getMethodIndex(), (UnboxedCallEntry) poll);
+        return poll.getInvoker().invoke(poll.getTarget(), poll.getMethodIndex(), poll.getArgs());
     }
 
+    // called if thread has not been idle during last schedule tick. Actors can
+    // be safely moved away as none of them is running
     private void checkForSplit() {
-        // uncessesary as auto balance has been abandonned. FIXME: clean up !
-//        int load = getLoad();
-//        if (load > QUEUE_PERCENTAGE_TRIGGERING_REBALANCE &&
-//            actors.length > 1 &&
-//            System.currentTimeMillis()-created > MILLIS_AFTER_CREATION_BEFORE_REBALANCING )
-//        {
-//            scheduler.rebalance(this);
-//        }
+        if ( actors.length > 1 ) {
+            scheduler.rebalance(this);
+        }
+    }
+
+    /**
+     * called from run loop if no message could be polled
+     * @param emptyCount - number of subsequent empty polls
+     */
+    protected void idle(int emptyCount) {
+        backOff(emptyCount);
+    }
+
+    /**
+     * back off if no message was found. A signal driven dispatcher exposes its sleeping state
+     * to enqueueing threads, so it gets unparked once a message arrives.
+     */
+    public void backOff(int emptyCount) {
+        BackOffStrategy backoff = scheduler.getBackoffStrategy();
+        if ( signalDriven && backoff.isYielding(emptyCount) && ! backoff.isBusySpin() ) {
+            sleeping = true;
+            // recheck after publishing sleeping state, signalers check in reverse order
+            if ( readyQueue.peek() == null && runQueue.isEmpty() && toAdd.peek() == null ) {
+                if ( backoff.isSleeping(emptyCount) )
+                    LockSupport.parkNanos(this, SIGNAL_DRIVEN_PARK_NANOS);
+                else
+                    scheduler.pollDelay(emptyCount);
+            }
+            sleeping = false;
+        } else {
+            scheduler.pollDelay(emptyCount);
+        }
     }
 
 
@@ -398,6 +846,10 @@ public class DispatcherThread extends Thread implements Monitorable {
             load = queue.size() * 100 / actors[i].__mailboxCapacity;
             if ( load > res )
                 res = load;
+            queue = actors[i].__prioQueue;
+            load = queue.size() * 100 / actors[i].__mailboxCapacity;
+            if ( load > res )
+                res = load;
         }
         return res;
     }
@@ -425,6 +877,7 @@ public class DispatcherThread extends Thread implements Monitorable {
             Actor a = actors[i];
             res+=a.__mailbox.size();
             res+=a.__cbQueue.size();
+            res+=a.__prioQueue.size();
         }
         return res;
     }
@@ -453,7 +906,7 @@ public class DispatcherThread extends Thread implements Monitorable {
     public boolean isEmpty() {
         for (int i = 0; i < actors.length; i++) {
             Actor act = actors[i];
-            if ( ! act.__mailbox.isEmpty() || ! act.__cbQueue.isEmpty() )
+            if ( hasPending(act, POLL_ALL_Q) )
                 return false;
         }
         return true;
@@ -508,7 +961,13 @@ public class DispatcherThread extends Thread implements Monitorable {
 
     @Override
     public IPromise getReport() {
-        return new Promise(new DispatcherReport(getName(), actors.length, getLoad(),getAccumulatedQSizes() ));
+        DispatcherReport report = new DispatcherReport(getName(), actors.length, getLoad(), getAccumulatedQSizes());
+        report.quantumMessages = quantumMessages;
+        report.quantumNanos = quantumNanos;
+        report.batchCount = batchCount;
+        report.batchedMessages = batchedMessages;
+        report.quantumExpiredCount = quantumExpiredCount;
+        return new Promise(report);
     }
 
     @Override
@@ -522,6 +981,11 @@ public class DispatcherThread extends Thread implements Monitorable {
         int numActors;
         int loadPerc;
         int qSizes;
+        int quantumMessages;
+        long quantumNanos;
+        long batchCount;
+        long batchedMessages;
+        long quantumExpiredCount;
 
         public DispatcherReport() {
         }
@@ -540,6 +1004,18 @@ public class DispatcherThread extends Thread implements Monitorable {
         public int getNumActors() {
             return numActors;
         }
+
+        public long getBatchCount() {
+            return batchCount;
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages;
+        }
+
+        public long getQuantumExpiredCount() {
+            return quantumExpiredCount;
+        }
     }
 
 }
@@ -20,13 +20,14 @@ import org.nustaq.kontraktor.Actor;
 import org.nustaq.kontraktor.Callback;
 import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
 
-import java.lang.reflect.Method;
+import java.util.Queue;
 import java.util.concurrent.Callable;
 
 /**
  * Created by ruedi on 08.08.14.
  *
  * pure dummy buffering messages, which are then polled by a remote forwarder (ConnectionRegistry, RemoteRefPolling etc)
+ * once signaled by an enqueue.
  */
 public class RemoteScheduler extends SimpleScheduler {
 
@@ -37,7 +38,7 @@ public class RemoteScheduler extends SimpleScheduler {
     public RemoteScheduler(int defQSize) {
         super("dummy");
         this.qsize = defQSize;
-        myThread = new DispatcherThread(this) {
+        myThread = new DispatcherThread(this, true, false) { // never polled, so no signaling
             @Override
             public synchronized void start() {
                 // fake thread, just don't start
@@ -49,6 +50,16 @@ public class RemoteScheduler extends SimpleScheduler {
         };
     }
 
+    @Override
+    public void put2QueuePolling(Queue q, boolean isCBQ, Object o, Object receiver) {
+        super.put2QueuePolling(q, isCBQ, o, receiver);
+        if ( receiver instanceof Actor ) {
+            ConnectionRegistry reg = ((Actor) receiver).getActorRef().__clientConnection;
+            if ( reg != null )
+                reg.signalSend();
+        }
+    }
+
     // fixme: might execute on remoteref poller ?
 
     @Override
@@ -61,11 +72,12 @@ public class RemoteScheduler extends SimpleScheduler {
         throw new RuntimeException("cannot be used on a remote reference (no thread)");
     }
 
-    protected CallEntry createCallentry(ConnectionRegistry reg, Object[] args, boolean isCB, Actor actor, Method method) {
+    protected CallEntry createCallentry(ConnectionRegistry reg, Object[] args, boolean isCB, Actor actor, ActorInvoker invoker, int methodIndex) {
 
         CallEntry e = new CallEntry(
             actor, // target
-            method,
+            invoker,
+            methodIndex,
             args,
             Actor.sender.get(), // enqueuer
             actor,
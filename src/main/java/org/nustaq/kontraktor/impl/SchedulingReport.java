@@ -27,6 +27,13 @@ public class SchedulingReport implements Serializable {
     int defQSize;
     int isolatedThreads;
 
+    // scheduling quantum usage summed up over dispatchers
+    int quantumMessages;
+    long quantumNanos;
+    long batchCount;
+    long batchedMessages;
+    long quantumExpiredCount;
+
     public SchedulingReport() {
     }
 
@@ -43,4 +50,44 @@ public class SchedulingReport implements Serializable {
     public int getDefQSize() {
         return defQSize;
     }
+
+    public SchedulingReport addQuantumUsage(DispatcherThread dispatcher) {
+        quantumMessages = dispatcher.getQuantumMessages();
+        quantumNanos = dispatcher.getQuantumNanos();
+        batchCount += dispatcher.getBatchCount();
+        batchedMessages += dispatcher.getBatchedMessages();
+        quantumExpiredCount += dispatcher.getQuantumExpiredCount();
+        return this;
+    }
+
+    public int getQuantumMessages() {
+        return quantumMessages;
+    }
+
+    public long getQuantumNanos() {
+        return quantumNanos;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getBatchedMessages() {
+        return batchedMessages;
+    }
+
+    /**
+     * @return number of batches cut by quantum limits while the actor still had pending messages.
+     * A high ratio compared to batchCount indicates the quantum could be increased
+     */
+    public long getQuantumExpiredCount() {
+        return quantumExpiredCount;
+    }
+
+    /**
+     * @return avg number of messages processed per actor in a row
+     */
+    public double getAvgBatchSize() {
+        return batchCount == 0 ? 0 : (double) batchedMessages / batchCount;
+    }
 }
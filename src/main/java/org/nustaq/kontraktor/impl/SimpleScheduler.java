@@ -17,7 +17,9 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor.impl;
 
 import org.nustaq.kontraktor.*;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
 import org.nustaq.kontraktor.monitoring.Monitorable;
+import org.nustaq.kontraktor.monitoring.Tracing;
 import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
 import org.nustaq.kontraktor.util.Log;
 
@@ -26,6 +28,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiFunction;
 
 /**
@@ -41,8 +46,9 @@ public class SimpleScheduler implements Scheduler {
     public static long BLOCKED_MS_TIL_WARN = 1000;
     public static int DEFQSIZE = 32768; // will be alligned to 2^x
 
-    protected BackOffStrategy backOffStrategy = new BackOffStrategy();
+    protected volatile BackOffStrategy backOffStrategy = new BackOffStrategy();
     protected DispatcherThread myThread;
+    protected Executor blockingExecutor; // null => Actors.getBlockingExecutor()
     int qsize = DEFQSIZE;
 
     protected SimpleScheduler(String dummy) {
@@ -95,17 +101,30 @@ public class SimpleScheduler implements Scheduler {
 
     @Override
     public void put2QueuePolling(Queue q, boolean isCBQ, Object o, Object receiver) {
+        if ( ActorMetrics.ENABLED && o instanceof CallEntry && ActorMetrics.shouldSample() )
+            ((CallEntry) o).enqueueNanos = System.nanoTime();
+        if ( Tracing.ENABLED && o instanceof CallEntry ) {
+            CallEntry ce = (CallEntry) o;
+            if ( ce.trace == null )
+                ce.trace = Tracing.forSend();
+            if ( ce.trace != null && ce.enqueueNanos == 0 )
+                ce.enqueueNanos = System.nanoTime();
+        }
         int count = 0;
         long sleepStart = 0;
         boolean warningPrinted = false;
         while ( ! q.offer(o) ) {
+            if ( receiver instanceof Actor && ((Actor) receiver).__overflow != null && q == ((Actor) receiver).__mailbox
+                 && handleOverflow((Actor) receiver, q, o) ) {
+                return;
+            }
             pollDelay(count++);
             if ( backOffStrategy.isYielding(count) ) {
                 Actor sendingActor = Actor.sender.get();
                 if ( receiver instanceof Actor && ((Actor) receiver).__stopped ) {
                     String dl;
                     if ( o instanceof CallEntry) {
-                        dl = ((CallEntry) o).getMethod().getName();
+                        dl = ((CallEntry) o).getMethodName();
                     } else {
                         dl = ""+o;
                     }
@@ -124,6 +143,8 @@ public class SimpleScheduler implements Scheduler {
                                 receiverString = receiver.getClass().getSimpleName() + " callbackQ "+((Actor) receiver).getCallbackSize();
                             } else if (q == ((Actor) receiver).__mailbox) {
                                 receiverString = receiver.getClass().getSimpleName() + " mailbox "+((Actor) receiver).getMailboxSize();
+                            } else if (q == ((Actor) receiver).__prioQueue) {
+                                receiverString = receiver.getClass().getSimpleName() + " priority lane "+((Actor) receiver).__prioQueue.size();
                             } else {
                                 receiverString = receiver.getClass().getSimpleName() + " unknown queue";
                             }
@@ -138,22 +159,73 @@ public class SimpleScheduler implements Scheduler {
                 }
             }
         }
+        if ( receiver instanceof Actor )
+            DispatcherThread.signalReadyTo((Actor) receiver);
+    }
+
+    /**
+     * called if a bounded mailbox is full. Blocking policies reject if the sender runs on the receiver's
+     * dispatcher, as no one else would drain the mailbox.
+     * @return true if message has been disposed, false if offering should be retried
+     */
+    protected boolean handleOverflow(Actor receiver, Queue q, Object o) {
+        switch (receiver.__overflow) {
+            case REJECT:
+                rejectMessage(receiver, o);
+                return true;
+            case DROP_OLDEST:
+                Object oldest = q.poll();
+                if ( oldest != null )
+                    rejectMessage(receiver, oldest);
+                return false;
+            case REJECT_REMOTE:
+                if ( o instanceof CallEntry && ((CallEntry) o).getRemoteRefRegistry() != null ) {
+                    rejectMessage(receiver, o);
+                    return true;
+                }
+                return rejectIfSameDispatcher(receiver, o);
+            default:
+                return rejectIfSameDispatcher(receiver, o);
+        }
+    }
+
+    private boolean rejectIfSameDispatcher(Actor receiver, Object o) {
+        if ( Thread.currentThread() != receiver.__currentDispatcher )
+            return false;
+        rejectMessage(receiver, o);
+        return true;
+    }
+
+    protected void rejectMessage(Actor receiver, Object o) {
+        if ( o instanceof CallEntry ) {
+            CallEntry ce = (CallEntry) o;
+            receiver.__addDeadLetter(receiver, ce.getMethodName());
+            if ( ce.getFutureCB() != null )
+                ce.getFutureCB().complete(null, MailboxFullException.Instance);
+        } else {
+            receiver.__addDeadLetter(receiver, ""+o);
+        }
     }
 
     public IPromise put2QueuePolling(CallEntry e) {
         final IPromise fut;
         if (e.hasFutureResult() && ! (e.getFutureCB() instanceof CallbackWrapper) ) {
             fut = new Promise();
-            e.setFutureCB(new CallbackWrapper( e.getSendingActor() ,new Callback() {
-                @Override
-                public void complete(Object result, Object error) {
-                    fut.complete(result, error);
-                }
-            }));
+            // result is delivered to the caller's callback queue, no additional forwarding callback required
+            e.setFutureCB(new CallbackWrapper( e.getSendingActor(), fut));
         } else
             fut = null;
         Actor targetActor = e.getTargetActor();
-        put2QueuePolling( e.isCallback() ? targetActor.__cbQueue : targetActor.__mailbox, false, e, targetActor);
+        Queue q = targetActor.__mailbox;
+        if ( e.isCallback() ) {
+            q = targetActor.__cbQueue;
+        } else if ( e.getInvoker().isPriority(e.getMethodIndex()) ) {
+            q = targetActor.__prioQueue;
+            long deadline = e.getInvoker().getDeadlineNanos(e.getMethodIndex());
+            if ( deadline != 0 )
+                e.deadline = System.nanoTime() + deadline;
+        }
+        put2QueuePolling(q, false, e, targetActor);
         return fut;
     }
 
@@ -162,6 +234,39 @@ public class SimpleScheduler implements Scheduler {
         return enqueueCallFromRemote((ConnectionRegistry) receiver.__clientConnection,sendingActor,receiver,methodName,args,isCB, null, null);
     }
 
+    @Override
+    public Object enqueueCall(Actor sendingActor, Actor receiver, String methodName, int methodIndex, long callbackArgs, Object[] args, boolean isCB) {
+        Actor actor = receiver.getActor();
+        ActorInvoker invoker = actor.__invoker;
+        if ( methodIndex < 0 || invoker == null || methodIndex >= invoker.getNumMethods() || ! methodName.equals(invoker.getMethodName(methodIndex)) )
+            return enqueueCall(sendingActor, receiver, methodName, args, isCB);
+        wrapCallbacks(sendingActor, args, callbackArgs);
+        CallEntry e = createCallentry((ConnectionRegistry) receiver.__clientConnection, args, isCB, actor, invoker, methodIndex);
+        return put2QueuePolling(e);
+    }
+
+    @Override
+    public Object enqueueCall(Actor sendingActor, Actor receiver, String methodName, int methodIndex, long callbackArgs, UnboxedCallEntry entry, boolean isCB) {
+        Actor actor = receiver.getActor();
+        ActorInvoker invoker = actor.__invoker;
+        if ( methodIndex < 0 || invoker == null || methodIndex >= invoker.getNumMethods() || ! methodName.equals(invoker.getMethodName(methodIndex)) ) {
+            // lookup by name like enqueueCall(.., methodName, args, ..), but enqueue the (pooled) entry itself
+            methodIndex = invoker != null ? invoker.getMethodIndex(methodName) : -1;
+            if ( methodIndex < 0 ) {
+                Method method = actor.__getCachedMethod(methodName, actor, null);
+                if ( method == null )
+                    throw new RuntimeException("unknown method "+methodName+" on "+actor);
+                invoker = actor.__getFallbackInvoker(method); // boxes via entry.getArgs()
+                methodIndex = 0;
+            }
+            callbackArgs = -1;
+        }
+        entry.wrapCallbacks(sendingActor, callbackArgs);
+        entry.init(actor, invoker, methodIndex, null, Actor.sender.get(), actor, isCB);
+        entry.setRemoteRefRegistry((ConnectionRegistry) receiver.__clientConnection);
+        return put2QueuePolling(entry);
+    }
+
     @Override
     public Object enqueueCall(ConnectionRegistry reg, Actor sendingActor, Actor receiver, String methodName, Object[] args, boolean isCB) {
         return enqueueCallFromRemote( reg,sendingActor,receiver,methodName,args,isCB, null, null);
@@ -172,33 +277,64 @@ public class SimpleScheduler implements Scheduler {
         // System.out.println("dispatch "+methodName+" "+Thread.currentThread());
         // here sender + receiver are known in a ST context
         Actor actor = receiver.getActor();
-        Method method = actor.__getCachedMethod(methodName, actor, callInterceptor);
+        ActorInvoker invoker = actor.__invoker;
+        int methodIndex = -1;
+        if ( callInterceptor != null ) {
+            Method method = actor.__getCachedMethod(methodName, actor, callInterceptor);
+            if ( method == null )
+                throw new RuntimeException("unknown method "+methodName+" on "+actor);
+        }
+        if ( invoker != null )
+            methodIndex = invoker.getMethodIndex(methodName);
+        if ( methodIndex < 0 ) {
+            // not part of invoker's method table (e.g. overloaded), dispatch reflective
+            Method method = actor.__getCachedMethod(methodName, actor, null);
+            if ( method == null )
+                throw new RuntimeException("unknown method "+methodName+" on "+actor);
+            invoker = actor.__getFallbackInvoker(method);
+            methodIndex = 0;
+        }
+        return enqueueCallFromRemote(reg, sendingActor, actor, invoker, methodIndex, args, isCB);
+    }
+
+    @Override
+    public Object enqueueCallFromRemote(ConnectionRegistry reg, Actor sendingActor, Actor receiver, int methodIndex, Object[] args, boolean isCB) {
+        Actor actor = receiver.getActor();
+        return enqueueCallFromRemote(reg, sendingActor, actor, actor.__invoker, methodIndex, args, isCB);
+    }
 
-        if ( method == null )
-            throw new RuntimeException("unknown method "+methodName+" on "+actor);
-        // scan for callbacks in arguments ..
+    protected Object enqueueCallFromRemote(ConnectionRegistry reg, Actor sendingActor, Actor actor, ActorInvoker invoker, int methodIndex, Object[] args, boolean isCB) {
+        wrapCallbacks(sendingActor, args, -1);
+        CallEntry e = createCallentry(reg, args, isCB, actor, invoker, methodIndex);
+        return put2QueuePolling(e);
+    }
+
+    /**
+     * wrap callback args, so they are executed in the sender's thread
+     * @param callbackArgs - bit i set if args[i] has to be checked (all if >= 64 args)
+     */
+    protected void wrapCallbacks(Actor sendingActor, Object[] args, long callbackArgs) {
+        if ( callbackArgs == 0 || args == null )
+            return;
         for (int i = 0; i < args.length; i++) {
             Object arg = args[i];
-            if ( arg instanceof Callback) {
+            if ( arg instanceof Callback && (i >= 64 || (callbackArgs & (1L << i)) != 0) ) {
                 args[i] = new CallbackWrapper<>(sendingActor,(Callback<Object>) arg);
             }
         }
-
-        CallEntry e = createCallentry(reg, args, isCB, actor, method);
-        return put2QueuePolling(e);
     }
 
-    protected CallEntry createCallentry(ConnectionRegistry reg, Object[] args, boolean isCB, Actor actor, Method method) {
-        CallEntry e = new CallEntry(
+    protected CallEntry createCallentry(ConnectionRegistry reg, Object[] args, boolean isCB, Actor actor, ActorInvoker invoker, int methodIndex) {
+        return CallEntryPool.obtain(
                 actor, // target
-                method,
+                invoker,
+                methodIndex,
                 args,
                 Actor.sender.get(), // enqueuer
                 actor,
-                isCB
+                isCB,
+                reg
         );
-        e.setRemoteRefRegistry(reg);
-        return e;
     }
 
     @Override
@@ -219,6 +355,7 @@ public class SimpleScheduler implements Scheduler {
 
         final Object target;
         final Actor targetActor;
+        final ConcurrentHashMap<Method,ActorInvoker> invokers = new ConcurrentHashMap<>(7);
 
         public CallbackInvokeHandler(Object target, Actor act) {
             this.target = target;
@@ -230,7 +367,8 @@ public class SimpleScheduler implements Scheduler {
             if ( method.getDeclaringClass() == Object.class )
                 return method.invoke(proxy,args); // toString, hashCode etc. invoke sync (DANGER if hashcode accesses mutable local state)
             if ( target != null ) {
-                CallEntry ce = new CallEntry(target,method,args, Actor.sender.get(), targetActor, true);
+                ActorInvoker invoker = invokers.computeIfAbsent(method, m -> new ActorInvoker(new Method[]{m}));
+                CallEntry ce = CallEntryPool.obtain(target, invoker, 0, args, Actor.sender.get(), targetActor, true, null);
                 put2QueuePolling(targetActor.__cbQueue, true, ce, targetActor);
             }
             return null;
@@ -283,25 +421,48 @@ public class SimpleScheduler implements Scheduler {
 
     @Override
     public void delayedCall(long millis, Runnable toRun) {
-        Actors.delayedCalls.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                toRun.run();
-            }
-        }, millis);
+        Actors.timingWheel.schedule(millis, toRun);
+    }
 
+    /**
+     * on expiry the runnable is put directly onto the callback queue of the target actor,
+     * no inThread proxy is created.
+     */
+    @Override
+    public TimingWheel.Task delayedCall(long millis, Actor target, Runnable toRun) {
+        return Actors.timingWheel.schedule(millis, () -> {
+            CallEntry ce = CallEntryPool.obtain(toRun, ActorInvoker.RUNNABLE, 0, null, null, target, true, null);
+            put2QueuePolling(target.__cbQueue, true, ce, target);
+        });
     }
 
     @Override
     public <T> void runBlockingCall(Actor emitter, Callable<T> toCall, Callback<T> resultHandler) {
         final CallbackWrapper<T> resultWrapper = new CallbackWrapper<>(emitter,resultHandler);
-        Actors.exec.execute(() -> {
-            try {
-                resultWrapper.complete(toCall.call(), null);
-            } catch (Throwable th) {
-                resultWrapper.complete(null, th);
-            }
-        });
+        Executor executor = blockingExecutor != null ? blockingExecutor : Actors.getBlockingExecutor();
+        try {
+            executor.execute(() -> {
+                try {
+                    resultWrapper.complete(toCall.call(), null);
+                } catch (Throwable th) {
+                    resultWrapper.complete(null, th);
+                }
+            });
+        } catch (RejectedExecutionException rex) {
+            resultWrapper.complete(null, rex);
+        }
+    }
+
+    /**
+     * set the executor running blocking calls of actors of this scheduler (Actor.execInThreadPool).
+     * null resets to Actors.getBlockingExecutor()
+     */
+    public void setBlockingExecutor(Executor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    public Executor getBlockingExecutor() {
+        return blockingExecutor != null ? blockingExecutor : Actors.getBlockingExecutor();
     }
 
     @Override
@@ -318,6 +479,21 @@ public class SimpleScheduler implements Scheduler {
         return backOffStrategy;
     }
 
+    /**
+     * e.g. BackOffStrategy.busySpin() to never park idle dispatcher threads
+     */
+    public void setBackOffStrategy(BackOffStrategy backOffStrategy) {
+        this.backOffStrategy = backOffStrategy;
+    }
+
+    /**
+     * bind the dispatcher thread(s) of this scheduler, see CpuAffinity
+     */
+    public void setAffinity(ThreadAffinity affinity) {
+        if ( myThread != null )
+            myThread.setAffinity(affinity, 0);
+    }
+
     @Override
     public void tryStopThread(DispatcherThread dispatcherThread) {
 
@@ -333,9 +509,16 @@ public class SimpleScheduler implements Scheduler {
         return myThread.getActorsNoCopy().length;
     }
 
+    /**
+     * see DispatcherThread.setQuantum
+     */
+    public void setQuantum(int maxMessages, long maxNanos) {
+        myThread.setQuantum(maxMessages, maxNanos);
+    }
+
     @Override
     public IPromise getReport() {
-        return new Promise<>(new SchedulingReport(1,getDefaultQSize(),0));
+        return new Promise<>(new SchedulingReport(1,getDefaultQSize(),0).addQuantumUsage(myThread));
     }
 
     @Override
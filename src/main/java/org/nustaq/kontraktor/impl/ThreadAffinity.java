@@ -0,0 +1,34 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+/**
+ * Hook to bind dispatcher threads to cpus (or to adjust priority, naming etc.). Called by the dispatcher
+ * thread itself, see SimpleScheduler.setAffinity.
+ *
+ * To apply to all default schedulers:
+ * Actors.defaultScheduler = () -> { SimpleScheduler s = new SimpleScheduler(); s.setAffinity(aff); return s; };
+ */
+public interface ThreadAffinity {
+
+    /**
+     * @param thread - the calling dispatcher thread
+     * @param index - index of the thread within its scheduler (0 for single threaded schedulers)
+     */
+    void bind(DispatcherThread thread, int index);
+
+}
@@ -0,0 +1,254 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.util.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel used for delayed calls and promise timeouts (replaces java.util.Timer).
+ *
+ * schedule() and Task.cancel() are O(1) and lock free, they just enqueue to the ticker thread.
+ * The ticker thread owns the wheel: each tick it links newly scheduled tasks into their bucket,
+ * unlinks cancelled ones (so cancelled timeouts don't linger until they would have fired) and
+ * expires the current bucket. Delays exceeding one revolution are handled by a per task round count.
+ *
+ * Tasks are run on the ticker thread, so they must not block. Actor related tasks just put a
+ * message onto the target actor's queue (see Scheduler.delayedCall(long,Actor,Runnable)).
+ * Resolution is TICK_MILLIS, a task never fires early.
+ */
+public class TimingWheel {
+
+    /**
+     * tick duration, applies to wheels created afterwards
+     */
+    public static long TICK_MILLIS = 1;
+    /**
+     * number of buckets (aligned to 2^x), applies to wheels created afterwards
+     */
+    public static int WHEEL_SIZE = 1024;
+
+    static final int WAITING = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    public static class Task {
+
+        final long deadline; // nanos relative to wheel start
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final TimingWheel wheel;
+        volatile Runnable toRun;
+
+        // owned by ticker thread
+        long rounds;
+        Bucket bucket;
+        Task prev, next;
+
+        Task(TimingWheel wheel, long deadline, Runnable toRun) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.toRun = toRun;
+        }
+
+        /**
+         * @return true if the task has been cancelled before it fired
+         */
+        public boolean cancel() {
+            if ( ! state.compareAndSet(WAITING, CANCELLED) )
+                return false;
+            toRun = null;
+            wheel.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    static class Bucket {
+        Task head, tail;
+
+        void add(Task t) {
+            t.bucket = this;
+            if ( head == null ) {
+                head = tail = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void remove(Task t) {
+            if ( t.prev != null )
+                t.prev.next = t.next;
+            else
+                head = t.next;
+            if ( t.next != null )
+                t.next.prev = t.prev;
+            else
+                tail = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+    }
+
+    final long tickNanos;
+    final int mask;
+    final Bucket wheel[];
+    final long startNanos = System.nanoTime();
+    final ConcurrentLinkedQueue<Task> pending = new ConcurrentLinkedQueue<>();
+    final ConcurrentLinkedQueue<Task> cancelled = new ConcurrentLinkedQueue<>();
+    final Thread ticker;
+
+    volatile boolean sleeping;
+    volatile boolean stopped;
+    long tick;   // next tick to process, ticker thread only
+    volatile int size; // tasks linked into the wheel, written by ticker thread only
+
+    public TimingWheel(String name) {
+        this(name, TICK_MILLIS, WHEEL_SIZE);
+    }
+
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1,tickMillis));
+        int len = 1;
+        while ( len < wheelSize )
+            len <<= 1;
+        mask = len-1;
+        wheel = new Bucket[len];
+        for (int i = 0; i < len; i++) {
+            wheel[i] = new Bucket();
+        }
+        ticker = new Thread(this::run, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * run toRun on the ticker thread after (at least) the given delay
+     * @return handle to cancel the task
+     */
+    public Task schedule(long delayMillis, Runnable toRun) {
+        Task task = new Task(this, System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0,delayMillis)), toRun);
+        pending.offer(task);
+        if ( sleeping )
+            LockSupport.unpark(ticker);
+        return task;
+    }
+
+    /**
+     * @return number of tasks currently linked into the wheel (for monitoring)
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * stop the ticker thread, waiting tasks are dropped
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(ticker);
+    }
+
+    protected void run() {
+        while ( ! stopped ) {
+            transferPending();
+            removeCancelled();
+            if ( size == 0 ) {
+                sleeping = true;
+                if ( pending.isEmpty() && ! stopped )
+                    LockSupport.park(this);
+                sleeping = false;
+                // nothing is linked, so skipped ticks have nothing to expire
+                tick = Math.max(tick, currentTick());
+                continue;
+            }
+            long now = currentTick();
+            if ( now < tick ) {
+                LockSupport.parkNanos(this, startNanos + tick * tickNanos - System.nanoTime());
+                continue;
+            }
+            while ( tick <= now && size > 0 ) {
+                expire(wheel[(int) (tick & mask)]);
+                tick++;
+            }
+            tick = Math.max(tick, now+1);
+        }
+    }
+
+    long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    void transferPending() {
+        Task task;
+        while ( (task = pending.poll()) != null ) {
+            if ( task.state.get() != WAITING )
+                continue;
+            long deadlineTick = Math.max( (task.deadline + tickNanos - 1) / tickNanos, tick );
+            task.rounds = (deadlineTick - tick) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(task);
+            size++;
+        }
+    }
+
+    void removeCancelled() {
+        Task task;
+        while ( (task = cancelled.poll()) != null ) {
+            if ( task.bucket != null ) {
+                task.bucket.remove(task);
+                size--;
+            }
+        }
+    }
+
+    void expire(Bucket bucket) {
+        Task task = bucket.head;
+        while ( task != null ) {
+            Task next = task.next;
+            if ( task.rounds <= 0 ) {
+                bucket.remove(task);
+                size--;
+                Runnable toRun = task.toRun;
+                if ( task.state.compareAndSet(WAITING, EXPIRED) ) {
+                    task.toRun = null;
+                    try {
+                        toRun.run();
+                    } catch (Throwable th) {
+                        Log.Warn(this, th, "exception in timed task");
+                    }
+                }
+            } else {
+                task.rounds--;
+            }
+            task = next;
+        }
+    }
+
+}
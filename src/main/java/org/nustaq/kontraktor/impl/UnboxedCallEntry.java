@@ -0,0 +1,253 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Callback;
+
+/**
+ * CallEntry of a generated proxy for methods with up to MAX_ARGS arguments of which at least one is
+ * primitive. Arguments are stored in per arity fields instead of an Object[], primitives unboxed as
+ * raw bits (p0..), references in o0.., so a local send does not allocate an args array and boxes.
+ * The generated invoker reads the fields directly (see ActorProxyFactory.createUnboxedInvokerMethodSource).
+ *
+ * getArgs() materializes (boxes) the args on first access for code relying on the array (remote refs,
+ * reflective fallback, schedulers not aware of unboxed entries).
+ */
+public abstract class UnboxedCallEntry extends CallEntry {
+
+    public static final int MAX_ARGS = 3;
+
+    // type of each argument, 4 bits per argument in argTypes
+    public static final int REF = 0;
+    public static final int BOOLEAN = 1;
+    public static final int BYTE = 2;
+    public static final int CHAR = 3;
+    public static final int SHORT = 4;
+    public static final int INT = 5;
+    public static final int LONG = 6;
+    public static final int FLOAT = 7;
+    public static final int DOUBLE = 8;
+
+    long argTypes;
+
+    UnboxedCallEntry() {
+        super(null, null, 0, null, null, null, false);
+    }
+
+    /**
+     * @return new unpooled entry for given arity
+     */
+    public static UnboxedCallEntry create(int arity, long argTypes) {
+        UnboxedCallEntry res;
+        switch (arity) {
+            case 1: res = new Of1(); break;
+            case 2: res = new Of2(); break;
+            case 3: res = new Of3(); break;
+            default: throw new IllegalArgumentException("arity "+arity);
+        }
+        res.argTypes = argTypes;
+        return res;
+    }
+
+    /**
+     * @return type code of given class (REF if not primitive)
+     */
+    public static int typeOf(Class type) {
+        if ( type == boolean.class ) return BOOLEAN;
+        if ( type == byte.class ) return BYTE;
+        if ( type == char.class ) return CHAR;
+        if ( type == short.class ) return SHORT;
+        if ( type == int.class ) return INT;
+        if ( type == long.class ) return LONG;
+        if ( type == float.class ) return FLOAT;
+        if ( type == double.class ) return DOUBLE;
+        return REF;
+    }
+
+    /**
+     * @return argTypes descriptor of a method signature or 0 if calls are not eligible for unboxed
+     * entries (too many or no primitive arguments)
+     */
+    public static long argTypesOf(Class parameterTypes[]) {
+        if ( parameterTypes.length == 0 || parameterTypes.length > MAX_ARGS )
+            return 0;
+        long res = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            res |= (long) typeOf(parameterTypes[i]) << (i * 4);
+        }
+        return res;
+    }
+
+    public abstract int getArity();
+
+    abstract long prim(int index);
+
+    abstract Object ref(int index);
+
+    abstract void setRef(int index, Object value);
+
+    int typeOf(int index) {
+        return (int) (argTypes >>> (index * 4)) & 0xf;
+    }
+
+    /**
+     * wrap callback args, so they are executed in the sender's thread (see SimpleScheduler.wrapCallbacks)
+     */
+    void wrapCallbacks(Actor sendingActor, long callbackArgs) {
+        if ( callbackArgs == 0 )
+            return;
+        for (int i = 0; i < getArity(); i++) {
+            Object arg = ref(i);
+            if ( arg instanceof Callback && (callbackArgs & (1L << i)) != 0 )
+                setRef(i, new CallbackWrapper<>(sendingActor, (Callback<Object>) arg));
+        }
+    }
+
+    @Override
+    public Object[] getArgs() {
+        if ( args == null ) {
+            Object res[] = new Object[getArity()];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = box(i);
+            }
+            args = res;
+        }
+        return args;
+    }
+
+    Object box(int index) {
+        long p = prim(index);
+        switch (typeOf(index)) {
+            case BOOLEAN: return p != 0;
+            case BYTE: return (byte) p;
+            case CHAR: return (char) p;
+            case SHORT: return (short) p;
+            case INT: return (int) p;
+            case LONG: return p;
+            case FLOAT: return Float.intBitsToFloat((int) p);
+            case DOUBLE: return Double.longBitsToDouble(p);
+            default: return ref(index);
+        }
+    }
+
+    public static class Of1 extends UnboxedCallEntry {
+        public long p0;
+        public Object o0;
+
+        @Override
+        public int getArity() {
+            return 1;
+        }
+
+        @Override
+        long prim(int index) {
+            return p0;
+        }
+
+        @Override
+        Object ref(int index) {
+            return o0;
+        }
+
+        @Override
+        void setRef(int index, Object value) {
+            o0 = value;
+        }
+
+        @Override
+        void clear() {
+            super.clear();
+            o0 = null;
+        }
+    }
+
+    public static class Of2 extends UnboxedCallEntry {
+        public long p0, p1;
+        public Object o0, o1;
+
+        @Override
+        public int getArity() {
+            return 2;
+        }
+
+        @Override
+        long prim(int index) {
+            return index == 0 ? p0 : p1;
+        }
+
+        @Override
+        Object ref(int index) {
+            return index == 0 ? o0 : o1;
+        }
+
+        @Override
+        void setRef(int index, Object value) {
+            if ( index == 0 ) o0 = value; else o1 = value;
+        }
+
+        @Override
+        void clear() {
+            super.clear();
+            o0 = o1 = null;
+        }
+    }
+
+    public static class Of3 extends UnboxedCallEntry {
+        public long p0, p1, p2;
+        public Object o0, o1, o2;
+
+        @Override
+        public int getArity() {
+            return 3;
+        }
+
+        @Override
+        long prim(int index) {
+            switch (index) {
+                case 0: return p0;
+                case 1: return p1;
+                default: return p2;
+            }
+        }
+
+        @Override
+        Object ref(int index) {
+            switch (index) {
+                case 0: return o0;
+                case 1: return o1;
+                default: return o2;
+            }
+        }
+
+        @Override
+        void setRef(int index, Object value) {
+            switch (index) {
+                case 0: o0 = value; break;
+                case 1: o1 = value; break;
+                default: o2 = value;
+            }
+        }
+
+        @Override
+        void clear() {
+            super.clear();
+            o0 = o1 = o2 = null;
+        }
+    }
+
+}
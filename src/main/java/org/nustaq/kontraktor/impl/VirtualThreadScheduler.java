@@ -0,0 +1,224 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.Timeout;
+import org.nustaq.kontraktor.remoting.base.ConnectionRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs each actor on its own virtual thread (JDK 21+) blocking on the actor's queues, instead of
+ * sharing busy polling DispatcherThreads. Threads enqueuing a message unpark the actor's thread, an
+ * idle actor does not consume cpu. Messages are processed in order, one at a time.
+ *
+ * Inside such actors await(), awaitPromise(), Actors.yield() and yieldCallbacks() suspend the virtual
+ * thread. While suspended only the actor's callback queue is processed (this delivers the awaited
+ * result), mailbox messages stay queued until the current message is done. So awaiting neither reorders
+ * nor reenters message processing. Note two actors awaiting calls to each other deadlock.
+ *
+ * usage: Actors.AsActor(MyActor.class, new VirtualThreadScheduler()) or set VirtualThreads.ACTOR_THREADS
+ * to true to make it the default.
+ */
+public class VirtualThreadScheduler extends SimpleScheduler {
+
+    /**
+     * max park time of an idle actor thread, the timeout is only used for housekeeping (stopped actors)
+     */
+    public static long IDLE_PARK_NANOS = 1000*1000*1000;
+    /**
+     * while awaiting a promise which is not settled by a callback message (e.g. resolved by a foreign
+     * thread), the actor thread rechecks with a backoff up to this time
+     */
+    public static long MAX_AWAIT_PARK_NANOS = 5*1000*1000;
+
+    static final ThreadLocal<ActorLoop> current = new ThreadLocal<>();
+
+    protected final AtomicInteger numActors = new AtomicInteger();
+    static final AtomicInteger threadCount = new AtomicInteger();
+
+    public VirtualThreadScheduler() {
+        this(DEFQSIZE);
+    }
+
+    public VirtualThreadScheduler(int qsize) {
+        super("dummy");
+        if ( ! VirtualThreads.isAvailable() )
+            throw new UnsupportedOperationException("VirtualThreadScheduler requires JDK 21+");
+        this.qsize = qsize;
+        myThread = new Dispatcher();
+    }
+
+    /**
+     * @return the actor loop of the current thread or null if not running an actor of a VirtualThreadScheduler
+     */
+    public static ActorLoop currentLoop() {
+        return current.get();
+    }
+
+    /**
+     * handle assigned to all actors of this scheduler (required by actor creation). Never started,
+     * instead a virtual thread is started for each actor added.
+     */
+    protected class Dispatcher extends DispatcherThread {
+
+        public Dispatcher() {
+            super(VirtualThreadScheduler.this, false, false);
+            setName("VirtualThreadScheduler");
+        }
+
+        @Override
+        public synchronized void start() {
+            // actors run on their own threads
+        }
+
+        @Override
+        public void addActor(Actor act) {
+            Actor ref = act.getActorRef();
+            Actor thisActor = act.getActor();
+            ActorLoop loop = new ActorLoop(ref, this);
+            Thread thread = VirtualThreads.newThread(loop, "VirtualActor " + threadCount.incrementAndGet());
+            ref.__currentDispatcher = thread;
+            if ( thisActor != null ) // pseudo interface
+                thisActor.__currentDispatcher = thread;
+            numActors.incrementAndGet();
+            thread.start();
+        }
+
+        @Override
+        void removeActorImmediate(Actor act) {
+            // actor is stopped, its loop terminates after the current message
+        }
+    }
+
+    /**
+     * message loop of a single actor
+     */
+    public class ActorLoop implements Runnable {
+
+        final Actor actor; // ref, queues are shared with the real actor
+        final Dispatcher dispatcher;
+
+        ActorLoop(Actor actor, Dispatcher dispatcher) {
+            this.actor = actor;
+            this.dispatcher = dispatcher;
+        }
+
+        public VirtualThreadScheduler getScheduler() {
+            return VirtualThreadScheduler.this;
+        }
+
+        @Override
+        public void run() {
+            current.set(this);
+            try {
+                while ( ! actor.__stopped ) {
+                    if ( ! poll(true) )
+                        waitForWork(true, IDLE_PARK_NANOS);
+                }
+            } finally {
+                numActors.decrementAndGet();
+                current.remove();
+            }
+        }
+
+        /**
+         * process a single message, callbacks first, then priority lane
+         * @return false if queues are empty
+         */
+        boolean poll(boolean mailbox) {
+            CallEntry callEntry = DispatcherThread.pollActor(actor, mailbox ? DispatcherThread.POLL_ALL_Q : DispatcherThread.POLL_CB_Q);
+            if ( callEntry == null )
+                return false;
+            Actor targetActor = callEntry.getTargetActor();
+            Actor.sender.set(targetActor);
+            Actor.connection.set(callEntry.getRemoteRefRegistry());
+            dispatcher.processMessage(callEntry, targetActor);
+            return true;
+        }
+
+        void waitForWork(boolean mailbox, long nanos) {
+            actor.__ready.set(false);
+            // recheck after clearing the flag, enqueuers check in reverse order
+            if ( ! DispatcherThread.hasPending(actor, mailbox ? DispatcherThread.POLL_ALL_Q : DispatcherThread.POLL_CB_Q) && ! actor.__stopped )
+                LockSupport.parkNanos(this, nanos);
+        }
+
+        /**
+         * suspend until the promise is settled, processing callbacks only
+         * @param endtime - 0 or max System.currentTimeMillis() to wait
+         */
+        public void await(Promise promise, long endtime) {
+            Actor sender = Actor.sender.get();
+            ConnectionRegistry connection = Actor.connection.get();
+            long parkNanos = 0;
+            while ( ! promise.isSettled() ) {
+                if ( poll(false) ) {
+                    parkNanos = 0;
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                if ( endtime != 0 && now > endtime ) {
+                    promise.timedOut(Timeout.INSTANCE);
+                    break;
+                }
+                parkNanos = Math.min(MAX_AWAIT_PARK_NANOS, Math.max(parkNanos * 2, 100*1000));
+                if ( endtime != 0 )
+                    parkNanos = Math.min(parkNanos, (endtime - now + 1) * 1000*1000);
+                waitForWork(false, parkNanos);
+            }
+            Actor.sender.set(sender);
+            Actor.connection.set(connection);
+        }
+
+        /**
+         * process callbacks until timeout (or until the callback queue is empty if timeout is 0).
+         * Mailbox messages are not processed.
+         */
+        public void yield(long timeout) {
+            Actor sender = Actor.sender.get();
+            ConnectionRegistry connection = Actor.connection.get();
+            long endtime = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+            while ( true ) {
+                if ( poll(false) )
+                    continue;
+                long now = System.currentTimeMillis();
+                if ( endtime == 0 || now > endtime )
+                    break;
+                waitForWork(false, Math.min(IDLE_PARK_NANOS, (endtime - now + 1) * 1000*1000));
+            }
+            Actor.sender.set(sender);
+            Actor.connection.set(connection);
+        }
+    }
+
+    @Override
+    public int getNumActors() {
+        return numActors.get();
+    }
+
+    @Override
+    public IPromise getReport() {
+        return new Promise<>(new SchedulingReport(numActors.get(), getDefaultQSize(), 0));
+    }
+
+}
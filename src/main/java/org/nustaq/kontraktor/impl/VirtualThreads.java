@@ -0,0 +1,121 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to JDK 21+ virtual threads. Kontraktor is built for Java 8, so the JDK API is looked up
+ * reflectively, on older runtimes (incl. JDK 19/20 having them as preview only) isAvailable() returns false.
+ */
+public class VirtualThreads {
+
+    /**
+     * if false, virtual threads are not used by default even if available
+     */
+    public static boolean ENABLED = true;
+    /**
+     * if true, Actors.defaultScheduler creates a VirtualThreadScheduler (each actor runs on its own
+     * virtual thread). Ignored if virtual threads are not available.
+     */
+    public static boolean ACTOR_THREADS = false;
+
+    static final Method newVirtualThreadPerTaskExecutor;
+    static final Method ofVirtual;
+    static final Method factory;
+    static volatile ThreadFactory threadFactory;
+
+    static {
+        Method m = null, ofV = null, fac = null;
+        if ( featureVersion() >= 21 ) { // JDK 19/20: preview API, throws unless --enable-preview
+            try {
+                m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ofV = Thread.class.getMethod("ofVirtual");
+                fac = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            } catch (NoSuchMethodException | ClassNotFoundException e) {
+                m = null;
+            }
+        }
+        newVirtualThreadPerTaskExecutor = m;
+        ofVirtual = ofV;
+        factory = fac;
+    }
+
+    /**
+     * @return major java version of the runtime ("1.8" => 8)
+     */
+    static int featureVersion() {
+        String spec = System.getProperty("java.specification.version", "1.8");
+        if ( spec.startsWith("1.") )
+            spec = spec.substring(2);
+        try {
+            return Integer.parseInt(spec);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads (JDK 21+)
+     */
+    public static boolean isAvailable() {
+        return newVirtualThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for each task
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if ( ! isAvailable() )
+            throw new UnsupportedOperationException("virtual threads require JDK 21+");
+        try {
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (Exception e) {
+            Log.Warn(VirtualThreads.class, e, "failed to create virtual thread executor");
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    /**
+     * @return a new, unstarted virtual thread
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    public static Thread newThread(Runnable runnable, String name) {
+        ThreadFactory fac = threadFactory;
+        if ( fac == null ) {
+            if ( ! isAvailable() )
+                throw new UnsupportedOperationException("virtual threads require JDK 21+");
+            try {
+                threadFactory = fac = (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+            } catch (Exception e) {
+                Log.Warn(VirtualThreads.class, e, "failed to create virtual thread factory");
+                throw new UnsupportedOperationException(e);
+            }
+        }
+        Thread thread = fac.newThread(runnable);
+        thread.setName(name);
+        return thread;
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.impl;
+
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.monitoring.Monitorable;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scheduler running its actors on a fixed set of DispatcherThreads. New actors are assigned to the
+ * thread with the fewest actors. Each thread runs the actors signaled ready to it (its run queue, signal
+ * driven mode). An idle thread steals a whole actor having pending messages from a thread busy with
+ * other actors, so a long running or hot actor does not delay the others assigned to its thread.
+ * A busy thread wakes up a sleeping one at its schedule tick, so it can steal.
+ *
+ * Threads claim an actor while processing it (including nested polls of awaiting actors), only
+ * unclaimed actors are moved (see DispatcherThread.steal). Queued messages stay in the actor's queues,
+ * so ordering and single threadedness of an actor are preserved.
+ *
+ * usage: Actors.AsActor(MyActor.class, new WorkStealingScheduler()), actors created from within
+ * those actors are distributed on the same scheduler.
+ *
+ * Threads are kept alive by default, call terminateIfIdle() to let them terminate once no actor is left.
+ */
+public class WorkStealingScheduler extends SimpleScheduler {
+
+    protected Worker threads[];
+
+    public WorkStealingScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public WorkStealingScheduler(int numThreads) {
+        this(numThreads, DEFQSIZE);
+    }
+
+    public WorkStealingScheduler(int numThreads, int qsize) {
+        super("dummy");
+        this.qsize = qsize;
+        threads = new Worker[Math.max(1,numThreads)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Worker();
+        }
+        myThread = threads[0];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+    }
+
+    protected class Worker extends DispatcherThread {
+
+        int victimIndex;
+
+        public Worker() {
+            super(WorkStealingScheduler.this, false, true);
+            claimActors = true;
+        }
+
+        @Override
+        protected void idle(int emptyCount) {
+            if ( ! stealWork() )
+                super.idle(emptyCount);
+        }
+
+        // try other threads round robin
+        protected boolean stealWork() {
+            for (int i = 0; i < threads.length; i++) {
+                victimIndex = (victimIndex + 1) % threads.length;
+                Worker victim = threads[victimIndex];
+                if ( victim != this && ! victim.isShutDown() && steal(victim) )
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return thread with least actors assigned
+     */
+    @Override
+    public DispatcherThread assignDispatcher(int minLoadPerc) {
+        Worker res = null;
+        int minActors = Integer.MAX_VALUE;
+        for (int i = 0; i < threads.length; i++) {
+            Worker thread = threads[i];
+            if ( thread.isShutDown() )
+                continue;
+            int numActors = thread.getActorsNoCopy().length + thread.toAdd.size();
+            if ( numActors < minActors ) {
+                minActors = numActors;
+                res = thread;
+            }
+        }
+        return res != null ? res : threads[0];
+    }
+
+    /**
+     * called by a busy thread at its schedule tick, wakes up a sleeping thread if there is an actor to steal
+     */
+    @Override
+    public void rebalance(DispatcherThread victim) {
+        if ( DispatcherThread.stealCandidate(victim) == null )
+            return;
+        for (int i = 0; i < threads.length; i++) {
+            Worker thread = threads[i];
+            if ( thread != victim && thread.sleeping && ! thread.isShutDown() ) {
+                LockSupport.unpark(thread);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void terminateIfIdle() {
+        setKeepAlive(false);
+    }
+
+    @Override
+    public void setKeepAlive(boolean b) {
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].setAutoShutDown(!b);
+        }
+    }
+
+    @Override
+    public int getNumActors() {
+        int res = 0;
+        for (int i = 0; i < threads.length; i++) {
+            res += threads[i].getActorsNoCopy().length;
+        }
+        return res;
+    }
+
+    /**
+     * see DispatcherThread.setQuantum
+     */
+    @Override
+    public void setQuantum(int maxMessages, long maxNanos) {
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].setQuantum(maxMessages, maxNanos);
+        }
+    }
+
+    @Override
+    public void setAffinity(ThreadAffinity affinity) {
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].setAffinity(affinity, i);
+        }
+    }
+
+    public int getNumThreads() {
+        return threads.length;
+    }
+
+    @Override
+    public IPromise getReport() {
+        SchedulingReport report = new SchedulingReport(threads.length, getDefaultQSize(), 0);
+        for (int i = 0; i < threads.length; i++) {
+            report.addQuantumUsage(threads[i]);
+        }
+        return new Promise<>(report);
+    }
+
+    @Override
+    public IPromise<Monitorable[]> getSubMonitorables() {
+        Monitorable res[] = new Monitorable[threads.length];
+        System.arraycopy(threads,0,res,0,threads.length);
+        return new Promise<>(res);
+    }
+
+}
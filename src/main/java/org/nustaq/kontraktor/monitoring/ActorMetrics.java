@@ -0,0 +1,251 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics per actor class and method: message count, exceptions, dead letters and, for a
+ * sample of messages, queue wait (enqueue to dequeue) and execution time histograms.
+ *
+ * Disabled by default. Counting is done for each message processed by a DispatcherThread, timing only
+ * for 1 out of SAMPLE_RATE messages (decided at enqueue time). Set ENABLED = true at startup, reports
+ * are available via ActorMetrics.getMonitorable(), Actor.getReport() or kontraktor-http's MetricsHandler.
+ */
+public class ActorMetrics {
+
+    public static volatile boolean ENABLED = false;
+    /**
+     * time 1 out of N messages, 1 = time all messages
+     */
+    public static int SAMPLE_RATE = 64;
+
+    /**
+     * method name used for callbacks and runnables processed on behalf of an actor
+     */
+    public static final String CALLBACKS = "#callbacks";
+
+    static final ConcurrentHashMap<Class, ActorMetrics> registry = new ConcurrentHashMap<>();
+
+    public static boolean shouldSample() {
+        int rate = SAMPLE_RATE;
+        return rate <= 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    /**
+     * @return metrics of the (real) class of the given actor or actor ref
+     */
+    public static ActorMetrics of(Actor actor) {
+        Actor real = actor.getActor();
+        Class clz = real != null ? real.getClass() : actor.getClass();
+        ActorMetrics res = registry.get(clz);
+        if ( res == null )
+            res = registry.computeIfAbsent(clz, c -> new ActorMetrics(c.getName().replace("_ActorProxy", "")));
+        return res;
+    }
+
+    public static List<Report> getReports() {
+        List<Report> res = new ArrayList<>();
+        registry.values().forEach(m -> res.add(m.getReport()));
+        res.sort((a, b) -> Long.compare(b.count, a.count));
+        return res;
+    }
+
+    public static void reset() {
+        registry.clear();
+    }
+
+    /**
+     * @return Monitorable reporting all actor classes, each class being a sub monitorable
+     */
+    public static Monitorable getMonitorable() {
+        return new Monitorable() {
+            @Override
+            public IPromise getReport() {
+                return new Promise<>(getReports());
+            }
+
+            @Override
+            public IPromise<Monitorable[]> getSubMonitorables() {
+                List<Monitorable> res = new ArrayList<>();
+                registry.values().forEach(m -> res.add(new Monitorable() {
+                    @Override
+                    public IPromise getReport() {
+                        return new Promise<>(m.getReport());
+                    }
+
+                    @Override
+                    public IPromise<Monitorable[]> getSubMonitorables() {
+                        return new Promise<>(new Monitorable[0]);
+                    }
+                }));
+                return new Promise<>(res.toArray(new Monitorable[res.size()]));
+            }
+        };
+    }
+
+    final String actorClass;
+    final ConcurrentHashMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    public ActorMetrics(String actorClass) {
+        this.actorClass = actorClass;
+    }
+
+    public MethodMetrics method(String name) {
+        MethodMetrics res = methods.get(name);
+        if ( res == null )
+            res = methods.computeIfAbsent(name, n -> new MethodMetrics());
+        return res;
+    }
+
+    public void deadLetter(String methodName) {
+        method(methodName).deadLetters.increment();
+    }
+
+    public String getActorClass() {
+        return actorClass;
+    }
+
+    public Report getReport() {
+        Report res = new Report();
+        res.actorClass = actorClass;
+        methods.forEach( (name, m) -> {
+            MethodReport mr = m.getReport(name);
+            res.count += mr.count;
+            res.errors += mr.errors;
+            res.deadLetters += mr.deadLetters;
+            res.methods.add(mr);
+        });
+        res.methods.sort((a, b) -> Long.compare(b.count, a.count));
+        return res;
+    }
+
+    public static class MethodMetrics {
+
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder deadLetters = new LongAdder();
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram execution = new LatencyHistogram();
+
+        public void processed(boolean success) {
+            count.increment();
+            if ( ! success )
+                errors.increment();
+        }
+
+        public void sampled(long waitNanos, long execNanos) {
+            queueWait.record(waitNanos);
+            execution.record(execNanos);
+        }
+
+        public MethodReport getReport(String name) {
+            MethodReport res = new MethodReport();
+            res.method = name;
+            res.count = count.sum();
+            res.errors = errors.sum();
+            res.deadLetters = deadLetters.sum();
+            res.queueWaitNanos = queueWait.snapshot();
+            res.executionNanos = execution.snapshot();
+            return res;
+        }
+    }
+
+    public static class Report implements Serializable {
+        String actorClass;
+        long count;
+        long errors;
+        long deadLetters;
+        List<MethodReport> methods = new ArrayList<>();
+
+        public String getActorClass() {
+            return actorClass;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getDeadLetters() {
+            return deadLetters;
+        }
+
+        public List<MethodReport> getMethods() {
+            return methods;
+        }
+
+        public MethodReport getMethod(String name) {
+            for (int i = 0; i < methods.size(); i++) {
+                if ( methods.get(i).method.equals(name) )
+                    return methods.get(i);
+            }
+            return null;
+        }
+    }
+
+    public static class MethodReport implements Serializable {
+        String method;
+        long count;
+        long errors;
+        long deadLetters;
+        LatencyHistogram.Snapshot queueWaitNanos;
+        LatencyHistogram.Snapshot executionNanos;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getDeadLetters() {
+            return deadLetters;
+        }
+
+        public LatencyHistogram.Snapshot getQueueWaitNanos() {
+            return queueWaitNanos;
+        }
+
+        public LatencyHistogram.Snapshot getExecutionNanos() {
+            return executionNanos;
+        }
+
+        @Override
+        public String toString() {
+            return method + " count:" + count + " errors:" + errors + " deadLetters:" + deadLetters +
+                       " wait[" + queueWaitNanos + "] exec[" + executionNanos + "]";
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import org.nustaq.kontraktor.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * appends spans as tab separated lines (see Span.toString) to a file. Output is buffered,
+ * call flush/close to make sure all spans are written.
+ */
+public class FileSpanSink implements SpanSink {
+
+    final BufferedWriter out;
+    boolean failed;
+
+    public FileSpanSink(File file) throws IOException {
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public synchronized void record(Span span) {
+        if ( failed )
+            return;
+        try {
+            out.write(span.toString());
+            out.write('\n');
+        } catch (IOException e) {
+            failed = true;
+            Log.Warn(this, e, "failed to write span, disabling file sink");
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
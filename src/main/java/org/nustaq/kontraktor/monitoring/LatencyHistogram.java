@@ -0,0 +1,164 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free log-linear histogram of nanosecond durations (HdrHistogram style with 3 significant bits,
+ * so values are recorded with <= 12.5% error). Fixed memory, safe to record from many threads.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BITS = 3;
+    static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    final AtomicLongArray totals = new AtomicLongArray(3); // count, sum, max
+
+    public void record(long nanos) {
+        if ( nanos < 0 )
+            nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, nanos);
+        long max;
+        while ( nanos > (max = totals.get(2)) && ! totals.compareAndSet(2, max, nanos) ) {
+            // retry
+        }
+    }
+
+    static int indexOf(long value) {
+        if ( value < SUB_COUNT )
+            return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1; // >= 1
+        int sub = (int) (value >>> (exp - 1)) & (SUB_COUNT - 1);
+        return exp * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return highest value falling into bucket index
+     */
+    static long valueOf(int index) {
+        int exp = index / SUB_COUNT;
+        long sub = index % SUB_COUNT;
+        if ( exp == 0 )
+            return sub;
+        return ((SUB_COUNT + sub + 1) << (exp - 1)) - 1;
+    }
+
+    public long getCount() {
+        return totals.get(0);
+    }
+
+    public long getMax() {
+        return totals.get(2);
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totals.get(1) / count;
+    }
+
+    /**
+     * @param percentile - 0..100
+     * @return (upper bound of) value at percentile
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if ( count == 0 )
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += counts.get(i);
+            if ( sum >= target )
+                return Math.min(valueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            totals.set(i, 0);
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * serializable summary (nanos)
+     */
+    public static class Snapshot implements Serializable {
+        long count;
+        double mean;
+        long p50, p90, p99, p999, max;
+
+        public Snapshot() {
+        }
+
+        public Snapshot(LatencyHistogram h) {
+            count = h.getCount();
+            mean = h.getMean();
+            p50 = h.getPercentile(50);
+            p90 = h.getPercentile(90);
+            p99 = h.getPercentile(99);
+            p999 = h.getPercentile(99.9);
+            max = h.getMax();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count:" + count + " mean:" + (long) mean + " p50:" + p50 + " p90:" + p90 + " p99:" + p99 + " p99.9:" + p999 + " max:" + max;
+        }
+    }
+}
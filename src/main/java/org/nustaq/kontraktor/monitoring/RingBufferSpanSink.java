@@ -0,0 +1,73 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * keeps the last N spans in memory (default sink)
+ */
+public class RingBufferSpanSink implements SpanSink {
+
+    public static int DEFAULT_CAPACITY = 8192;
+
+    final AtomicReferenceArray<Span> spans;
+    final AtomicLong written = new AtomicLong();
+
+    public RingBufferSpanSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RingBufferSpanSink(int capacity) {
+        spans = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void record(Span span) {
+        spans.set((int) (written.getAndIncrement() % spans.length()), span);
+    }
+
+    /**
+     * @return buffered spans, oldest first
+     */
+    public List<Span> getSpans() {
+        long end = written.get();
+        long start = Math.max(0, end - spans.length());
+        List<Span> res = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            Span span = spans.get((int) (i % spans.length()));
+            if ( span != null )
+                res.add(span);
+        }
+        return res;
+    }
+
+    public List<Span> getTrace(long traceId) {
+        List<Span> res = getSpans();
+        res.removeIf(span -> span.traceId != traceId);
+        return res;
+    }
+
+    public void clear() {
+        for (int i = 0; i < spans.length(); i++) {
+            spans.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import java.io.Serializable;
+
+/**
+ * a processed message (or callback) of a sampled trace. Start time is epoch based (micros) so spans
+ * of different processes can be related, durations are nanos.
+ */
+public class Span implements Serializable {
+
+    long traceId;
+    long spanId;
+    long parentSpanId; // 0 = root
+    String actor;
+    String method;
+    long startMicros;
+    long queueNanos;
+    long durationNanos;
+    boolean error;
+
+    public Span() {
+    }
+
+    public Span(TraceContext ctx, long parentSpanId, String actor, String method, long startMicros, long queueNanos, long durationNanos, boolean error) {
+        this.traceId = ctx.traceId;
+        this.spanId = ctx.spanId;
+        this.parentSpanId = parentSpanId;
+        this.actor = actor;
+        this.method = method;
+        this.startMicros = startMicros;
+        this.queueNanos = queueNanos;
+        this.durationNanos = durationNanos;
+        this.error = error;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    public long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getStartMicros() {
+        return startMicros;
+    }
+
+    /**
+     * @return time from enqueue to start of processing, -1 if unknown
+     */
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(traceId) + "\t" + Long.toHexString(spanId) + "\t" + Long.toHexString(parentSpanId) + "\t" +
+                   startMicros + "\t" + queueNanos + "\t" + durationNanos + "\t" + (error ? "E" : "-") + "\t" + actor + "\t" + method;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * identifies a span within a trace. Carried by CallEntry/RemoteCallEntry as the parent of the
+ * span created when the message is processed. Span id 0 denotes the (unrecorded) root of a trace.
+ */
+public class TraceContext implements Serializable {
+
+    long traceId;
+    long spanId;
+
+    public TraceContext() {
+    }
+
+    public TraceContext(long traceId, long spanId) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+    }
+
+    public static TraceContext newRoot() {
+        return new TraceContext(nextId(), 0);
+    }
+
+    public TraceContext newChild() {
+        return new TraceContext(traceId, nextId());
+    }
+
+    static long nextId() {
+        long id;
+        while ( (id = ThreadLocalRandom.current().nextLong()) == 0 ) {
+            // 0 denotes root
+        }
+        return id;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(traceId) + ":" + Long.toHexString(spanId);
+    }
+}
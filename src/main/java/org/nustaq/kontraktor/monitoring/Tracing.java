@@ -0,0 +1,106 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.monitoring;
+
+import org.nustaq.kontraktor.Actor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Message flow tracing. If enabled, a sampled TraceContext is attached to enqueued messages, callbacks
+ * and remote calls. Processing a traced message creates a child span (recorded to the sink) which
+ * becomes the current context, so messages sent and promises registered while processing it are
+ * causally linked across actors and remote hops.
+ *
+ * Disabled by default. Untraced messages start a new trace with a probability of 1/SAMPLE_RATE,
+ * so overhead for unsampled messages is a thread local lookup.
+ */
+public class Tracing {
+
+    public static volatile boolean ENABLED = false;
+    /**
+     * start a trace for 1 out of N messages sent outside of a trace, 1 = trace all
+     */
+    public static int SAMPLE_RATE = 1000;
+
+    static volatile SpanSink sink = new RingBufferSpanSink();
+    static final ThreadLocal<TraceContext> current = new ThreadLocal<>();
+    static final long epochMicrosBase = System.currentTimeMillis() * 1000 - System.nanoTime() / 1000;
+
+    public static TraceContext current() {
+        return current.get();
+    }
+
+    /**
+     * make ctx the current context of this thread
+     * @return the previous context, pass to exit
+     */
+    public static TraceContext enter(TraceContext ctx) {
+        TraceContext prev = current.get();
+        current.set(ctx);
+        return prev;
+    }
+
+    public static void exit(TraceContext prev) {
+        current.set(prev);
+    }
+
+    /**
+     * force a new trace e.g. for a specific request, messages sent afterwards by this thread are traced
+     */
+    public static TraceContext startTrace() {
+        TraceContext root = TraceContext.newRoot();
+        current.set(root);
+        return root;
+    }
+
+    /**
+     * @return context to attach to a message sent now: the current one, a new sampled root or null
+     */
+    public static TraceContext forSend() {
+        TraceContext ctx = current.get();
+        if ( ctx != null )
+            return ctx;
+        int rate = SAMPLE_RATE;
+        if ( rate <= 1 || ThreadLocalRandom.current().nextInt(rate) == 0 )
+            return TraceContext.newRoot();
+        return null;
+    }
+
+    public static void record(Span span) {
+        SpanSink s = sink;
+        if ( s != null )
+            s.record(span);
+    }
+
+    public static SpanSink getSink() {
+        return sink;
+    }
+
+    public static void setSink(SpanSink sink) {
+        Tracing.sink = sink;
+    }
+
+    public static long epochMicros() {
+        return epochMicrosBase + System.nanoTime() / 1000;
+    }
+
+    public static String actorName(Actor actor) {
+        Actor real = actor.getActor();
+        return (real != null ? real : actor).getClass().getSimpleName().replace("_ActorProxy", "");
+    }
+}
@@ -88,6 +88,7 @@ public class ActorClient<T extends Actor> {
                 if ( coding.getCrossPlatformShortClazzNames() != null )
                    reg.getConf().registerCrossPlatformClassMappingUseSimpleName(coding.getCrossPlatformShortClazzNames());
                 writesocket.setConf(reg.getConf());
+                writesocket.setWritableListener(reg::signalSend); // resume polling remote refs once drained
 
                 Actor.current(); // ensure running in actor thread
 
@@ -94,6 +94,7 @@ public class ActorServer {
             reg.setDisconnectHandler(disconnectHandler);
             //reg.constraints(connector.getConstraints());
             writesocket.setConf(reg.getConf());
+            writesocket.setWritableListener(reg::signalSend); // resume polling remote refs once drained
             Actor.current(); // ensure running in actor thread
             poller.get().scheduleSendLoop(reg);
             reg.setFacadeActor(facade);
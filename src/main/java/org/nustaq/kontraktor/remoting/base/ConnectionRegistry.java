@@ -22,6 +22,8 @@ import org.nustaq.kontraktor.annotations.RateLimited;
 import org.nustaq.kontraktor.annotations.Remoted;
 import org.nustaq.kontraktor.annotations.Secured;
 import org.nustaq.kontraktor.impl.*;
+import org.nustaq.kontraktor.monitoring.TraceContext;
+import org.nustaq.kontraktor.monitoring.Tracing;
 import org.nustaq.kontraktor.remoting.encoding.*;
 import org.nustaq.kontraktor.routers.AbstractKrouter;
 import org.nustaq.kontraktor.util.Log;
@@ -51,6 +53,14 @@ public abstract class ConnectionRegistry {
 
     public static final Object OUT_OF_ORDER_SEQ = "OOOS";
     public static int MAX_BATCH_CALLS = 500;
+    /**
+     * if true, outgoing calls request the method table of a remote actor once and then address methods
+     * by index instead of sending the method name. Json/minbin clients never request a table,
+     * so they keep sending names.
+     */
+    public static boolean USE_METHOD_INDEX = true;
+    private static final byte CALL_ALLOWED = 1;
+    private static final byte CALL_DENIED = 2;
 
     public static void registerDefaultClassMappings(FSTConfiguration conf) {
         conf.registerCrossPlatformClassMapping(new String[][]{
@@ -78,10 +88,23 @@ public abstract class ConnectionRegistry {
     protected ConcurrentLinkedQueue<Actor> remoteActors = new ConcurrentLinkedQueue<>();
     protected ConcurrentHashMap<Long,Actor> remoteActorMap = new ConcurrentHashMap<>();
     protected volatile boolean terminated = false;
+    protected volatile RemoteRefPolling sendLoop; // sends messages of remote refs
     protected Consumer<Actor> disconnectHandler;
     protected boolean isObsolete;
     protected Map<String,RateLimitEntry> rateLimits;
     private Actor facadeActor;
+    // binary coding: RemoteCallEntrySerializer writes entries and streams call args into the batch
+    protected boolean streamArgs;
+    // remote actor id => remote method index for each index of the local invoker (-1 if not present remotely)
+    protected ConcurrentHashMap<Long,int[]> remoteMethodIndices = new ConcurrentHashMap<>();
+    // ids of published actors a method table has been sent for
+    protected Set<Long> announcedMethodTables = ConcurrentHashMap.newKeySet();
+    // published actors with bounded mailbox called by the peer, their pressure is signaled (see sendPressureChanges)
+    protected ConcurrentHashMap<Long,Actor> pressureWatched = new ConcurrentHashMap<>();
+    // ids of watched actors the peer has been told to be pressured
+    protected Set<Long> pressureSignaled = ConcurrentHashMap.newKeySet();
+    // remoteCallInterceptor results by method index, avoids annotation lookups for indexed calls
+    protected ConcurrentHashMap<ActorInvoker,byte[]> remoteCallVerdicts = new ConcurrentHashMap<>();
     protected BiFunction<Actor,String,Boolean> remoteCallInterceptor =
     (actor,methodName) -> {
         Method method = actor.__getCachedMethod(methodName, actor, null);
@@ -140,6 +163,10 @@ public abstract class ConnectionRegistry {
 		conf.registerSerializer(CallbackWrapper.class, new CallbackRefSerializer(this), true);
 		conf.registerSerializer(Spore.class, new SporeRefSerializer(), true);
         conf.registerSerializer(Timeout.class, new TimeoutSerializer(), false);
+        streamArgs = code != null && (code.getCoding() == SerializerType.FSTSer || code.getCoding() == SerializerType.UnsafeBinary);
+        if ( streamArgs ) {
+            conf.registerSerializer(RemoteCallEntry.class, new RemoteCallEntrySerializer(conf), false);
+        }
         conf.registerClass(RemoteCallEntry.class);
         conf.registerClass(Spore.class);
         conf.registerClass(CallbackWrapper.class);
@@ -179,6 +206,22 @@ public abstract class ConnectionRegistry {
 
     public void setTerminated(boolean terminated) {
         this.terminated = terminated;
+        if ( terminated )
+            signalSend(); // let the send loop remove this
+    }
+
+    public void setSendLoop(RemoteRefPolling sendLoop) {
+        this.sendLoop = sendLoop;
+    }
+
+    /**
+     * called once a message has been enqueued to one of the remote refs of this connection (see RemoteScheduler),
+     * triggers polling and sending.
+     */
+    public void signalSend() {
+        RemoteRefPolling loop = sendLoop;
+        if ( loop != null )
+            loop.signal();
     }
 
     public long publishActor(Actor act) {
@@ -217,6 +260,7 @@ public abstract class ConnectionRegistry {
             Log.Debug(this, ""+act.getClass().getSimpleName()+" unpublished");
             publishedActorMap.remove(integer);
             publishedActorMappingReverse.remove(act.getActorRef());
+            announcedMethodTables.remove(integer);
             act.__removeRemoteConnection(this);
             if ( act instanceof RemotedActor) {
                 String connectionIdentifier = getSocketRef().getConnectionIdentifier();
@@ -299,6 +343,7 @@ public abstract class ConnectionRegistry {
 
     protected void removeRemoteActor(Actor act) {
         remoteActorMap.remove(act.__remoteId);
+        remoteMethodIndices.remove(act.__remoteId);
         remoteActors.remove(act);
         try {
             act.__stop();
@@ -378,9 +423,25 @@ public abstract class ConnectionRegistry {
 
     // dispatch incoming remotecalls, return true if a future has been created
     protected boolean processRemoteCallEntry(ObjectSocket objSocket, RemoteCallEntry response, List<IPromise> createdFutures, Object authContext) throws Exception {
+        if ( ! Tracing.ENABLED )
+            return dispatchRemoteCallEntry(objSocket, response, createdFutures, authContext);
+        // messages enqueued for this entry continue the sender's trace
+        TraceContext prev = Tracing.enter(response.getTrace());
+        try {
+            return dispatchRemoteCallEntry(objSocket, response, createdFutures, authContext);
+        } finally {
+            Tracing.exit(prev);
+        }
+    }
+
+    protected boolean dispatchRemoteCallEntry(ObjectSocket objSocket, RemoteCallEntry response, List<IPromise> createdFutures, Object authContext) throws Exception {
         RemoteCallEntry read = response;
         long receiverKey = read.getReceiverKey();
         if (read.getQueue() == read.MAILBOX) {
+            if ( read.isArgsFailed() ) {
+                rejectFailedArgs(objSocket, read);
+                return false;
+            }
             if ( remoteCallMapper != null ) {
                 read = (RemoteCallEntry) remoteCallMapper.apply(this,read);
             }
@@ -419,15 +480,28 @@ public abstract class ConnectionRegistry {
                     Log.Lg.error(this, null, "registry:" + System.identityHashCode(this) + " no actor found for key " + read);
                     throw new UnknownActorException("unknown actor id " + receiverKey);
                 }
+                int methodIndex = read.getMethodIndex();
+                if ( methodIndex >= 0 ) {
+                    if ( ! isRemoteCallAllowed(targetActor, methodIndex) ) {
+                        // dispatch by name, so rejection is reported the same way as for named calls
+                        ActorInvoker invoker = targetActor.getActor().__invoker;
+                        read.setMethod( invoker != null && methodIndex < invoker.getNumMethods() ? invoker.getMethodName(methodIndex) : "#"+methodIndex );
+                    }
+                } else if ( read.isMethodTableRequested() && remoteCallMapper == null ) {
+                    announceMethodTable(objSocket, receiverKey, targetActor);
+                }
                 long delay = 0;
                 if ( rateLimits != null ) {
-                    RateLimitEntry rateLimitEntry = rateLimits.get(read.getMethod());
+                    String methodName = read.getMethodIndex() >= 0 ? targetActor.getActor().__invoker.getMethodName(read.getMethodIndex()) : read.getMethod();
+                    RateLimitEntry rateLimitEntry = rateLimits.get(methodName);
                     if ( rateLimitEntry != null ) {
                         long now = System.currentTimeMillis();
-                        delay = rateLimitEntry.registerCall(now, read.getMethod());
+                        delay = rateLimitEntry.registerCall(now, methodName);
                     }
                 }
                 targetActor.__dispatchRemoteCall(objSocket, read, this, createdFutures, authContext, remoteCallInterceptor, delay);
+                if ( targetActor.getActor().__overflow != null )
+                    watchPressure(receiverKey, targetActor.getActor());
             }
         } else if (read.getQueue() == read.CBQ) {
             if ( remoteCallMapper != null ) {
@@ -458,6 +532,8 @@ public abstract class ConnectionRegistry {
                     publishedCallback.complete(read,null);
                 } else {
                     read.unpackArgs(conf);
+                    if ( read.getArgs() == null ) // not expected, results are always sent with args
+                        read.setArgs(new Object[] { null, "missing result" });
                     if (isContinue)
                         read.getArgs()[1] = Callback.CONT; // enable ==
                     publishedCallback.complete(read.getArgs()[0], read.getArgs()[1]); // is a wrapper enqueuing in caller
@@ -465,15 +541,146 @@ public abstract class ConnectionRegistry {
                 if (!isContinue)
                     removePublishedObject(receiverKey);
             }
+        } else if (read.getQueue() == read.METHOD_TABLE) {
+            receiveMethodTable(read);
+        } else if (read.getQueue() == read.PRESSURE) {
+            receivePressure(read);
         }
         return createdFutures != null && createdFutures.size() > 0;
     }
 
+    /**
+     * sender failed to serialize the args of a call, answer its future and callback with an error
+     * instead of invoking
+     */
+    protected void rejectFailedArgs(ObjectSocket chan, RemoteCallEntry read) {
+        String error = "sender failed to serialize arguments of remote call " + (read.getMethod() != null ? read.getMethod() : "#" + read.getMethodIndex());
+        Log.Warn(this, error);
+        inFacadeThread( () -> {
+            if ( read.getFutureKey() != 0 )
+                receiveCBResult(chan, read.getFutureKey(), null, error);
+            if ( read.getCB() != null )
+                read.getCB().reject(error);
+        });
+    }
+
+    /**
+     * check a call addressed by method index using remoteCallInterceptor. Results are cached per
+     * actor class and index, so annotations are evaluated once per connection only.
+     */
+    protected boolean isRemoteCallAllowed(Actor targetActor, int methodIndex) {
+        Actor actor = targetActor.getActor();
+        ActorInvoker invoker = actor.__invoker;
+        if ( invoker == null || methodIndex >= invoker.getNumMethods() ) {
+            return false;
+        }
+        byte verdicts[] = remoteCallVerdicts.computeIfAbsent(invoker, inv -> new byte[inv.getNumMethods()]);
+        byte verdict = verdicts[methodIndex];
+        if ( verdict == 0 ) {
+            // racy, but interceptor result does not change for a connection
+            verdict = remoteCallInterceptor.apply(actor, invoker.getMethodName(methodIndex)) ? CALL_ALLOWED : CALL_DENIED;
+            verdicts[methodIndex] = verdict;
+        }
+        return verdict == CALL_ALLOWED;
+    }
+
+    /**
+     * send method table of a published actor to remote side once, so subsequent calls
+     * can be addressed by index. Krouter facades forward calls, so they do not announce tables.
+     */
+    protected void announceMethodTable(ObjectSocket chan, long receiverKey, Actor targetActor) {
+        ActorInvoker invoker = targetActor.getActor().__invoker;
+        if ( invoker == null || facadeActor instanceof AbstractKrouter || ! announcedMethodTables.add(receiverKey) )
+            return;
+        Object names[] = new Object[invoker.getNumMethods()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = invoker.getMethodName(i);
+        }
+        RemoteCallEntry rce = new RemoteCallEntry(0, receiverKey, null, null, conf.asByteArray(names));
+        rce.setQueue(rce.METHOD_TABLE);
+        targetActor.execute( () -> {
+            try {
+                writeObject(chan, rce);
+            } catch (Exception e) {
+                Log.Warn(this,e);
+            }
+        });
+    }
+
+    /**
+     * map method table of remote actor to local invoker indices
+     */
+    protected void receiveMethodTable(RemoteCallEntry read) {
+        Actor remoteRef = remoteActorMap.get(read.getReceiverKey());
+        if ( remoteRef == null || remoteRef.getActor().__invoker == null )
+            return;
+        read.unpackArgs(conf);
+        Object names[] = read.getArgs();
+        HashMap<String,Integer> remoteIndex = new HashMap<>(names.length*2);
+        for (int i = 0; i < names.length; i++) {
+            remoteIndex.put((String) names[i], i);
+        }
+        ActorInvoker local = remoteRef.getActor().__invoker;
+        int indices[] = new int[local.getNumMethods()];
+        for (int i = 0; i < indices.length; i++) {
+            Integer index = remoteIndex.get(local.getMethodName(i));
+            indices[i] = index == null ? -1 : index;
+        }
+        remoteMethodIndices.put(read.getReceiverKey(), indices);
+    }
+
+    /**
+     * Peers having requested a method table understand control entries, so they are told about the pressure
+     * of bounded mailboxes they send to. Control entries are written by the send loop, a call changing the
+     * state just wakes it up.
+     */
+    protected void watchPressure(long receiverKey, Actor actor) {
+        if ( ! announcedMethodTables.contains(receiverKey) )
+            return;
+        if ( pressureWatched.putIfAbsent(receiverKey, actor) == null || actor.isMailboxPressured() != pressureSignaled.contains(receiverKey) )
+            signalSend();
+    }
+
+    /**
+     * tell the peer about mailboxes turning pressured or relieved since the last run of the send loop.
+     * Relief is noticed with the next send (e.g. of a result), at latest after RemoteRefPolling.IDLE_POLL_MILLIS.
+     */
+    protected void sendPressureChanges(ObjectSocket chan) throws Exception {
+        for (Map.Entry<Long, Actor> entry : pressureWatched.entrySet()) {
+            long id = entry.getKey();
+            boolean pressured = entry.getValue().isMailboxPressured();
+            if ( pressured == pressureSignaled.contains(id) )
+                continue;
+            if ( pressured )
+                pressureSignaled.add(id);
+            else
+                pressureSignaled.remove(id);
+            RemoteCallEntry rce = new RemoteCallEntry(0, id, null, null, conf.asByteArray(new Object[] { pressured }));
+            rce.setQueue(rce.PRESSURE);
+            writeObject(chan, rce);
+        }
+    }
+
+    /**
+     * remote actor's bounded mailbox turned pressured or relieved, reflected by isMailboxPressured() of its remote ref
+     */
+    protected void receivePressure(RemoteCallEntry read) {
+        Actor remoteRef = remoteActorMap.get(read.getReceiverKey());
+        if ( remoteRef == null )
+            return;
+        read.unpackArgs(conf);
+        remoteRef.getActor().__remotePressured = (Boolean) read.getArgs()[0];
+    }
+
     /**
      * cleanup after (virtual) connection close
      */
     public void cleanUp() {
         conf.clearCaches();
+        remoteMethodIndices.clear();
+        announcedMethodTables.clear();
+        pressureWatched.clear();
+        pressureSignaled.clear();
         stopRemoteRefs();
         publishedActorMappingReverse.keySet().forEach((act) -> {
             if (act instanceof Actor)
@@ -502,6 +709,7 @@ public abstract class ConnectionRegistry {
     protected void writeObject(ObjectSocket chan, RemoteCallEntry rce) throws Exception {
         try {
             chan.writeObject(rce);
+            signalSend(); // sockets buffer until flushed by the send loop
         } catch (Exception e) {
             Log.Debug(this,"a connection closed '"+e.getMessage()+"', terminating registry");
             disconnect();
@@ -510,7 +718,7 @@ public abstract class ConnectionRegistry {
 
     public void inFacadeThread(Runnable toRun) {
         if (facadeActor!=null) {
-            if ( Thread.currentThread() != facadeActor.getCurrentDispatcher() ) {
+            if ( Thread.currentThread() != facadeActor.__currentDispatcher ) {
                 facadeActor.execute( toRun );
                 return;
             }
@@ -530,9 +738,12 @@ public abstract class ConnectionRegistry {
     }
 
     public void receiveCBResult(ObjectSocket chan, long id, Object result, Object error) {
-        RemoteCallEntry rce = new RemoteCallEntry(0, id, null, null, conf.asByteArray(new Object[] {result,error}));
+        RemoteCallEntry rce = new RemoteCallEntry(0, id, null, new Object[] {result,error}, null);
         rce.setQueue(rce.CBQ);
+        packArgs(rce); // on the thread of the resolving actor
         rce.setContinue( error == Actors.CONT );
+        if ( Tracing.ENABLED )
+            rce.setTrace(Tracing.current());
         try {
             writeObject(chan, rce);
         } catch (Exception e) {
@@ -552,6 +763,37 @@ public abstract class ConnectionRegistry {
         cleanUp();
     }
 
+    /**
+     * @return true if call args are streamed by RemoteCallEntrySerializer instead of being packed
+     */
+    public boolean isStreamArgs() {
+        return streamArgs;
+    }
+
+    /**
+     * Callback results are encoded right away on the thread of the resolving actor, so later modifications
+     * of the result are not seen by the peer. Call args are taken from the remote ref's mailbox by the send
+     * loop anyway, with binary coding they are streamed into the batch by RemoteCallEntrySerializer.
+     * With binary coding a failure is sent as error result instead of breaking the batch.
+     */
+    protected void packArgs(RemoteCallEntry rce) {
+        if ( ! streamArgs ) {
+            rce.pack(conf);
+            return;
+        }
+        if ( rce.getQueue() != RemoteCallEntry.CBQ ) {
+            rce.packCallback();
+            return;
+        }
+        try {
+            rce.pack(conf);
+        } catch (Exception e) {
+            Log.Error(this, e, "failed to serialize callback result");
+            rce.setArgs(new Object[] { null, "failed to serialize result: " + e });
+            rce.pack(conf);
+        }
+    }
+
     public FSTConfiguration getConf() {
         return conf;
     }
@@ -576,13 +818,17 @@ public abstract class ConnectionRegistry {
     }
 
     /**
-     * poll remote actor proxies and send. return true if there was at least one message
+     * poll remote actor proxies and send. return true if there was at least one message.
+     * Remote refs are not polled while the socket can't write (above its high watermark), so their
+     * mailboxes fill up and backpressure the senders.
      * @param chanHolder
      */
     public boolean pollAndSend2Remote(AtomicReference<ObjectSocket> chanHolder) throws Exception {
         ObjectSocket chan = chanHolder.get();
         if ( chan == null || ! chan.canWrite() )
             return false;
+        if ( ! pressureWatched.isEmpty() )
+            sendPressureChanges(chan); // ahead of queued calls, flushed below
         boolean hadAnyMsg = false;
         ArrayList<Actor> toRemove = null;
         int sumQueued;
@@ -592,16 +838,12 @@ public abstract class ConnectionRegistry {
             for (Iterator<Actor> iterator = remoteActors.iterator(); iterator.hasNext(); ) {
                 Actor remoteActor = iterator.next();
                 boolean cb = false; // true; FIXME
-                CallEntry ce = (CallEntry) remoteActor.__cbQueue.poll();
-                if ( ce == null ) {
-                    cb = false;
-                    ce = (CallEntry) remoteActor.__mailbox.poll();
-                }
+                CallEntry ce = DispatcherThread.pollActor(remoteActor, DispatcherThread.POLL_ALL_Q); // priority calls are sent first
                 if ( ce != null) {
-                    if ( ce.getMethod().getName().equals("close") ) {
+                    if ( ce.getMethodName().equals("close") ) {
                         closeRef(ce,chan);
                     } else
-                    if ( ce.getMethod().getName().equals("asyncstop") ) {
+                    if ( ce.getMethodName().equals("asyncstop") ) {
                         Log.Lg.error(this, null, "cannot stop remote actors" );
                     } else {
                         long futId = 0;
@@ -609,9 +851,12 @@ public abstract class ConnectionRegistry {
                             futId = registerPublishedCallback(ce.getFutureCB());
                         }
                         try {
-                            RemoteCallEntry rce = new RemoteCallEntry(futId, remoteActor.__remoteId, ce.getMethod().getName(), ce.getArgs(), null );
+                            RemoteCallEntry rce = new RemoteCallEntry(futId, remoteActor.__remoteId, ce.getMethodName(), ce.getArgs(), null );
                             rce.setQueue(cb ? rce.CBQ : rce.MAILBOX);
-                            rce.pack(conf);
+                            rce.setTrace(ce.getTrace());
+                            if ( USE_METHOD_INDEX )
+                                setRemoteMethodIndex(remoteActor, ce, rce);
+                            packArgs(rce);
                             writeObject(chan, rce);
                             sumQueued++;
                             hadAnyMsg = true;
@@ -638,11 +883,22 @@ public abstract class ConnectionRegistry {
                 toRemove.forEach( (act) -> removeRemoteActor(act) );
             }
             fullqueued += sumQueued;
-        } while ( sumQueued > 0 && fullqueued < MAX_BATCH_CALLS);
+        } while ( sumQueued > 0 && fullqueued < MAX_BATCH_CALLS && chan.canWrite() ); // stop draining remote refs above high watermark
         chan.flush();
         return hadAnyMsg;
     }
 
+    protected void setRemoteMethodIndex(Actor remoteActor, CallEntry ce, RemoteCallEntry rce) {
+        int indices[] = remoteMethodIndices.get(remoteActor.__remoteId);
+        if ( indices == null ) {
+            rce.setMethodTableRequested(true);
+        } else if ( ce.getInvoker() == remoteActor.getActor().__invoker ) { // else reflective fallback, keep name
+            int index = indices[ce.getMethodIndex()];
+            if ( index >= 0 )
+                rce.setMethodIndex(index);
+        }
+    }
+
     public abstract AtomicReference<ObjectSocket> getWriteObjectSocket();
 
     public ObjectSocket getSocketRef() {
@@ -662,6 +918,13 @@ public abstract class ConnectionRegistry {
     }
 
 
+    /**
+     * @return true if calls to given remote actor ref are sent by method index
+     */
+    public boolean hasRemoteMethodTable(Actor remoteRef) {
+        return remoteMethodIndices.containsKey(remoteRef.getActorRef().__remoteId);
+    }
+
     public int getRemoteActorSize() {
         return remoteActorMap.size();
     }
@@ -47,10 +47,20 @@ public interface ObjectSocket {
 
     void close() throws IOException;
 
+    /**
+     * @return false if the connection does not accept more data for now (backpressure), remote refs
+     * sending via this socket are not polled then
+     */
     default boolean canWrite() {
         return true;
     }
 
+    /**
+     * @param listener - run once canWrite() turns true again, ignored by sockets never refusing writes
+     */
+    default void setWritableListener(Runnable listener) {
+    }
+
     boolean isClosed();
 
     int getId();
@@ -19,18 +19,31 @@ package org.nustaq.kontraktor.remoting.base;
 import org.nustaq.kontraktor.Actor;
 import org.nustaq.kontraktor.IPromise;
 import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.ActorInvoker;
 import org.nustaq.kontraktor.impl.BackOffStrategy;
+import org.nustaq.kontraktor.impl.CallEntry;
+import org.nustaq.kontraktor.impl.CallEntryPool;
 import org.nustaq.kontraktor.util.Log;
 
 import java.io.IOError;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * polls queues of remote actor proxies and serializes messages to their associated object sockets.
  *
+ * Polling is event driven: enqueueing a message to a remote actor proxy signals its ConnectionRegistry
+ * (see RemoteScheduler), which schedules a poll in the actor thread owning this instance. Signals
+ * arriving while a poll is pending are coalesced, so bursts are still sent batched. While a socket
+ * can't write (backpressure, longpoll without pending request), polling is retried after
+ * EMPTY_Q_BACKOFF_WAIT_MILLIS (sockets signaling writability, see ObjectSocket.setWritableListener, resume
+ * earlier). Otherwise idle connections are checked every IDLE_POLL_MILLIS only. If the actor running the
+ * polls has a bounded mailbox, polls are scheduled via its callback queue, so a full mailbox neither blocks
+ * signaling threads nor drops polls (e.g. the ones sending mailbox pressure, see BoundedMailbox).
+ *
  * Note for transparent websocket/longpoll reconnect:
  * Terminated / Disconnected remote actors (registries) are removed from the entry list,
  * so regular actor messages sent to a terminated remote actor queue up in its mailbox.
@@ -49,8 +62,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class RemoteRefPolling implements Runnable {
 
+    /**
+     * retry interval in case a socket can't write
+     */
     public static long EMPTY_Q_BACKOFF_WAIT_MILLIS = BackOffStrategy.SLEEP_NANOS/1000/1000;
-    public static long NONE_CONNETCED_WAIT_MILLIS = 100;
+    /**
+     * safety net poll interval if all connections are idle
+     */
+    public static long IDLE_POLL_MILLIS = 1000;
 
 
     ArrayList<ScheduleEntry> sendJobs = new ArrayList<>();
@@ -72,62 +91,79 @@ public class RemoteRefPolling implements Runnable {
         Promise promise = new Promise();
         sendJobs.add(new ScheduleEntry(reg, promise));
         synchronized (this) {
-            if ( ! loopStarted ) {
-                loopStarted = true;
-                Actor.current().execute(this);
-            }
+            if ( pollActor == null )
+                pollActor = Actor.current();
         }
+        reg.setSendLoop(this);
+        signal();
         return promise;
     }
 
-    boolean loopStarted = false;
-    boolean underway = false;
-    Thread pollThread;
+    Actor pollActor; // actor running the polls
+    final AtomicBoolean signaled = new AtomicBoolean(false);
+    long retryDue = 0; // time of the pending retry timer, 0 if none
+    volatile boolean underway = false;
+    volatile Thread pollThread;
+
+    /**
+     * schedule a poll, can be called from any thread. Coalesces with an already scheduled one.
+     */
+    public void signal() {
+        if ( underway && Thread.currentThread() == pollThread )
+            return; // sent and flushed by the running poll
+        if ( signaled.compareAndSet(false, true) ) {
+            Actor actor = pollActor.getActor();
+            if ( actor.__overflow != null ) {
+                CallEntry ce = CallEntryPool.obtain(this, ActorInvoker.RUNNABLE, 0, null, null, actor, true, null);
+                actor.__scheduler.put2QueuePolling(actor.__cbQueue, true, ce, actor);
+            } else
+                pollActor.execute(this);
+        }
+    }
 
-    int remoteRefCounter = 0; // counts active remote refs, if none backoff remoteref polling massively eats cpu
+    int blockedCounter = 0; // counts sockets which can't write, those are retried by timer
     public void run() {
         pollThread = Thread.currentThread();
         if ( underway )
             return;
         underway = true;
+        signaled.set(false); // reset before polling, so no message enqueued afterwards is missed
         try {
             int count = 1;
             while( count > 0 ) { // as long there are messages, keep sending them
                 count = onePoll();
-                if ( sendJobs.size() > 0 ) {
-                    if ( count > 0 ) {
-                        int debug =1;
-                    }
-                    else {
-                        if ( remoteRefCounter == 0 ) // no remote actors registered
-                        {
-                            Actor.current().delayed(NONE_CONNETCED_WAIT_MILLIS, this); // backoff massively
-                        } else {
-                            Actor.current().delayed(EMPTY_Q_BACKOFF_WAIT_MILLIS, this); // backoff a bit (remoteactors present, no messages)
-                        }
-                    }
-                } else {
-                    // no schedule entries (== no clients)
-                    Actor.current().delayed(NONE_CONNETCED_WAIT_MILLIS, this );
-                }
+            }
+            if ( sendJobs.size() > 0 ) {
+                scheduleRetry(blockedCounter > 0 ? EMPTY_Q_BACKOFF_WAIT_MILLIS : IDLE_POLL_MILLIS);
             }
         } finally {
             underway = false;
         }
     }
 
+    // at most one effective timer, a shorter delay supersedes a pending one (e.g. idle poll vs. blocked retry)
+    protected void scheduleRetry(long millis) {
+        long due = System.currentTimeMillis() + millis;
+        if ( retryDue != 0 && retryDue <= due )
+            return;
+        retryDue = due;
+        pollActor.delayed(millis, () -> {
+            if ( retryDue != due )
+                return; // superseded
+            retryDue = 0;
+            run();
+        });
+    }
+
     protected int onePoll() {
         int count = 1;
         int maxit = 1;
-        remoteRefCounter = 0;
+        blockedCounter = 0;
         //while ( maxit > 0 && count > 0)
         {
             count = 0;
             for (int i = 0; i < sendJobs.size(); i++) {
                 ScheduleEntry entry = sendJobs.get(i);
-                if ( entry.reg.getRemoteActorSize() > 0 ) {
-                    remoteRefCounter++;
-                }
                 if ( entry.reg.isTerminated() ) {
                     terminateEntry(i, entry, "terminated", null );
                     i--;
@@ -137,6 +173,10 @@ public class RemoteRefPolling implements Runnable {
                     if (entry.reg.pollAndSend2Remote(entry.reg.getWriteObjectSocket())) {
                         count++;
                     }
+                    ObjectSocket socket = entry.reg.getWriteObjectSocket().get();
+                    if ( socket == null || ! socket.canWrite() ) {
+                        blockedCounter++;
+                    }
                 } catch (Throwable e) {
                     if ( e instanceof InvocationTargetException && ((InvocationTargetException) e).getTargetException() != null )
                         e = ((InvocationTargetException) e).getTargetException();
@@ -154,6 +194,7 @@ public class RemoteRefPolling implements Runnable {
     }
 
     protected void terminateEntry(int i, ScheduleEntry entry, Object res, Throwable e) {
+        entry.reg.setSendLoop(null);
         entry.reg.stopRemoteRefs();
         sendJobs.remove(i);
         entry.promise.complete(res,e);
@@ -0,0 +1,234 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.remoting.encoding;
+
+import org.nustaq.serialization.FSTClazzInfo;
+import org.nustaq.serialization.FSTClazzNameRegistry;
+import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTEncoder;
+import org.nustaq.serialization.FSTObjectOutput;
+import org.nustaq.serialization.util.FSTUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes through the encoder of an enclosing stream, but with own class names and positions relative to
+ * the point it has been attached at. So an object graph is encoded in place into the enclosing stream as a
+ * self contained block, which decodes like conf.asByteArray output (see RemoteCallEntrySerializer).
+ */
+class ArgsEncoder implements FSTEncoder {
+
+    FSTConfiguration conf;
+    final FSTClazzNameRegistry clnames;
+    FSTEncoder enclosing;
+    int base;
+
+    ArgsEncoder(FSTConfiguration conf) {
+        this.conf = conf;
+        clnames = new FSTClazzNameRegistry(conf.getClassRegistry());
+    }
+
+    /**
+     * start a block at the current position of given encoder
+     */
+    void attach(FSTEncoder enclosing) {
+        this.enclosing = enclosing;
+        base = enclosing.getWritten();
+        clnames.clear();
+    }
+
+    void detach() {
+        enclosing = null;
+    }
+
+    @Override
+    public void setConf(FSTConfiguration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public FSTConfiguration getConf() {
+        return conf;
+    }
+
+    @Override
+    public void writeRawBytes(byte[] bufferedName, int off, int length) throws IOException {
+        enclosing.writeRawBytes(bufferedName, off, length);
+    }
+
+    @Override
+    public void writePrimitiveArray(Object array, int start, int length) throws IOException {
+        enclosing.writePrimitiveArray(array, start, length);
+    }
+
+    @Override
+    public void writeStringUTF(String str) throws IOException {
+        enclosing.writeStringUTF(str);
+    }
+
+    @Override
+    public void writeFShort(short c) throws IOException {
+        enclosing.writeFShort(c);
+    }
+
+    @Override
+    public void writeFChar(char c) throws IOException {
+        enclosing.writeFChar(c);
+    }
+
+    @Override
+    public void writeFByte(int v) throws IOException {
+        enclosing.writeFByte(v);
+    }
+
+    @Override
+    public void writeFInt(int anInt) throws IOException {
+        enclosing.writeFInt(anInt);
+    }
+
+    @Override
+    public void writeFLong(long anInt) throws IOException {
+        enclosing.writeFLong(anInt);
+    }
+
+    @Override
+    public void writeFFloat(float value) throws IOException {
+        enclosing.writeFFloat(value);
+    }
+
+    @Override
+    public void writeFDouble(double value) throws IOException {
+        enclosing.writeFDouble(value);
+    }
+
+    @Override
+    public int getWritten() {
+        return enclosing.getWritten() - base;
+    }
+
+    @Override
+    public void skip(int i) {
+        enclosing.skip(i);
+    }
+
+    @Override
+    public void writeInt32At(int position, int v) {
+        enclosing.writeInt32At(base + position, v);
+    }
+
+    @Override
+    public void ensureFree(int bytes) throws IOException {
+        enclosing.ensureFree(bytes);
+    }
+
+    @Override
+    public byte[] getBuffer() {
+        return enclosing.getBuffer();
+    }
+
+    // called by FSTObjectOutput.resetForReUse, the enclosing stream is left alone
+    @Override
+    public void reset(byte[] outbytes) {
+        clnames.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void setOutstream(OutputStream outstream) {
+    }
+
+    @Override
+    public void registerClass(Class possible) {
+        clnames.registerClass(possible, conf);
+    }
+
+    @Override
+    public void writeClass(Class cl) {
+        try {
+            clnames.encodeClass(this, cl);
+        } catch (IOException e) {
+            FSTUtil.<RuntimeException>rethrow(e);
+        }
+    }
+
+    @Override
+    public void writeClass(FSTClazzInfo clInf) {
+        try {
+            clnames.encodeClass(this, clInf);
+        } catch (IOException e) {
+            FSTUtil.<RuntimeException>rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean writeTag(byte tag, Object infoOrObject, long somValue, Object toWrite, FSTObjectOutput oout) throws IOException {
+        return enclosing.writeTag(tag, infoOrObject, somValue, toWrite, oout);
+    }
+
+    @Override
+    public boolean writeAttributeName(FSTClazzInfo.FSTFieldInfo subInfo, Object toWrite) {
+        return enclosing.writeAttributeName(subInfo, toWrite);
+    }
+
+    @Override
+    public void externalEnd(FSTClazzInfo clz) {
+        enclosing.externalEnd(clz);
+    }
+
+    @Override
+    public boolean isWritingAttributes() {
+        return enclosing.isWritingAttributes();
+    }
+
+    @Override
+    public boolean isPrimitiveArray(Object array, Class<?> componentType) {
+        return enclosing.isPrimitiveArray(array, componentType);
+    }
+
+    @Override
+    public boolean isTagMultiDimSubArrays() {
+        return enclosing.isTagMultiDimSubArrays();
+    }
+
+    @Override
+    public void writeVersionTag(int version) throws IOException {
+        enclosing.writeVersionTag(version);
+    }
+
+    @Override
+    public boolean isByteArrayBased() {
+        return enclosing.isByteArrayBased();
+    }
+
+    @Override
+    public void writeArrayEnd() {
+        enclosing.writeArrayEnd();
+    }
+
+    @Override
+    public void writeFieldsEnd(FSTClazzInfo serializationInfo) {
+        enclosing.writeFieldsEnd(serializationInfo);
+    }
+}
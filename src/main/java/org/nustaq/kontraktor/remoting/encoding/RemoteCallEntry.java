@@ -18,6 +18,7 @@ package org.nustaq.kontraktor.remoting.encoding;
 
 
 import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.monitoring.TraceContext;
 import org.nustaq.kson.ArgTypes;
 import org.nustaq.serialization.FSTConfiguration;
 import org.nustaq.serialization.coders.JSONAsString;
@@ -32,10 +33,19 @@ public class RemoteCallEntry implements Serializable {
 
     public static final int MAILBOX = 0;
     public static final int CBQ = 1;
+    public static final int METHOD_TABLE = 2; // receiver's method table, sent once per connection and actor id
+    public static final int PRESSURE = 3; // receiver's bounded mailbox became pressured/relieved, args: { Boolean }
+
+    // encoding of methodIndex:
+    // 0 => method is given by name (default for json/minbin clients)
+    // > 0 => index+1 into receiver's method table as announced with a METHOD_TABLE entry
+    // -1 => method is given by name, sender requests the method table of the receiver
+    static final int REQUEST_TABLE = -1;
 
     long receiverKey; // id of published actor in host, contains cbId in case of callbacks
     long futureKey; // id of future if any
     String method;
+    int methodIndex;
     @ArgTypes
     Object args[];
     @JSONAsString
@@ -43,6 +53,8 @@ public class RemoteCallEntry implements Serializable {
     int queue;
     boolean isContinue;
     Callback cb;
+    transient boolean argsFailed; // sender could not serialize args, see RemoteCallEntrySerializer
+    TraceContext trace; // null if not traced
 
     public RemoteCallEntry() {}
 
@@ -54,6 +66,14 @@ public class RemoteCallEntry implements Serializable {
         this.serializedArgs = serializedArgs;
     }
 
+    public TraceContext getTrace() {
+        return trace;
+    }
+
+    public void setTrace(TraceContext trace) {
+        this.trace = trace;
+    }
+
     public boolean isContinue() {
         return isContinue;
     }
@@ -94,8 +114,38 @@ public class RemoteCallEntry implements Serializable {
         return method;
     }
 
+    /**
+     * address method by name. Resets a method index if present
+     */
     public void setMethod(String method) {
         this.method = method;
+        methodIndex = 0;
+    }
+
+    /**
+     * @return index into the receiver's method table or -1 if the method is given by name
+     */
+    public int getMethodIndex() {
+        return methodIndex > 0 ? methodIndex-1 : -1;
+    }
+
+    /**
+     * address method by index. Name is cleared as it's not transmitted then
+     */
+    public void setMethodIndex(int index) {
+        methodIndex = index+1;
+        method = null;
+    }
+
+    public boolean isMethodTableRequested() {
+        return methodIndex == REQUEST_TABLE;
+    }
+
+    public void setMethodTableRequested(boolean requested) {
+        if ( requested )
+            methodIndex = REQUEST_TABLE;
+        else if ( methodIndex == REQUEST_TABLE )
+            methodIndex = 0;
     }
 
     public Object[] getArgs() {
@@ -112,6 +162,7 @@ public class RemoteCallEntry implements Serializable {
             "receiverKey=" + receiverKey +
             ", futureKey=" + futureKey +
             ", method='" + method + '\'' +
+            ", methodIndex=" + getMethodIndex() +
             ", args=" + Arrays.toString(args) +
             ", serializedArgs=" + serializedArgs +
             ", queue=" + queue +
@@ -126,12 +177,22 @@ public class RemoteCallEntry implements Serializable {
 
     public void pack(FSTConfiguration conf) {
         if ( args != null && serializedArgs == null ) {
+            packCallback();
+            serializedArgs = conf.asByteArray(args);
+            args = null;
+        }
+    }
+
+    /**
+     * move a trailing callback argument to cb, so routers can replace it without decoding args.
+     * Sufficient if args are streamed by RemoteCallEntrySerializer instead of calling pack.
+     */
+    public void packCallback() {
+        if ( args != null && serializedArgs == null && cb == null ) {
             if ( args.length > 0 && args[args.length-1] instanceof Callback ) {
                 cb = (Callback) args[args.length-1];
                 args[args.length-1] = null;
             }
-            serializedArgs = conf.asByteArray(args);
-            args = null;
         }
     }
 
@@ -158,6 +219,13 @@ public class RemoteCallEntry implements Serializable {
         }
     }
 
+    /**
+     * @return true if the sender failed to serialize the args, so there are none
+     */
+    public boolean isArgsFailed() {
+        return argsFailed;
+    }
+
     public Callback getCB() {
         return cb;
     }
@@ -171,11 +239,13 @@ public class RemoteCallEntry implements Serializable {
         copy.receiverKey = receiverKey; // id of published actor in host, contains cbId in case of callbacks
         copy.futureKey = futureKey; // id of future if any
         copy.method = method;
+        copy.methodIndex = methodIndex;
         copy.args = args;
         copy.serializedArgs = serializedArgs;
         copy.queue = queue;
         copy.isContinue = isContinue;
         copy.cb = cb;
+        copy.trace = trace;
         return copy;
     }
 }
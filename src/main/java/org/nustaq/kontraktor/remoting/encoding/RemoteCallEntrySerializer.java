@@ -0,0 +1,163 @@
+/*
+Kontraktor Copyright (c) Ruediger Moeller, All rights reserved.
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3.0 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+See https://www.gnu.org/licenses/lgpl.txt
+*/
+
+package org.nustaq.kontraktor.remoting.encoding;
+
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.monitoring.TraceContext;
+import org.nustaq.kontraktor.util.Log;
+import org.nustaq.serialization.FSTBasicObjectSerializer;
+import org.nustaq.serialization.FSTClazzInfo;
+import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTEncoder;
+import org.nustaq.serialization.FSTObjectInput;
+import org.nustaq.serialization.FSTObjectOutput;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Binary (fst) encoding of RemoteCallEntry. Call args are not packed in advance but encoded straight
+ * into the outgoing batch once it is written: a fixed size length prefix is reserved, args are written
+ * in place as a self contained block (see ArgsEncoder) and the length is patched in afterwards, so
+ * there is neither an intermediate serializedArgs byte[] nor a copy per call. Packed args (callback
+ * results, forwarded entries) are copied as is. Receivers still get serializedArgs and decode lazily
+ * (required by routers forwarding without decoding).
+ *
+ * If args can't be serialized, a callback result is sent as error result instead. For calls only
+ * a marker is sent, the receiver then answers the call's future/callback with an error.
+ *
+ * Only registered for binary codings, json/minbin clients use the default field layout.
+ */
+public class RemoteCallEntrySerializer extends FSTBasicObjectSerializer {
+
+    static final int NO_ARGS = -1;
+    static final int ARGS_FAILED = -2;
+    static final int INLINE_ARGS = -3; // followed by a plain (fixed size) int length and the args block
+
+    final FSTConfiguration conf;
+    // own output as conf's output is busy with the enclosing batch. One per registry (conf), as writes
+    // of a connection happen in its send loop. Concurrent or nested writes use a temporary one.
+    final AtomicReference<ArgsOutput> argsOut = new AtomicReference<>();
+
+    public RemoteCallEntrySerializer(FSTConfiguration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public void writeObject(FSTObjectOutput out, Object toWrite, FSTClazzInfo clzInfo, FSTClazzInfo.FSTFieldInfo referencedBy, int streamPosition) throws IOException {
+        RemoteCallEntry rce = (RemoteCallEntry) toWrite;
+        out.writeLong(rce.receiverKey);
+        out.writeLong(rce.futureKey);
+        out.writeInt(rce.queue);
+        out.writeInt(rce.methodIndex);
+        out.writeBoolean(rce.isContinue);
+        out.writeObject(rce.method);
+        out.writeObject(rce.cb);
+        out.writeObject(rce.trace);
+        if ( rce.serializedArgs != null ) { // forwarded or packed, copy as is
+            out.writeInt(rce.serializedArgs.length);
+            out.write(rce.serializedArgs);
+        } else if ( rce.args != null ) {
+            ArgsOutput aout = argsOut.getAndSet(null);
+            if ( aout == null )
+                aout = new ArgsOutput(conf);
+            if ( writeArgs(out, rce, aout) )
+                argsOut.set(aout);
+        } else {
+            out.writeInt(rce.argsFailed ? ARGS_FAILED : NO_ARGS);
+        }
+    }
+
+    /**
+     * @return false if writing failed, so aout is in an undefined state and must not be reused
+     */
+    protected boolean writeArgs(FSTObjectOutput out, RemoteCallEntry rce, ArgsOutput aout) throws IOException {
+        FSTEncoder codec = out.getCodec();
+        int start = codec.getWritten();
+        try {
+            writeInline(codec, rce.args, aout);
+            return true;
+        } catch (Exception e) {
+            // don't break the whole batch
+            Log.Error(this, e, "failed to serialize arguments of " + (rce.queue == RemoteCallEntry.CBQ ? "callback result" : rce.method));
+            codec.skip(start - codec.getWritten()); // drop what has been written so far
+            if ( rce.queue == RemoteCallEntry.CBQ ) {
+                writeInline(codec, new Object[] { null, "failed to serialize result: " + e }, new ArgsOutput(conf));
+            } else {
+                out.writeInt(ARGS_FAILED); // receiver answers with an error
+            }
+            return false;
+        }
+    }
+
+    protected void writeInline(FSTEncoder codec, Object args[], ArgsOutput aout) throws IOException {
+        codec.writeFInt(INLINE_ARGS);
+        codec.ensureFree(4);
+        int lenPos = codec.getWritten();
+        codec.skip(4);
+        aout.write(codec, args);
+        codec.writeInt32At(lenPos, codec.getWritten() - lenPos - 4);
+    }
+
+    @Override
+    public void readObject(FSTObjectInput in, Object toRead, FSTClazzInfo clzInfo, FSTClazzInfo.FSTFieldInfo referencedBy) throws Exception {
+        RemoteCallEntry rce = (RemoteCallEntry) toRead;
+        rce.receiverKey = in.readLong();
+        rce.futureKey = in.readLong();
+        rce.queue = in.readInt();
+        rce.methodIndex = in.readInt();
+        rce.isContinue = in.readBoolean();
+        rce.method = (String) in.readObject();
+        rce.cb = (Callback) in.readObject();
+        rce.trace = (TraceContext) in.readObject();
+        int len = in.readInt();
+        if ( len == INLINE_ARGS )
+            len = in.getCodec().readPlainInt();
+        if ( len >= 0 ) {
+            byte args[] = new byte[len];
+            in.readFully(args);
+            rce.serializedArgs = args;
+        } else if ( len == ARGS_FAILED ) {
+            rce.argsFailed = true;
+        }
+    }
+
+    /**
+     * encodes args into the stream of an enclosing FSTObjectOutput, with own object references
+     */
+    static class ArgsOutput extends FSTObjectOutput {
+
+        final ArgsEncoder encoder;
+
+        ArgsOutput(FSTConfiguration conf) {
+            super(conf);
+            encoder = new ArgsEncoder(conf);
+            setCodec(encoder);
+        }
+
+        void write(FSTEncoder enclosing, Object args[]) throws IOException {
+            encoder.attach(enclosing);
+            try {
+                resetForReUse();
+                writeObject(args);
+            } finally {
+                encoder.detach();
+            }
+        }
+    }
+
+}
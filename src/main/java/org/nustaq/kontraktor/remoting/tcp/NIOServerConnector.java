@@ -17,17 +17,26 @@ See https://www.gnu.org/licenses/lgpl.txt
 package org.nustaq.kontraktor.remoting.tcp;
 
 import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
 import org.nustaq.kontraktor.IPromise;
 import org.nustaq.kontraktor.Promise;
-import org.nustaq.kontraktor.asyncio.AsyncServerSocket;
+import org.nustaq.kontraktor.asyncio.ByteBufferPool;
+import org.nustaq.kontraktor.asyncio.NIOReactor;
 import org.nustaq.kontraktor.asyncio.ObjectAsyncSocketConnection;
+import org.nustaq.kontraktor.asyncio.QueuingAsyncSocketConnection;
+import org.nustaq.kontraktor.asyncio.QueuingAsyncSocketConnection.OverflowPolicy;
 import org.nustaq.kontraktor.remoting.base.*;
 import org.nustaq.kontraktor.remoting.encoding.Coding;
+import org.nustaq.kontraktor.util.Log;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -37,17 +46,33 @@ import java.util.function.Function;
  * Publishes an actor as a server using non-blocking IO backed TCP.
  * The number of threads does not increase with the number of clients.
  *
+ * Socket io is done by the selector threads of a NIOReactor (shared default reactor if not given).
+ * Received objects are decoded and processed in the facade's thread (handed over via its mailbox),
+ * outgoing objects are encoded in the sending thread and written by the selector thread.
+ *
+ * Each connection limits its queued outgoing bytes, see QueuingAsyncSocketConnection (watermarks, overflowPolicy).
  */
-public class NIOServerConnector extends AsyncServerSocket implements ActorServerConnector {
+public class NIOServerConnector implements ActorServerConnector {
 
     public static IPromise<ActorServer> Publish(Actor facade, int port, Coding coding) {
         return Publish(facade,port,coding,null);
     }
 
     public static Promise<ActorServer> Publish(Actor facade, int port, Coding coding, Consumer<Actor> disconnectHandler) {
+        return Publish(facade, port, coding, disconnectHandler, null);
+    }
+
+    /**
+     * @param reactor - null for the default reactor
+     */
+    public static Promise<ActorServer> Publish(Actor facade, int port, Coding coding, Consumer<Actor> disconnectHandler, NIOReactor reactor) {
+        return Publish(facade, coding, disconnectHandler, new NIOServerConnector(port, reactor));
+    }
+
+    public static Promise<ActorServer> Publish(Actor facade, Coding coding, Consumer<Actor> disconnectHandler, NIOServerConnector connector) {
         Promise finished = new Promise();
         try {
-            ActorServer publisher = new ActorServer(new NIOServerConnector(port), facade, coding);
+            ActorServer publisher = new ActorServer(connector, facade, coding);
             facade.execute(() -> {
                 try {
                     publisher.start(disconnectHandler);
@@ -64,54 +89,162 @@ public class NIOServerConnector extends AsyncServerSocket implements ActorServer
     }
 
     int port;
+    NIOReactor reactor;
+    NIOReactor.Listener listener;
+    Set<MyObjectAsyncSocketConnection> connections = ConcurrentHashMap.newKeySet();
+    long lowWatermark = QueuingAsyncSocketConnection.DEFAULT_LOW_WATERMARK;
+    long highWatermark = QueuingAsyncSocketConnection.DEFAULT_HIGH_WATERMARK;
+    long maxQueued = QueuingAsyncSocketConnection.MAX_Q_SIZE_BYTES;
+    OverflowPolicy overflowPolicy = QueuingAsyncSocketConnection.DEFAULT_OVERFLOW_POLICY;
 
     public NIOServerConnector(int port) {
+        this(port, null);
+    }
+
+    public NIOServerConnector(int port, NIOReactor reactor) {
         super();
         this.port = port;
+        this.reactor = reactor != null ? reactor : NIOReactor.getDefault();
+    }
+
+    /**
+     * limits of queued outgoing bytes per connection
+     */
+    public NIOServerConnector watermarks(long low, long high, long maxQueued) {
+        this.lowWatermark = low;
+        this.highWatermark = high;
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * applied once a connection's queued outgoing bytes exceed maxQueued (slow or stalled client)
+     */
+    public NIOServerConnector overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
     }
 
     @Override
     public void connect(Actor facade, Function<ObjectSocket, ObjectSink> factory) throws Exception {
-        connect( port, (key,channel) -> {
-            MyObjectAsyncSocketConnection sc = new MyObjectAsyncSocketConnection(key,channel);
-            ObjectSink sink = factory.apply(sc);
-            sc.init(sink);
+        listener = reactor.listen( port, (key,channel) -> {
+            MyObjectAsyncSocketConnection sc = new MyObjectAsyncSocketConnection(key,channel,facade,factory);
+            sc.setWatermarks(lowWatermark, highWatermark, maxQueued);
+            sc.setOverflowPolicy(overflowPolicy);
+            connections.add(sc);
             return sc;
         });
     }
 
     @Override
     public IPromise closeServer() {
-        try {
-            super.close();
-        } catch (IOException e) {
-            return new Promise<>(null,e);
-        }
-        return new Promise<>(null);
+        if ( listener == null )
+            return new Promise<>(null);
+        Promise res = new Promise();
+        listener.close().then( (r,e) -> {
+            // close open connections
+            Actors.SubmitDelayed(TCPServerConnector.DELAY_MS_TILL_CLOSE, () -> {
+                new ArrayList<>(connections).forEach(con -> {
+                    try {
+                        con.close();
+                    } catch (IOException ex) {
+                        Log.Warn(this, ex);
+                    }
+                });
+            });
+            res.complete(r,e);
+        });
+        return res;
     }
 
-    static class MyObjectAsyncSocketConnection extends ObjectAsyncSocketConnection {
+    class MyObjectAsyncSocketConnection extends ObjectAsyncSocketConnection {
         ObjectSink sink;
         String id;
+        Actor facade;
+        Function<ObjectSocket, ObjectSink> sinkFactory;
+        ArrayList pending = new ArrayList();
 
-        public MyObjectAsyncSocketConnection(SelectionKey key, SocketChannel chan) {
+        public MyObjectAsyncSocketConnection(SelectionKey key, SocketChannel chan, Actor facade, Function<ObjectSocket, ObjectSink> sinkFactory) {
             super(key, chan);
+            this.facade = facade;
+            this.sinkFactory = sinkFactory;
             this.id = UUID.randomUUID().toString();
         }
 
-        public void init( ObjectSink sink ) { this.sink = sink; }
+        @Override
+        protected void bound() {
+            // enqueued before any received object, so the sink is present once these get processed
+            facade.execute(() -> sink = sinkFactory.apply(this));
+        }
+
+        @Override
+        protected void receivedFrame(byte[] bytes) {
+            facade.execute(() -> receivedObject(getConf().asObject(bytes)));
+        }
 
         @Override public void receivedObject(Object o) { sink.receiveObject(o, null, null ); }
 
+        // encode in the calling thread, as serializers may access the connection registry
+        @Override
+        public synchronized void writeObject(Object o) {
+            pending.add(o);
+            if (pending.size()>100)
+                flush();
+        }
+
+        @Override
+        public synchronized void flush() {
+            if ( pending.size() == 0 ) {
+                return;
+            }
+            pending.add(0); // sequence
+            Object[] objArr = pending.toArray();
+            pending.clear();
+            ByteBuffer frame = encodeFrame(objArr);
+            int size = frame.remaining();
+            if ( ! reserve(size) ) { // overflow policy applied
+                ByteBufferPool.Shared.release(frame);
+                return;
+            }
+            myActor.execute(() -> {
+                if ( ! chan.isOpen() ) {
+                    unreserve(size);
+                    ByteBufferPool.Shared.release(frame);
+                    return;
+                }
+                writeReserved(frame);
+                tryFlush();
+            });
+        }
+
         @Override
         public void closed(Throwable ioe) {
             isClosed = true;
-            sink.sinkClosed();
+            connections.remove(this);
+            try {
+                chan.close();
+            } catch (IOException e) {
+                Log.Warn(this, e);
+            }
+            facade.execute(() -> {
+                if ( sink != null )
+                    sink.sinkClosed();
+            });
         }
 
         public void close() throws IOException {
-            chan.close();
-            sink.sinkClosed();
+            isClosed = true;
+            connections.remove(this);
+            // in selector thread, so pending writes are done before
+            myActor.execute(() -> {
+                try {
+                    chan.close();
+                } catch (IOException e) {
+                    Log.Warn(this, e);
+                }
+            });
+            if ( sink != null )
+                sink.sinkClosed();
         }
 
         @Override
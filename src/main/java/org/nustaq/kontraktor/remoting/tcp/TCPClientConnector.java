@@ -68,7 +68,7 @@ public class TCPClientConnector implements ActorClientConnector {
         Promise res = new Promise();
         socket = new MyTCPSocket(host,port);
         ObjectSink sink = factory.apply(socket);
-        new Thread(() -> {
+        TCPServerConnector.newReaderThread(() -> {
             res.resolve();
             while (!socket.isClosed()) {
                 try {
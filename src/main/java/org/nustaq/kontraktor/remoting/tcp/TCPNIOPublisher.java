@@ -18,6 +18,9 @@ package org.nustaq.kontraktor.remoting.tcp;
 
 import org.nustaq.kontraktor.Actor;
 import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.asyncio.NIOReactor;
+import org.nustaq.kontraktor.asyncio.QueuingAsyncSocketConnection;
+import org.nustaq.kontraktor.asyncio.QueuingAsyncSocketConnection.OverflowPolicy;
 import org.nustaq.kontraktor.remoting.base.ActorPublisher;
 import org.nustaq.kontraktor.remoting.base.ActorServer;
 import org.nustaq.kontraktor.remoting.encoding.Coding;
@@ -36,6 +39,11 @@ public class TCPNIOPublisher implements ActorPublisher {
     Actor facade;
     int port = 6543;
     Coding coding = new Coding( SerializerType.FSTSer );
+    NIOReactor reactor; // null = default reactor
+    long lowWatermark = QueuingAsyncSocketConnection.DEFAULT_LOW_WATERMARK;
+    long highWatermark = QueuingAsyncSocketConnection.DEFAULT_HIGH_WATERMARK;
+    long maxQueued = QueuingAsyncSocketConnection.MAX_Q_SIZE_BYTES;
+    OverflowPolicy overflowPolicy = QueuingAsyncSocketConnection.DEFAULT_OVERFLOW_POLICY;
 
     public TCPNIOPublisher() {
     }
@@ -47,7 +55,10 @@ public class TCPNIOPublisher implements ActorPublisher {
 
     @Override
     public IPromise<ActorServer> publish(Consumer<Actor> disconnectHandler) {
-        return NIOServerConnector.Publish(facade,port,coding,disconnectHandler);
+        NIOServerConnector connector = new NIOServerConnector(port, reactor)
+            .watermarks(lowWatermark, highWatermark, maxQueued)
+            .overflowPolicy(overflowPolicy);
+        return NIOServerConnector.Publish(facade,coding,disconnectHandler,connector);
     }
 
     public TCPNIOPublisher serType( SerializerType type ) {
@@ -70,6 +81,33 @@ public class TCPNIOPublisher implements ActorPublisher {
         return this;
     }
 
+    /**
+     * @param reactor - selector threads doing the socket io, defaults to NIOReactor.getDefault()
+     */
+    public TCPNIOPublisher reactor(final NIOReactor reactor) {
+        this.reactor = reactor;
+        return this;
+    }
+
+    /**
+     * per connection limits of queued outgoing bytes. Above high, remote refs of this connection are not
+     * polled until drained below low. Above maxQueued the overflowPolicy applies.
+     */
+    public TCPNIOPublisher watermarks(long low, long high, long maxQueued) {
+        this.lowWatermark = low;
+        this.highWatermark = high;
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * @param overflowPolicy - applied to frames exceeding maxQueued, defaults to DISCONNECT
+     */
+    public TCPNIOPublisher overflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
     public Actor getFacade() {
         return facade;
     }
@@ -82,6 +120,14 @@ public class TCPNIOPublisher implements ActorPublisher {
         return coding;
     }
 
+    public NIOReactor getReactor() {
+        return reactor;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
     @Override
     public String toString() {
         return "TCPNIOPublisher{" +
@@ -20,6 +20,7 @@ import org.nustaq.kontraktor.Actor;
 import org.nustaq.kontraktor.Actors;
 import org.nustaq.kontraktor.IPromise;
 import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.VirtualThreads;
 import org.nustaq.kontraktor.remoting.base.ActorServer;
 import org.nustaq.kontraktor.remoting.base.ActorServerConnector;
 import org.nustaq.kontraktor.remoting.base.ObjectSink;
@@ -39,13 +40,26 @@ import java.util.function.Function;
 /**
  * Created by ruedi on 10/05/15.
  *
- * Publishes an actor as a server via blocking TCP. Requires one thread for each client connecting.
+ * Publishes an actor as a server via blocking TCP. Requires one thread for each client connecting,
+ * on JDK 21+ these are virtual threads (see VIRTUAL_READERS), so thread count does not limit the number
+ * of clients. On older runtimes prefer NIOServerConnector for large numbers of clients.
  *
+ * On close, pending output of each connection is flushed and the connection is half closed. It's
+ * fully closed once the client has closed its side (or after DELAY_MS_TILL_CLOSE), so no message
+ * sent before closing gets lost.
  */
 public class TCPServerConnector implements ActorServerConnector {
 
+    /**
+     * max time to wait for a client to close its side of the connection after the server has been closed
+     */
     public static int DELAY_MS_TILL_CLOSE = 2000;
 
+    /**
+     * if true, connection readers run on virtual threads if the runtime supports them (JDK 21+)
+     */
+    public static boolean VIRTUAL_READERS = true;
+
     public static AtomicInteger numberOfThreads = new AtomicInteger(0);
 
     public static Promise<ActorServer> Publish(Actor facade, int port, Coding coding) {
@@ -71,9 +85,20 @@ public class TCPServerConnector implements ActorServerConnector {
         return finished;
     }
 
+    /**
+     * @return a new unstarted thread reading from a blocking socket
+     */
+    static Thread newReaderThread(Runnable reader, String name) {
+        if ( VIRTUAL_READERS && VirtualThreads.ENABLED && VirtualThreads.isAvailable() )
+            return VirtualThreads.newThread(reader, name);
+        return new Thread(reader, name);
+    }
+
     int port;
     protected ServerSocket acceptSocket;
-    protected ConcurrentLinkedQueue<Socket> clientSockets = new ConcurrentLinkedQueue<>();
+    protected ConcurrentLinkedQueue<MyTCPSocket> clientSockets = new ConcurrentLinkedQueue<>();
+    protected Actor facade;
+    protected Promise closePromise; // set once closeServer has been called
 
     public TCPServerConnector(int port) {
         super();
@@ -82,6 +107,7 @@ public class TCPServerConnector implements ActorServerConnector {
 
     @Override
     public void connect(Actor facade, Function<ObjectSocket, ObjectSink> factory) throws Exception {
+        this.facade = facade;
         Promise p = new Promise();
         new Thread( () -> acceptLoop(facade,port,factory,p), "acceptor thread "+port ).start();
         p.await();
@@ -94,11 +120,11 @@ public class TCPServerConnector implements ActorServerConnector {
             p.resolve();
             while (!acceptSocket.isClosed()) {
                 Socket clientSocket = acceptSocket.accept();
-                clientSockets.add(clientSocket);
                 MyTCPSocket objectSocket = new MyTCPSocket(clientSocket);
+                clientSockets.add(objectSocket);
                 facade.execute(() -> {
                     ObjectSink sink = factory.apply(objectSocket);
-                    new Thread(() -> {
+                    newReaderThread(() -> {
                         try {
                             numberOfThreads.incrementAndGet();
                             while (!clientSocket.isClosed()) {
@@ -117,8 +143,9 @@ public class TCPServerConnector implements ActorServerConnector {
                             }
                             sink.sinkClosed();
                         } finally {
-                            clientSockets.remove(clientSocket);
+                            clientSockets.remove(objectSocket);
                             numberOfThreads.decrementAndGet();
+                            checkClosed();
                         }
                     }, "tcp receiver").start();
                 });
@@ -140,25 +167,63 @@ public class TCPServerConnector implements ActorServerConnector {
         return p;
     }
 
+    /**
+     * stops accepting and shuts down open connections (see class comment).
+     * @return promise resolved once all connections are closed
+     */
     @Override
     public IPromise closeServer() {
+        synchronized (this) {
+            if ( closePromise != null )
+                return closePromise;
+            closePromise = new Promise();
+        }
         try {
-            clientSockets.forEach( socket -> {
-                // need to give time for flush. No way to determine wether buffers are out =>
-                // risk of premature close + message loss
-                Actors.SubmitDelayed(DELAY_MS_TILL_CLOSE, () -> {
-                    try {
-                        socket.close();
-                    } catch (IOException e) {
-                        Log.Warn(this, e);
-                    }
-                });
-            });
-            acceptSocket.close();
+            if ( acceptSocket != null )
+                acceptSocket.close();
+        } catch (IOException e) {
+            Log.Warn(this, e);
+        }
+        clientSockets.forEach( socket -> shutdown(socket) );
+        checkClosed();
+        return closePromise;
+    }
+
+    /**
+     * flush pending output and half close, the reader ends once the client has closed its side. The socket
+     * is closed forcibly if this does not happen within DELAY_MS_TILL_CLOSE.
+     */
+    protected void shutdown(MyTCPSocket socket) {
+        Runnable halfClose = () -> {
+            try {
+                socket.flush();
+                socket.getSocket().shutdownOutput();
+            } catch (IOException e) {
+                Log.Info(this, e.getMessage());
+                closeSocket(socket);
+            }
+        };
+        try {
+            facade.execute(halfClose); // facade's thread writes to the socket
+        } catch (Exception e) {
+            halfClose.run();
+        }
+        Actors.SubmitDelayed(DELAY_MS_TILL_CLOSE, () -> closeSocket(socket));
+    }
+
+    protected void closeSocket(MyTCPSocket socket) {
+        if ( socket.getSocket().isClosed() )
+            return;
+        try {
+            socket.close();
         } catch (IOException e) {
-            return new Promise<>(null,e);
+            Log.Warn(this, e);
         }
-        return new Promise<>(null);
+    }
+
+    protected synchronized void checkClosed() {
+        if ( closePromise != null && clientSockets.isEmpty() && ! closePromise.isSettled() )
+            closePromise.resolve();
     }
 
     static class MyTCPSocket extends TCPObjectSocket implements ObjectSocket {
@@ -34,6 +34,7 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
     public static long CLIENT_PING_INTERVAL_MS = 5000L;
 
     protected HashMap<Object,Long> timeoutMap;
+    protected Set<Actor> legacyPingServices; // services of versions without router$servicePing, pinged by ping()
     protected HashMap<String,ConnectionRegistry> clients; // also services (timing from connect => registerService makes service detection unreliable)
 
     protected Set<Long> nextAliveRemoteActors;
@@ -98,6 +99,7 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
     @Local
     public void init() {
         timeoutMap = new HashMap<>();
+        legacyPingServices = new HashSet<>();
         clients = new HashMap<>();
         nextAliveRemoteActors = new HashSet<>();
         delayed(getServicePingTimeout(), () -> cyclic( getServicePingTimeout(), () -> {pingServices(); return true;} ) );
@@ -139,9 +141,22 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
 
     @Local
     public void pingServices() {
+        legacyPingServices.retainAll(getServices());
         getServices().forEach( serv -> {
-            serv.ping().then( r -> {
-                timeoutMap.put(serv,System.currentTimeMillis());
+            if ( legacyPingServices.contains(serv) ) {
+                serv.ping().then( r -> timeoutMap.put(serv,System.currentTimeMillis()) );
+                return;
+            }
+            serv.router$servicePing(System.currentTimeMillis()).then( (r,e) -> {
+                if ( e == null ) {
+                    timeoutMap.put(serv,System.currentTimeMillis());
+                    return;
+                }
+                // unknown to services of previous versions, fall back to ping()
+                serv.ping().then( r1 -> {
+                    legacyPingServices.add(serv);
+                    timeoutMap.put(serv,System.currentTimeMillis());
+                });
             });
         });
         getServices().forEach( serv -> {
@@ -210,6 +225,7 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
         cbrce.setReceiverKey(rce.getFutureKey());
         cbrce.setSerializedArgs(clientRemoteRegistry.getConf().asByteArray(new Object[]{null,SERVICE_UNAVAILABLE}));
         cbrce.setQueue(1);
+        cbrce.setTrace(rce.getTrace());
         return cbrce;
     }
 
@@ -270,7 +286,7 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
                 handleServiceDiscon(remoteRef);
             }
         };
-        if ( Thread.currentThread() != getCurrentDispatcher() )
+        if ( Thread.currentThread() != __currentDispatcher )
             self().execute(toRun);
         else
             toRun.run();
@@ -338,7 +354,7 @@ public abstract class AbstractKrouter<T extends AbstractKrouter> extends Actor<T
                 handleServiceDiscon(remoteRef);
             }
         };
-        if ( Thread.currentThread() != getCurrentDispatcher() )
+        if ( Thread.currentThread() != __currentDispatcher )
             self().execute(toRun);
         else
             toRun.run();
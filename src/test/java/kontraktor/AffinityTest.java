@@ -0,0 +1,109 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.impl.BackOffStrategy;
+import org.nustaq.kontraktor.impl.CpuAffinity;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.impl.WorkStealingScheduler;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * affinity hook is applied by each dispatcher thread, busy spinning dispatchers keep working
+ */
+public class AffinityTest {
+
+    public static class Pinned extends Actor<Pinned> {
+
+        int count;
+
+        public void inc() {
+            count++;
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(count);
+        }
+
+        public IPromise<String> getThreadName() {
+            return resolve(Thread.currentThread().getName());
+        }
+
+        public IPromise<String> getAllowedCpus() {
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc/thread-self/status"))) {
+                    if ( line.startsWith("Cpus_allowed_list:") )
+                        return resolve(line.substring(line.indexOf(':') + 1).trim());
+                }
+            } catch (Exception e) {
+                return reject(e);
+            }
+            return resolve(null);
+        }
+    }
+
+    @Test
+    public void hookPerThread() throws InterruptedException {
+        WorkStealingScheduler sched = new WorkStealingScheduler(4);
+        Map<Integer,String> bound = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(4);
+        sched.setAffinity( (thread, index) -> {
+            assertSame(thread, Thread.currentThread());
+            bound.put(index, thread.getName());
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(4, bound.size());
+        assertEquals(4, bound.values().stream().distinct().count());
+        sched.terminateIfIdle();
+    }
+
+    @Test
+    public void busySpin() {
+        SimpleScheduler sched = new SimpleScheduler();
+        sched.setBackOffStrategy(BackOffStrategy.busySpin());
+        sched.setAffinity( (thread, index) -> thread.setName("pinned " + index));
+        Pinned pinned = Actors.AsActor(Pinned.class, sched);
+        for (int i = 0; i < 10_000; i++) {
+            pinned.inc();
+        }
+        assertEquals(10_000, (int) pinned.getCount().await());
+        assertEquals("pinned 0", pinned.getThreadName().await());
+        // actors added to an idle spinning dispatcher get scheduled
+        Pinned other = Actors.AsActor(Pinned.class, sched);
+        other.inc();
+        assertEquals(1, (int) other.getCount().await());
+        pinned.stop();
+        other.stop();
+    }
+
+    @Test
+    public void cpuAffinity() throws InterruptedException {
+        assumeTrue(CpuAffinity.currentTid() > 0 && Files.exists(Paths.get("/proc/thread-self/status")));
+        assumeTrue(Files.exists(Paths.get("/usr/bin/taskset")) || Files.exists(Paths.get("/bin/taskset")));
+        SimpleScheduler sched = new SimpleScheduler();
+        Pinned pinned = Actors.AsActor(Pinned.class, sched);
+        pinned.getCount().await(); // dispatcher is running
+        sched.setAffinity(new CpuAffinity(0));
+        long end = System.currentTimeMillis() + 5000;
+        String cpus = pinned.getAllowedCpus().await();
+        while ( ! "0".equals(cpus) && System.currentTimeMillis() < end ) {
+            Thread.sleep(50);
+            cpus = pinned.getAllowedCpus().await();
+        }
+        assertEquals("0", cpus);
+        pinned.stop();
+    }
+
+}
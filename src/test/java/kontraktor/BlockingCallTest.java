@@ -0,0 +1,77 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.impl.VirtualThreads;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * blocking calls run on a pluggable executor, results are delivered in the actor's thread
+ */
+public class BlockingCallTest {
+
+    public static class Blocker extends Actor<Blocker> {
+
+        int completed;
+        boolean wrongThread;
+
+        public IPromise<Integer> blockMany(int n, long sleepMillis) {
+            Thread actorThread = Thread.currentThread();
+            Promise<Integer> res = new Promise<>();
+            for (int i = 0; i < n; i++) {
+                execInThreadPool(() -> {
+                    Thread.sleep(sleepMillis);
+                    return Thread.currentThread();
+                }).then((thread, err) -> {
+                    if ( Thread.currentThread() != actorThread || thread == actorThread )
+                        wrongThread = true;
+                    if ( ++completed == n )
+                        res.resolve(wrongThread ? -1 : completed);
+                });
+            }
+            return res;
+        }
+
+        public IPromise<Object> failing() {
+            Promise res = new Promise();
+            execInThreadPool(() -> { throw new IllegalStateException("failed"); }).then(res);
+            return res;
+        }
+    }
+
+    @Test
+    public void defaultExecutor() {
+        Blocker blocker = Actors.AsActor(Blocker.class);
+        int n = VirtualThreads.isAvailable() ? 10_000 : 200;
+        assertEquals(n, (int) blocker.blockMany(n, 50).await(30_000));
+        assertTrue(blocker.failing().awaitPromise(5000).getError() instanceof IllegalStateException);
+        if ( ! VirtualThreads.isAvailable() ) {
+            assertSame(Actors.exec, Actors.getBlockingExecutor());
+        }
+        blocker.stop();
+    }
+
+    @Test
+    public void schedulerExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        Executor counting = task -> {
+            count.incrementAndGet();
+            new Thread(task).start();
+        };
+        SimpleScheduler sched = new SimpleScheduler();
+        sched.setBlockingExecutor(counting);
+        Blocker blocker = Actors.AsActor(Blocker.class, sched);
+        assertEquals(10, (int) blocker.blockMany(10, 1).await());
+        assertEquals(10, count.get());
+        blocker.stop();
+    }
+
+}
@@ -0,0 +1,233 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.annotations.BoundedMailbox;
+import org.nustaq.kontraktor.impl.BoundedArrayQueue;
+import org.nustaq.kontraktor.impl.MailboxFullException;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * overflow policies of bounded mailboxes
+ */
+public class BoundedMailboxTest {
+
+    public static class Slow extends Actor<Slow> {
+
+        List<Integer> received = new ArrayList<>();
+        int maxQueued;
+
+        public IPromise<Integer> process(int seq) {
+            received.add(seq);
+            maxQueued = Math.max(maxQueued, __mailbox.size());
+            try {
+                Thread.sleep(0, 100_000);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return resolve(seq);
+        }
+
+        public void send(int seq) {
+            process(seq);
+        }
+
+        public IPromise<List<Integer>> getReceived() {
+            return resolve(received);
+        }
+
+        public IPromise<Integer> getMaxQueued() {
+            return resolve(maxQueued);
+        }
+    }
+
+    @BoundedMailbox(size = 128, overflow = BoundedMailbox.Overflow.REJECT)
+    public static class Rejecting extends Slow {
+    }
+
+    @Test
+    public void reject() {
+        Rejecting act = Actors.AsActor(Rejecting.class);
+        assertTrue(act.__mailbox instanceof BoundedArrayQueue);
+        List<IPromise> results = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            results.add(act.process(i));
+        }
+        int rejected = 0;
+        for (int i = 0; i < results.size(); i++) {
+            IPromise res = results.get(i).awaitPromise(10_000);
+            if ( res.getError() != null ) {
+                assertSame(MailboxFullException.Instance, res.getError());
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+        assertEquals(2000 - rejected, act.getReceived().await().size());
+        assertTrue(act.getMaxQueued().await() <= 128);
+        act.stop();
+    }
+
+    @Test
+    public void dropOldest() {
+        Slow act = Actors.AsActor(Slow.class, 128, BoundedMailbox.Overflow.DROP_OLDEST);
+        for (int i = 0; i < 2000; i++) {
+            act.send(i);
+        }
+        List<Integer> received = act.getReceived().await(10_000);
+        assertTrue(received.size() < 2000);
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i) > received.get(i-1));
+        }
+        assertEquals(1999, (int) received.get(received.size()-1));
+        act.stop();
+    }
+
+    @Test
+    public void block() {
+        Slow act = Actors.AsActor(Slow.class, 128, BoundedMailbox.Overflow.BLOCK);
+        for (int i = 0; i < 2000; i++) {
+            act.send(i);
+        }
+        List<Integer> received = act.getReceived().await(10_000);
+        assertEquals(2000, received.size());
+        assertTrue(act.getMaxQueued().await() <= 128);
+        act.stop();
+    }
+
+    @BoundedMailbox(size = 16)
+    public static class Sink extends Slow {
+    }
+
+    public static class Flooder extends Actor<Flooder> {
+
+        Sink sink;
+
+        public IPromise<Sink> init() {
+            sink = Actors.AsActor(Sink.class, getScheduler());
+            return resolve(sink);
+        }
+
+        public IPromise<Integer> flood(int count) {
+            Promise<Integer> res = new Promise<>();
+            int rejected[] = {0}, answered[] = {0};
+            for (int i = 0; i < count; i++) {
+                sink.process(i).then( (r, e) -> {
+                    if ( e == MailboxFullException.Instance )
+                        rejected[0]++;
+                    if ( ++answered[0] == count )
+                        res.resolve(rejected[0]);
+                });
+            }
+            return res;
+        }
+    }
+
+    // a sender on the receiver's dispatcher can't block, nobody else would drain the mailbox
+    @Test
+    public void blockOnSameDispatcher() {
+        Flooder flooder = Actors.AsActor(Flooder.class);
+        Sink sink = flooder.init().await();
+        assertSame(flooder.getCurrentDispatcher(), sink.getCurrentDispatcher());
+        int rejected = flooder.flood(100).await(10_000);
+        assertTrue(rejected > 0);
+        assertEquals(100 - rejected, sink.getReceived().await(10_000).size());
+        sink.stop();
+        flooder.stop();
+    }
+
+    public static class Worker extends Actor<Worker> {
+
+        int count;
+
+        public void work(int millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            count++;
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(count);
+        }
+    }
+
+    // pressure of a published actor's mailbox is signaled to the remote ref
+    @Test
+    public void remotePressure() throws InterruptedException {
+        Worker worker = Actors.AsActor(Worker.class, 64, BoundedMailbox.Overflow.REJECT_REMOTE);
+        ActorServer server = new TCPNIOPublisher(worker, 5680).publish().await();
+        try {
+            Worker remote = (Worker) new TCPConnectable(Worker.class, "localhost", 5680).connect().await();
+            assertEquals(0, (int) remote.getCount().await()); // first call requests the method table
+            assertFalse(remote.isMailboxPressured());
+            for (int i = 0; i < 48; i++) {
+                remote.work(10);
+            }
+            long start = System.currentTimeMillis();
+            while ( ! remote.isMailboxPressured() && System.currentTimeMillis() - start < 5000 )
+                Thread.sleep(1);
+            assertTrue(remote.isMailboxPressured());
+            start = System.currentTimeMillis();
+            while ( remote.isMailboxPressured() && System.currentTimeMillis() - start < 10_000 )
+                Thread.sleep(10);
+            assertFalse(remote.isMailboxPressured());
+            assertEquals(48, (int) remote.getCount().await());
+        } finally {
+            server.close();
+            worker.stop();
+        }
+    }
+
+    @Test
+    public void queue() throws InterruptedException {
+        BoundedArrayQueue<Integer> q = new BoundedArrayQueue<>(100);
+        assertEquals(128, q.capacity());
+        for (int i = 0; i < 128; i++) {
+            assertTrue(q.offer(i));
+        }
+        assertFalse(q.offer(128));
+        assertEquals(128, q.size());
+        assertEquals(0, (int) q.peek());
+        int i = 0;
+        for (Integer integer : q) {
+            assertEquals(i++, (int) integer);
+        }
+        // concurrent producers, single consumer
+        q.clear();
+        int perThread = 100_000;
+        Thread producers[] = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                for (int n = 0; n < perThread; n++) {
+                    while ( ! q.offer(n) )
+                        Thread.yield();
+                }
+            });
+            producers[t].start();
+        }
+        long sum = 0;
+        int count = 0;
+        while ( count < perThread * producers.length ) {
+            Integer poll = q.poll();
+            if ( poll != null ) {
+                sum += poll;
+                count++;
+            }
+        }
+        assertEquals((long) producers.length * perThread * (perThread - 1) / 2, sum);
+        assertTrue(q.isEmpty());
+    }
+
+}
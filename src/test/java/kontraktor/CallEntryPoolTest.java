@@ -0,0 +1,169 @@
+package kontraktor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.CallEntryPool;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.impl.UnboxedCallEntry;
+
+import static org.junit.Assert.*;
+
+/**
+ * CallEntries of messages sent in between actors are recycled if CallEntryPool.ENABLED
+ */
+public class CallEntryPoolTest {
+
+    public static class Receiver extends Actor<Receiver> {
+
+        long sum;
+
+        public void add(int value) {
+            sum += value;
+        }
+
+        public IPromise<Long> addAndGet(int value) {
+            sum += value;
+            return resolve(sum);
+        }
+
+        public void addBoxed(Integer value) {
+            sum += value;
+        }
+
+        public void addCB(int value, Callback<Long> cb) {
+            sum += value;
+            cb.complete(sum, null);
+        }
+
+        public IPromise<Long> getSum() {
+            return resolve(sum);
+        }
+    }
+
+    public static class Sender extends Actor<Sender> {
+
+        Receiver receiver;
+        long lastResult;
+        int results;
+
+        public void init(Receiver receiver) {
+            this.receiver = receiver;
+        }
+
+        public IPromise<Long> run(int n) {
+            for (int i = 0; i < n; i++) {
+                receiver.add(1);
+                receiver.addAndGet(1).then( (r, e) -> { lastResult = Math.max(lastResult,r); results++; });
+                receiver.addCB(1, (r, e) -> { lastResult = Math.max(lastResult,r); results++; });
+            }
+            Promise<Long> res = new Promise<>();
+            receiver.getSum().then( (r, e) -> res.resolve(r) );
+            return res;
+        }
+
+        // one directional, no replies allocating entries in receiver's pool
+        public IPromise<Long> flood(int n) {
+            for (int i = 0; i < n; i++) {
+                receiver.add(1);
+                receiver.addBoxed(1);
+            }
+            Promise<Long> res = new Promise<>();
+            receiver.getSum().then( (r, e) -> res.resolve(r) );
+            return res;
+        }
+
+        // stale method index (e.g. proxy of another class version), dispatched by name
+        public IPromise<Long> floodStaleIndex(int n) {
+            long argTypes = UnboxedCallEntry.argTypesOf(new Class[] {int.class});
+            for (int i = 0; i < n; i++) {
+                UnboxedCallEntry.Of1 entry = (UnboxedCallEntry.Of1) CallEntryPool.obtainUnboxed(1, argTypes);
+                entry.p0 = 1;
+                getScheduler().enqueueCall(self(), receiver, "add", Integer.MAX_VALUE, 0, entry, false);
+            }
+            Promise<Long> res = new Promise<>();
+            receiver.getSum().then( (r, e) -> res.resolve(r) );
+            return res;
+        }
+
+        public IPromise<Long> getCreated() {
+            return resolve(CallEntryPool.get().getCreated());
+        }
+
+        public IPromise<Integer> getResults() {
+            return resolve(results);
+        }
+
+        public IPromise<Long> getPoolStats() {
+            CallEntryPool pool = CallEntryPool.get();
+            return resolve(pool.getRecycled());
+        }
+    }
+
+    boolean enabled;
+
+    @Before
+    public void setUp() {
+        enabled = CallEntryPool.ENABLED;
+        CallEntryPool.ENABLED = true;
+    }
+
+    @After
+    public void tearDown() {
+        CallEntryPool.ENABLED = enabled;
+    }
+
+    @Test
+    public void recycle() {
+        Receiver receiver = Actors.AsActor(Receiver.class);
+        Sender sender = Actors.AsActor(Sender.class);
+        sender.init(receiver);
+        int n = 10_000;
+        for (int round = 0; round < 5; round++) {
+            assertEquals(3L * n * (round + 1), (long) sender.run(n).await(10_000));
+        }
+        // results are processed after sum has been received
+        assertEquals(2 * n * 5, (int) sender.getResults().await(10_000));
+        assertTrue(sender.getPoolStats().await() > 0);
+        sender.stop();
+        receiver.stop();
+    }
+
+    @Test
+    public void recycleAcrossDispatchers() {
+        // entries are released by the consumer's dispatcher and have to find their way back to the producer
+        Receiver receiver = Actors.AsActor(Receiver.class, new SimpleScheduler());
+        Sender sender = Actors.AsActor(Sender.class, new SimpleScheduler());
+        sender.init(receiver);
+        int n = 250, rounds = 200;
+        for (int round = 0; round < rounds; round++) {
+            assertEquals(2L * n * (round + 1), (long) sender.flood(n).await(10_000));
+        }
+        long created = sender.getCreated().await();
+        assertTrue("created " + created, created < 2L * n * rounds / 10);
+        sender.stop();
+        receiver.stop();
+    }
+
+    @Test
+    public void recycleStaleIndex() {
+        Receiver receiver = Actors.AsActor(Receiver.class);
+        Sender sender = Actors.AsActor(Sender.class);
+        sender.init(receiver);
+        int n = 1000, rounds = 20;
+        long created = sender.getCreated().await();
+        for (int round = 0; round < rounds; round++) {
+            assertEquals((long) n * (round + 1), (long) sender.floodStaleIndex(n).await(10_000));
+        }
+        created = sender.getCreated().await() - created;
+        assertTrue("created " + created, created < (long) n * rounds / 10);
+        sender.stop();
+        receiver.stop();
+    }
+
+}
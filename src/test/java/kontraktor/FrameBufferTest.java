@@ -0,0 +1,92 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.asyncio.ByteBufferPool;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * frames are written from pooled buffers and decoded from the receive buffer, frames spanning several
+ * reads are staged.
+ */
+public class FrameBufferTest {
+
+    public static class EchoService extends Actor<EchoService> {
+
+        public IPromise<byte[]> echo(byte[] b) {
+            return resolve(b);
+        }
+    }
+
+    @Test
+    public void poolReusesBuffers() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer buf = pool.acquire(5000);
+        assertTrue(buf.isDirect());
+        assertEquals(8192, buf.capacity());
+        buf.putInt(17);
+        pool.release(buf);
+        assertEquals(1, pool.getIdle());
+        ByteBuffer again = pool.acquire(8000);
+        assertSame(buf, again);
+        assertEquals(0, again.position());
+        assertEquals(0, pool.getIdle());
+        ByteBuffer large = pool.acquire(ByteBufferPool.MAX_POOLED_SIZE + 1);
+        assertFalse(large.isDirect());
+        pool.release(large);
+        assertEquals(0, pool.getIdle());
+    }
+
+    @Test
+    public void invalidFrameClosesConnection() throws Exception {
+        EchoService service = Actors.AsActor(EchoService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5697).publish().await();
+        try (Socket socket = new Socket("localhost", 5697)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(new byte[] { -1, -1, -1, -1, 1, 2, 3 }); // length -1
+            assertEquals(-1, socket.getInputStream().read());
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    @Test
+    public void largeAndSmallFrames() {
+        EchoService service = Actors.AsActor(EchoService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5695).publish().await();
+        try {
+            EchoService remote = (EchoService) new TCPConnectable(EchoService.class, "localhost", 5695).connect().await();
+            int sizes[] = { 0, 10, 4000, 100_000, 3_000_000 };
+            List<IPromise<byte[]>> results = new ArrayList<>();
+            List<byte[]> sent = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                byte b[] = new byte[sizes[i % sizes.length]];
+                Arrays.fill(b, (byte) i);
+                sent.add(b);
+                results.add(remote.echo(b));
+            }
+            Actors.all(results).await(30_000);
+            for (int i = 0; i < sent.size(); i++) {
+                assertArrayEquals(sent.get(i), results.get(i).get());
+            }
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.ActorInvoker;
+import org.nustaq.kontraktor.impl.UnboxedCallEntry;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks generated invokers dispatch primitives, arrays, promises and exceptions
+ * like the former reflection based dispatch did.
+ */
+public class InvokerTest {
+
+    public static class InvokeActor extends Actor<InvokeActor> {
+
+        long sum;
+
+        public void add( int a, long b, short c, byte d, char e ) {
+            sum += a + b + c + d + e;
+        }
+
+        public IPromise<Boolean> flag( boolean b ) {
+            return resolve(b);
+        }
+
+        public IPromise<Double> mult( double a, float b ) {
+            return resolve(a*b);
+        }
+
+        public IPromise<Integer> len( String arr[][] ) {
+            return resolve(arr.length);
+        }
+
+        public IPromise<Long> getSum() {
+            return resolve(sum);
+        }
+
+        public IPromise fail() {
+            throw new IllegalStateException("expected");
+        }
+
+        public void callback( int x, String s, Callback<Integer> cb ) {
+            cb.complete(x, null);
+        }
+
+        public void untyped( long x, Object cb ) {
+            ((Callback) cb).complete(x, null);
+        }
+
+        public IPromise<String> small( boolean a, byte b, char c ) {
+            return resolve(a + "," + b + "," + c);
+        }
+
+        public IPromise<String> floats( short a, float b, double c ) {
+            return resolve(a + "," + b + "," + c);
+        }
+
+        public IPromise<String> mixed( long a, String b, int c ) {
+            return resolve(a + "," + b + "," + c);
+        }
+    }
+
+    public static class CallerActor extends Actor<CallerActor> {
+
+        public IPromise<Integer> callBack( InvokeActor target ) {
+            Promise<Integer> res = new Promise<>();
+            Thread me = Thread.currentThread();
+            int count[] = {0};
+            Callback<Object> cb = (r, e) -> {
+                if ( Thread.currentThread() == me && ++count[0] == 2 )
+                    res.resolve(count[0]);
+            };
+            // callback wrapping is decided by the proxy from the parameter types
+            target.callback(1, "s", (Callback) cb);
+            target.untyped(2, cb);
+            return res;
+        }
+    }
+
+    @Test
+    public void invokerIsGenerated() throws Exception {
+        InvokeActor act = Actors.AsActor(InvokeActor.class);
+        try {
+            ActorInvoker invoker = act.__invoker;
+            assertNotNull(invoker);
+            assertNotEquals(ActorInvoker.class, invoker.getClass());
+            int idx = invoker.getMethodIndex("flag");
+            assertTrue(idx >= 0);
+            assertTrue(invoker.hasFutureResult(idx));
+            // minbin delivers boolean as byte
+            IPromise res = (IPromise) invoker.invoke(act.getActor(), idx, new Object[]{(byte) 1});
+            assertEquals(Boolean.TRUE, res.get());
+        } finally {
+            act.stop();
+        }
+    }
+
+    // calls with up to UnboxedCallEntry.MAX_ARGS args incl. primitives are dispatched without boxing
+    @Test
+    public void unboxed() throws Exception {
+        InvokeActor act = Actors.AsActor(InvokeActor.class);
+        try {
+            act.__invoker.getClass().getDeclaredMethod("invokeUnboxed", Object.class, int.class, UnboxedCallEntry.class);
+            assertEquals("true,-1,\uffff", act.small(true, (byte) -1, '\uffff').await());
+            assertEquals("-32768,-1.5,4.9E-324", act.floats(Short.MIN_VALUE, -1.5f, Double.MIN_VALUE).await());
+            assertEquals("NaN", act.mult(Double.NaN, 1).await().toString());
+            assertEquals(Long.MIN_VALUE + ",null,-7", act.mixed(Long.MIN_VALUE, null, -7).await());
+            assertEquals(6.0, act.mult(2, 3).await(), 0.0001);
+        } finally {
+            act.stop();
+        }
+    }
+
+    // args array of unboxed entries is materialized on demand (remote refs, fallback dispatch)
+    @Test
+    public void unboxedArgs() {
+        long types = UnboxedCallEntry.argTypesOf(new Class[] {float.class, String.class, boolean.class});
+        UnboxedCallEntry.Of3 e = (UnboxedCallEntry.Of3) UnboxedCallEntry.create(3, types);
+        e.p0 = Float.floatToRawIntBits(-2.5f);
+        e.o1 = "s";
+        e.p2 = 1;
+        assertArrayEquals(new Object[] {-2.5f, "s", true}, e.getArgs());
+        assertEquals(0, UnboxedCallEntry.argTypesOf(new Class[] {String.class}));
+        assertEquals(0, UnboxedCallEntry.argTypesOf(new Class[] {int.class, int.class, int.class, int.class}));
+    }
+
+    @Test
+    public void callbackArgsAreWrapped() {
+        InvokeActor act = Actors.AsActor(InvokeActor.class);
+        CallerActor caller = Actors.AsActor(CallerActor.class);
+        try {
+            assertEquals(2, (int) caller.callBack(act).await());
+            assertEquals(0l, (long) act.getSum().await()); // no args
+        } finally {
+            act.stop();
+            caller.stop();
+        }
+    }
+
+    @Test
+    public void dispatch() {
+        InvokeActor act = Actors.AsActor(InvokeActor.class);
+        try {
+            act.add(1, 2, (short) 3, (byte) 4, (char) 5);
+            assertEquals(15l, (long) act.getSum().await());
+            assertEquals(Boolean.FALSE, act.flag(false).await());
+            assertEquals(6.0, act.mult(2, 3).await(), 0.0001);
+            assertEquals(2, (int) act.len(new String[][]{{"a"}, {"b"}}).await());
+            Object err = act.fail().awaitPromise(5000).getError();
+            assertTrue(err instanceof IllegalStateException);
+        } finally {
+            act.stop();
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.annotations.Local;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.encoding.SerializerType;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+import org.nustaq.kontraktor.remoting.tcp.TCPPublisher;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * remote calls switch from method names to method indices once the method table of
+ * the remote actor has been received. Binary codings stream call args (incl. callbacks)
+ * with RemoteCallEntrySerializer.
+ */
+public class MethodIndexTest {
+
+    public static class Unserializable implements Serializable {
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            throw new NotSerializableException("test");
+        }
+    }
+
+    public static class IndexService extends Actor<IndexService> {
+
+        int count;
+
+        public IPromise<Integer> inc(int by) {
+            count += by;
+            return resolve(count);
+        }
+
+        public IPromise<String> echo(String s) {
+            return resolve(s);
+        }
+
+        public void stream(int n, Callback<Integer> cb) {
+            for (int i = 0; i < n; i++) {
+                cb.pipe(i);
+            }
+            cb.finish();
+        }
+
+        public IPromise<Object> echoAny(Object o) {
+            return resolve(o);
+        }
+
+        public void echoAnyCB(Object o, Callback<Object> cb) {
+            cb.resolve(o);
+        }
+
+        List<Integer> items = new ArrayList<>();
+
+        public IPromise<List<Integer>> items() {
+            return resolve(items);
+        }
+
+        public void addItems(int n) {
+            for (int i = 0; i < n; i++) {
+                items.add(i);
+            }
+        }
+
+        public IPromise<Object> unserializableResult() {
+            return resolve(new Unserializable());
+        }
+
+        @Local
+        public IPromise<String> local() {
+            return resolve("local");
+        }
+    }
+
+    @Test
+    public void tcp() throws Exception {
+        runCalls(5671, false, SerializerType.FSTSer);
+    }
+
+    @Test
+    public void nio() throws Exception {
+        runCalls(5672, true, SerializerType.FSTSer);
+    }
+
+    @Test
+    public void json() throws Exception {
+        runCalls(5673, false, SerializerType.JsonNoRef);
+    }
+
+    @Test
+    public void unserializable() throws Exception {
+        IndexService service = Actors.AsActor(IndexService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5674).publish().await();
+        try {
+            IndexService remote = (IndexService) new TCPConnectable(IndexService.class, "localhost", 5674).connect().await();
+            assertNotNull(remote.echoAny(new Unserializable()).awaitPromise(5000).getError());
+            Promise cbResult = new Promise();
+            remote.echoAnyCB(new Unserializable(), cbResult);
+            assertNotNull(cbResult.awaitPromise(5000).getError());
+            assertNotNull(remote.unserializableResult().awaitPromise(5000).getError());
+            // connection is still usable
+            assertEquals("ok", remote.echoAny("ok").await(5000));
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    @Test
+    public void resultIsolation() throws Exception {
+        IndexService service = Actors.AsActor(IndexService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5676).publish().await();
+        try {
+            IndexService remote = (IndexService) new TCPConnectable(IndexService.class, "localhost", 5676).connect().await();
+            // a result modified by a subsequent message must arrive as it was when returned
+            for (int i = 0; i < 20; i++) {
+                IPromise<List<Integer>> items = remote.items();
+                remote.addItems(10_000);
+                assertEquals(i * 10_000, items.await(5000).size());
+            }
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    // args are written in place into the batch, which grows beyond its initial size then
+    @Test
+    public void largeArgs() throws Exception {
+        IndexService service = Actors.AsActor(IndexService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5675).publish().await();
+        try {
+            IndexService remote = (IndexService) new TCPConnectable(IndexService.class, "localhost", 5675).connect().await();
+            for (int i = 0; i < 3; i++) {
+                byte large[] = new byte[1_000_000 + i];
+                large[large.length - 1] = (byte) i;
+                assertArrayEquals(large, (byte[]) remote.echoAny(large).await(5000));
+                assertEquals("small" + i, remote.echoAny("small" + i).await(5000));
+            }
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    // args are encoded as self contained block within the batch, so references and class names
+    // shared inside args and with preceding entries must resolve on the receiver
+    @Test
+    public void sharedReferences() throws Exception {
+        checkSharedReferences(5677, SerializerType.FSTSer);
+        checkSharedReferences(5679, SerializerType.UnsafeBinary);
+    }
+
+    void checkSharedReferences(int port, SerializerType serType) throws Exception {
+        IndexService service = Actors.AsActor(IndexService.class);
+        ActorServer server = new TCPNIOPublisher(service, port).serType(serType).publish().await();
+        try {
+            IndexService remote = (IndexService) new TCPConnectable(IndexService.class, "localhost", port).serType(serType).connect().await();
+            List<IPromise<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) { // batched
+                ArrayList<Object> shared = new ArrayList<>();
+                shared.add("s" + i);
+                ArrayList<Object> list = new ArrayList<>();
+                list.add(shared);
+                list.add(shared);
+                list.add(list);
+                results.add(remote.echoAny(list));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                List<Object> list = (List<Object>) results.get(i).await(5000);
+                assertSame(list.get(0), list.get(1));
+                assertSame(list, list.get(2));
+                assertEquals("s" + i, ((List) list.get(0)).get(0));
+            }
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    void runCalls(int port, boolean nio, SerializerType serType) throws Exception {
+        IndexService service = Actors.AsActor(IndexService.class);
+        ActorServer server = nio ?
+            new TCPNIOPublisher(service, port).serType(serType).publish().await() :
+            new TCPPublisher(service, port).serType(serType).publish().await();
+        try {
+            IndexService remote = (IndexService) new TCPConnectable(IndexService.class, "localhost", port).serType(serType).connect().await();
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                sum += i;
+                assertEquals(sum, (int) remote.inc(i).await());
+                assertEquals("e" + i, remote.echo("e" + i).await());
+            }
+            assertTrue(remote.__clientConnection.hasRemoteMethodTable(remote));
+            int streamed[] = {0};
+            Promise done = new Promise();
+            remote.stream(10, (r, e) -> {
+                if (Actors.isResult(e))
+                    streamed[0] += r;
+                else
+                    done.resolve();
+            });
+            done.await(5000);
+            assertEquals(45, streamed[0]);
+            Object error = remote.local().awaitPromise(5000).getError();
+            assertNotNull(error);
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+}
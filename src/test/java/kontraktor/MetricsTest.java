@@ -0,0 +1,123 @@
+package kontraktor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.monitoring.ActorMetrics;
+import org.nustaq.kontraktor.monitoring.LatencyHistogram;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * per actor class / method metrics collected by dispatchers
+ */
+public class MetricsTest {
+
+    public static class Measured extends Actor<Measured> {
+
+        int count;
+
+        public void work() {
+            count++;
+            long end = System.nanoTime() + 10_000;
+            while ( System.nanoTime() < end ) {
+                // burn
+            }
+        }
+
+        public void fail() {
+            throw new RuntimeException("expected");
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(count);
+        }
+    }
+
+    int sampleRate;
+
+    @Before
+    public void enable() {
+        sampleRate = ActorMetrics.SAMPLE_RATE;
+        ActorMetrics.reset();
+        ActorMetrics.ENABLED = true;
+    }
+
+    @After
+    public void disable() {
+        ActorMetrics.ENABLED = false;
+        ActorMetrics.SAMPLE_RATE = sampleRate;
+        ActorMetrics.reset();
+    }
+
+    @Test
+    public void perMethod() throws InterruptedException {
+        ActorMetrics.SAMPLE_RATE = 1;
+        Measured act = Actors.AsActor(Measured.class);
+        for (int i = 0; i < 1000; i++) {
+            act.work();
+        }
+        for (int i = 0; i < 10; i++) {
+            act.fail();
+        }
+        assertEquals(1000, (int) act.getCount().await());
+        Actor.ActorReport report = (Actor.ActorReport) act.getReport().await();
+        ActorMetrics.MethodReport work = report.getMetrics().getMethod("work");
+        assertEquals(1000, work.getCount());
+        assertEquals(0, work.getErrors());
+        assertEquals(1000, work.getExecutionNanos().getCount());
+        assertTrue(work.getExecutionNanos().getP50() >= 10_000);
+        assertEquals(1000, work.getQueueWaitNanos().getCount());
+        ActorMetrics.MethodReport fail = report.getMetrics().getMethod("fail");
+        assertEquals(10, fail.getCount());
+        assertEquals(10, fail.getErrors());
+
+        act.stop();
+        Thread.sleep(100);
+        act.work();
+        ActorMetrics.Report classReport = ActorMetrics.of(act).getReport();
+        assertEquals(Measured.class.getName(), classReport.getActorClass());
+        assertEquals(1, classReport.getDeadLetters());
+
+        List<ActorMetrics.Report> all = (List<ActorMetrics.Report>) ActorMetrics.getMonitorable().getReport().await();
+        assertTrue(all.stream().anyMatch(r -> r.getActorClass().equals(Measured.class.getName())));
+    }
+
+    @Test
+    public void sampled() {
+        ActorMetrics.SAMPLE_RATE = 10;
+        Measured act = Actors.AsActor(Measured.class);
+        for (int i = 0; i < 2000; i++) {
+            act.work();
+        }
+        act.getCount().await();
+        ActorMetrics.MethodReport work = ActorMetrics.of(act).getReport().getMethod("work");
+        assertEquals(2000, work.getCount());
+        long sampled = work.getExecutionNanos().getCount();
+        assertTrue("sampled " + sampled, sampled > 50 && sampled < 600);
+        act.stop();
+    }
+
+    @Test
+    public void histogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000, h.getMax());
+        assertEquals(500_500, h.getMean(), 1);
+        long p50 = h.getPercentile(50), p99 = h.getPercentile(99);
+        assertTrue("p50 " + p50, p50 >= 500_000 && p50 <= 500_000 * 1.125);
+        assertTrue("p99 " + p99, p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, h.getPercentile(100));
+        h.reset();
+        assertEquals(0, h.getPercentile(50));
+    }
+
+}
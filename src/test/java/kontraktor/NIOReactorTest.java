@@ -0,0 +1,60 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.asyncio.NIOReactor;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * NIO server io is done by reactor threads, calls are processed in the facade's thread.
+ */
+public class NIOReactorTest {
+
+    public static class CountService extends Actor<CountService> {
+
+        int count;
+
+        public IPromise<Integer> inc() {
+            return resolve(++count);
+        }
+
+        public IPromise<String> threadName() {
+            return resolve(Thread.currentThread().getName());
+        }
+    }
+
+    @Test
+    public void manyClients() {
+        NIOReactor reactor = new NIOReactor(2);
+        CountService service = Actors.AsActor(CountService.class);
+        ActorServer server = new TCPNIOPublisher(service, 5693).reactor(reactor).publish().await();
+        List<CountService> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                clients.add((CountService) new TCPConnectable(CountService.class, "localhost", 5693).connect().await());
+            }
+            List<IPromise<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                clients.forEach(client -> results.add(client.inc()));
+            }
+            Actors.all(results).await(10_000);
+            assertEquals(201, (int) clients.get(0).inc().await());
+            assertFalse(clients.get(0).threadName().await().startsWith("NIOReactor"));
+        } finally {
+            clients.forEach(client -> client.close());
+            server.close().await();
+            service.stop();
+            reactor.shutDown();
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.impl.ActorProxyFactory;
+import org.nustaq.kontraktor.impl.ActorProxyGenerator;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * proxies/invokers generated at build time are loaded instead of generating them at runtime
+ */
+public class PrebuiltProxyTest {
+
+    public static class Prebuilt extends Actor<Prebuilt> {
+
+        int sum;
+
+        public void add(int x) {
+            sum += x;
+        }
+
+        public IPromise<Integer> getSum() {
+            return resolve(sum);
+        }
+    }
+
+    public static abstract class AbstractActor extends Actor<AbstractActor> {
+    }
+
+    @Test
+    public void loadPrebuilt() throws Exception {
+        File classesDir = new File(Prebuilt.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String base = Prebuilt.class.getName().replace('.', File.separatorChar);
+        File proxyFile = new File(classesDir, base + "_ActorProxy.class");
+        File invokerFile = new File(classesDir, base + "_ActorInvoker.class");
+        try {
+            new ActorProxyGenerator().generate(Prebuilt.class, classesDir);
+            assertTrue(proxyFile.exists());
+            assertTrue(invokerFile.exists());
+
+            Prebuilt act = Actors.AsActor(Prebuilt.class);
+            // defined by the actor's loader, not by a javassist loader
+            assertSame(Prebuilt.class.getClassLoader(), act.getClass().getClassLoader());
+            assertSame(Prebuilt.class.getClassLoader(), act.__invoker.getClass().getClassLoader());
+            for (int i = 0; i < 10; i++) {
+                act.add(i);
+            }
+            assertEquals(45, (int) act.getSum().await());
+            act.stop();
+        } finally {
+            proxyFile.delete();
+            invokerFile.delete();
+        }
+    }
+
+    @Test
+    public void scan() throws Exception {
+        File classesDir = new File(Prebuilt.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<Class<? extends Actor>> classes = new ActorProxyGenerator().scan(classesDir);
+        assertTrue(classes.contains(Prebuilt.class));
+        assertFalse(classes.contains(AbstractActor.class));
+        assertNotEquals(ActorProxyFactory.signatureOf(Prebuilt.class), ActorProxyFactory.signatureOf(AbstractActor.class));
+        assertEquals(ActorProxyFactory.signatureOf(Prebuilt.class), ActorProxyFactory.signatureOf(Prebuilt.class));
+    }
+
+}
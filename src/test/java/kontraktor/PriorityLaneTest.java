@@ -0,0 +1,155 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.annotations.Deadline;
+import org.nustaq.kontraktor.annotations.Priority;
+import org.nustaq.kontraktor.impl.DeadlineExceededException;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+import org.nustaq.kontraktor.routers.Krouter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * calls to Priority/Deadline methods overtake queued mailbox messages, expired Deadline calls
+ * are rejected.
+ */
+public class PriorityLaneTest {
+
+    static volatile boolean working;
+
+    public static class Busy extends Actor<Busy> {
+
+        int processed;
+
+        public void work(long micros) {
+            working = true;
+            long end = System.nanoTime() + micros * 1000;
+            while ( System.nanoTime() < end ) {
+                // burn
+            }
+            processed++;
+            working = false;
+        }
+
+        @Priority
+        public IPromise<Integer> status() {
+            return resolve(processed);
+        }
+
+        @Deadline(100)
+        public IPromise<Integer> expiring() {
+            return resolve(processed);
+        }
+
+        public IPromise<Integer> getProcessed() {
+            return resolve(processed);
+        }
+    }
+
+    @Test
+    public void priorityOvertakesMailbox() {
+        Busy busy = Actors.AsActor(Busy.class);
+        for (int i = 0; i < 500; i++) {
+            busy.work(1000);
+        }
+        assertTrue(busy.status().await(5000) < 100);
+        assertEquals(500, (int) busy.getProcessed().await(30_000));
+        busy.stop();
+    }
+
+    @Test
+    public void deadlineExpires() {
+        Busy busy = Actors.AsActor(Busy.class);
+        assertEquals(0, (int) busy.expiring().await(5000));
+        busy.work(500_000);
+        while ( ! working ) {
+            Thread.yield();
+        }
+        Object error = busy.expiring().awaitPromise(5000).getError();
+        assertTrue(error instanceof DeadlineExceededException);
+        assertEquals(1, (int) busy.expiring().await(5000));
+        busy.stop();
+    }
+
+    @Test
+    public void remotePriority() {
+        Busy service = Actors.AsActor(Busy.class);
+        ActorServer server = new TCPNIOPublisher(service, 5692).publish().await();
+        try {
+            Busy remote = (Busy) new TCPConnectable(Busy.class, "localhost", 5692).connect().await();
+            for (int i = 0; i < 500; i++) {
+                remote.work(1000);
+            }
+            assertTrue(remote.status().await(5000) < 100);
+            assertEquals(500, (int) remote.getProcessed().await(30_000));
+            assertTrue(remote.router$servicePing(17).await(5000) == 17);
+            remote.close();
+        } finally {
+            server.close();
+            service.stop();
+        }
+    }
+
+    // like a service of a previous version not knowing router$servicePing
+    public static class LegacyService extends Actor<LegacyService> {
+        @Override
+        public IPromise<Long> router$servicePing(long tim) {
+            return reject("unknown method router$servicePing");
+        }
+    }
+
+    public static class PingingKrouter extends Krouter {
+
+        List<Actor> services = new ArrayList<>();
+
+        public void addService(Actor service) {
+            services.add(service);
+        }
+
+        @Override
+        protected List<Actor> getServices() {
+            return services;
+        }
+
+        public IPromise<Boolean> isPinged(boolean legacy) {
+            Actor service = services.get(0);
+            return resolve(timeoutMap.containsKey(service) && legacyPingServices.contains(service) == legacy);
+        }
+    }
+
+    @Test
+    public void krouterPingsLegacyServices() throws InterruptedException {
+        checkKrouterPing(LegacyService.class, 5693, true);
+        checkKrouterPing(Busy.class, 5694, false);
+    }
+
+    void checkKrouterPing(Class<? extends Actor> serviceClass, int port, boolean legacy) throws InterruptedException {
+        Actor service = Actors.AsActor(serviceClass);
+        ActorServer server = new TCPNIOPublisher(service, port).publish().await();
+        PingingKrouter krouter = Actors.AsActor(PingingKrouter.class);
+        try {
+            krouter.init();
+            Actor remote = (Actor) new TCPConnectable(serviceClass, "localhost", port).connect().await();
+            krouter.addService(remote);
+            for (int i = 0; i < 50 && ! krouter.isPinged(legacy).await(); i++) {
+                krouter.pingServices();
+                Thread.sleep(100);
+            }
+            assertTrue(krouter.isPinged(legacy).await());
+            remote.close();
+        } finally {
+            krouter.stop();
+            server.close();
+            service.stop();
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Callback;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Promise state transitions are done by CAS, no locking
+ */
+public class PromiseTest {
+
+    @Test
+    public void chain() {
+        List<String> order = new ArrayList<>();
+        Promise<String> p = new Promise<>();
+        IPromise next = p.then((r, e) -> order.add("first " + r));
+        next.then((r, e) -> order.add("second " + r));
+        p.resolve("x");
+        assertEquals(2, order.size());
+        assertEquals("first x", order.get(0));
+        assertEquals("second x", order.get(1));
+        assertEquals("x", next.get());
+
+        // register on settled promise
+        Promise<String> settled = new Promise<>("y");
+        IPromise settledNext = settled.then((r, e) -> order.add("third " + r));
+        assertEquals("third y", order.get(2));
+        assertTrue(settledNext.isSettled());
+        assertEquals("y", settledNext.get());
+
+        Promise err = new Promise();
+        err.reject("err");
+        assertEquals("err", err.getError());
+        assertNull(err.get());
+        Promise nullRes = new Promise();
+        nullRes.resolve();
+        assertTrue(nullRes.isSettled());
+        assertNull(nullRes.get());
+        assertNull(nullRes.getError());
+    }
+
+    @Test
+    public void promiseAsCallback() {
+        Promise<Integer> p = new Promise<>();
+        Promise<Integer> target = new Promise<>();
+        assertSame(target, p.then(target));
+        p.resolve(13);
+        assertEquals(13, (int) target.get());
+    }
+
+    @Test
+    public void streaming() {
+        Promise<Integer> p = new Promise<>();
+        List<Object> received = new ArrayList<>();
+        p.then((r, e) -> received.add(e));
+        p.complete(1, Callback.CONT);
+        assertEquals(1, (int) p.get());
+        assertEquals(Callback.CONT, p.getError());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void doubleUse() {
+        Promise<Integer> p = new Promise<>();
+        p.then((r, e) -> {});
+        try {
+            p.then((r, e) -> {});
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        p.resolve(1);
+        try {
+            p.resolve(2);
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(1, (int) p.get());
+
+        // late result after timeout is ignored
+        Promise<Integer> to = new Promise<>();
+        to.timedOut(Timeout.INSTANCE);
+        to.resolve(3);
+        assertEquals(Timeout.INSTANCE, to.getError());
+        assertNull(to.get());
+    }
+
+    @Test
+    public void raceThenComplete() throws Exception {
+        int runs = 20_000;
+        AtomicInteger fired = new AtomicInteger();
+        AtomicInteger chained = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        List<Promise<Integer>> promises = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            promises.add(new Promise<>());
+        }
+        CountDownLatch done = new CountDownLatch(2);
+        new Thread(() -> {
+            try {
+                barrier.await();
+                for (int i = 0; i < runs; i++) {
+                    int expected = i;
+                    promises.get(i).then((r, e) -> {
+                        if (((Integer) r) == expected)
+                            fired.incrementAndGet();
+                    }).then((r, e) -> chained.incrementAndGet());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            done.countDown();
+        }).start();
+        new Thread(() -> {
+            try {
+                barrier.await();
+                for (int i = 0; i < runs; i++) {
+                    promises.get(i).resolve(i);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            done.countDown();
+        }).start();
+        done.await();
+        assertEquals(runs, fired.get());
+        assertEquals(runs, chained.get());
+    }
+
+}
@@ -0,0 +1,101 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.impl.SchedulingReport;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+
+import static org.junit.Assert.*;
+
+/**
+ * dispatchers process up to a quantum of messages of an actor in a row
+ */
+public class QuantumTest {
+
+    public static class Worker extends Actor<Worker> {
+
+        int count;
+        boolean wrongSender;
+        Worker other;
+
+        public void setOther(Worker other) {
+            this.other = other;
+        }
+
+        public void work() {
+            count++;
+            if ( sender.get() == null || sender.get().getActor() != getActor() )
+                wrongSender = true;
+        }
+
+        // nested poll while awaiting, must not break sender of subsequent batched messages
+        public void workAwait() {
+            work(); // count before, await processes subsequent messages of this actor
+            other.getCount().await();
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(wrongSender ? -1 : count);
+        }
+    }
+
+    @Test
+    public void batching() {
+        SimpleScheduler sched = new SimpleScheduler(100_000, true);
+        sched.setQuantum(32, 0);
+        Worker a = Actors.AsActor(Worker.class, sched);
+        Worker b = Actors.AsActor(Worker.class, sched);
+        a.setOther(b);
+        b.setOther(a);
+        int msgs = 20_000;
+        for (int i = 0; i < msgs; i++) {
+            a.work();
+            b.work();
+            if ( i % 1000 == 0 )
+                a.workAwait();
+        }
+        assertEquals(msgs+20, (int) a.getCount().await());
+        assertEquals(msgs, (int) b.getCount().await());
+        SchedulingReport report = (SchedulingReport) sched.getReport().await();
+        assertEquals(32, report.getQuantumMessages());
+        assertTrue(report.getBatchedMessages() >= 2 * msgs);
+        assertTrue(report.getBatchCount() < report.getBatchedMessages());
+        a.stop();
+        b.stop();
+        sched.setKeepAlive(false);
+    }
+
+    @Test
+    public void roundRobinByDefault() {
+        SimpleScheduler sched = new SimpleScheduler(100_000, true);
+        Worker a = Actors.AsActor(Worker.class, sched);
+        for (int i = 0; i < 1000; i++) {
+            a.work();
+        }
+        assertEquals(1000, (int) a.getCount().await());
+        SchedulingReport report = (SchedulingReport) sched.getReport().await();
+        assertEquals(1, report.getQuantumMessages());
+        assertEquals(report.getBatchCount(), report.getBatchedMessages());
+        a.stop();
+        sched.setKeepAlive(false);
+    }
+
+    @Test
+    public void noBatching() {
+        SimpleScheduler sched = new SimpleScheduler(100_000, true);
+        sched.setQuantum(1, 0);
+        Worker a = Actors.AsActor(Worker.class, sched);
+        for (int i = 0; i < 1000; i++) {
+            a.work();
+        }
+        assertEquals(1000, (int) a.getCount().await());
+        SchedulingReport report = (SchedulingReport) sched.getReport().await();
+        assertEquals(report.getBatchCount(), report.getBatchedMessages());
+        assertEquals(0, report.getQuantumExpiredCount());
+        a.stop();
+        sched.setKeepAlive(false);
+    }
+
+}
@@ -0,0 +1,107 @@
+package kontraktor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.base.RemoteRefPolling;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * messages to a remote ref are sent once enqueued, not with the next poll. Signal driven dispatchers
+ * are used, so idle threads don't add latency either.
+ */
+public class RemoteSendLatencyTest {
+
+    public static class EchoService extends Actor<EchoService> {
+
+        public IPromise<Integer> echo(int i) {
+            return resolve(i);
+        }
+    }
+
+    public static class Client extends Actor<Client> {
+
+        EchoService remote;
+        long rtt[];
+
+        public IPromise connect(int port) {
+            Promise res = new Promise();
+            new TCPConnectable(EchoService.class, "localhost", port).connect().then( (r, e) -> {
+                remote = (EchoService) r;
+                res.complete(null, e);
+            });
+            return res;
+        }
+
+        // sends an echo each time the connection got idle, returns round trip nanos
+        public IPromise<long[]> measure(int count) {
+            Promise<long[]> res = new Promise<>();
+            rtt = new long[count];
+            next(0, res);
+            return res;
+        }
+
+        void next(int i, Promise<long[]> res) {
+            if ( i == rtt.length ) {
+                remote.close();
+                res.resolve(rtt);
+                return;
+            }
+            delayed(RemoteRefPolling.EMPTY_Q_BACKOFF_WAIT_MILLIS * 2, () -> {
+                long tim = System.nanoTime();
+                remote.echo(i).then( (r, e) -> {
+                    rtt[i] = System.nanoTime() - tim;
+                    next(i + 1, res);
+                });
+            });
+        }
+    }
+
+    boolean signalDriven;
+
+    @Before
+    public void setUp() {
+        signalDriven = DispatcherThread.SIGNAL_DRIVEN;
+        DispatcherThread.SIGNAL_DRIVEN = true;
+    }
+
+    @After
+    public void tearDown() {
+        DispatcherThread.SIGNAL_DRIVEN = signalDriven;
+    }
+
+    @Test
+    public void noIdlePollDelay() {
+        SimpleScheduler serverSched = new SimpleScheduler(10_000, true);
+        SimpleScheduler clientSched = new SimpleScheduler(10_000, true);
+        EchoService service = Actors.AsActor(EchoService.class, serverSched);
+        ActorServer server = new TCPNIOPublisher(service, 5696).publish().await();
+        Client client = Actors.AsActor(Client.class, clientSched);
+        try {
+            client.connect(5696).await(5000);
+            long rtt[] = client.measure(21).await(10_000);
+            Arrays.sort(rtt);
+            long median = rtt[rtt.length / 2];
+            assertTrue("median rtt " + median / 1000 + " micros", median < RemoteRefPolling.EMPTY_Q_BACKOFF_WAIT_MILLIS * 1_000_000 / 4);
+        } finally {
+            server.close();
+            service.stop();
+            client.stop();
+            serverSched.setKeepAlive(false);
+            clientSched.setKeepAlive(false);
+        }
+    }
+
+}
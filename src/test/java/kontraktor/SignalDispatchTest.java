@@ -0,0 +1,139 @@
+package kontraktor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.SimpleScheduler;
+import org.nustaq.kontraktor.impl.WorkStealingScheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * dispatchers created with DispatcherThread.SIGNAL_DRIVEN only poll actors signaled by enqueuers
+ */
+public class SignalDispatchTest {
+
+    public static class Counter extends Actor<Counter> {
+
+        int count;
+        Counter peer;
+
+        public void setPeer(Counter peer) {
+            this.peer = peer;
+        }
+
+        public void inc() {
+            count++;
+        }
+
+        public IPromise<Integer> getCount() {
+            return resolve(count);
+        }
+
+        // round trips via peer's promise, so results go through the callback queue
+        public IPromise<Integer> pingPong(int n) {
+            Promise<Integer> res = new Promise<>();
+            pingPong(n, 0, res);
+            return res;
+        }
+
+        void pingPong(int n, int sum, Promise<Integer> res) {
+            if ( n == 0 ) {
+                res.resolve(sum);
+                return;
+            }
+            peer.getCount().then( (r, e) -> pingPong(n - 1, sum + 1, res) );
+        }
+    }
+
+    boolean signalDriven;
+
+    @Before
+    public void setUp() {
+        signalDriven = DispatcherThread.SIGNAL_DRIVEN;
+        DispatcherThread.SIGNAL_DRIVEN = true;
+    }
+
+    @After
+    public void tearDown() {
+        DispatcherThread.SIGNAL_DRIVEN = signalDriven;
+    }
+
+    @Test
+    public void manyIdleActors() {
+        SimpleScheduler sched = new SimpleScheduler(10_000, true);
+        List<Counter> actors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            actors.add(Actors.AsActor(Counter.class, sched));
+        }
+        assertTrue(actors.get(0).getCurrentDispatcher().isSignalDriven());
+        // only a few actors receive messages
+        for (int i = 0; i < 10_000; i++) {
+            actors.get((i * 7) % 10).inc();
+        }
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += actors.get(i).getCount().await();
+        }
+        assertEquals(10_000, sum);
+        // wake up after idling
+        for (int round = 0; round < 5; round++) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            Counter last = actors.get(actors.size() - 1 - round);
+            last.inc();
+            assertEquals(1, (int) last.getCount().await(1000));
+        }
+        actors.forEach( act -> act.stop() );
+        sched.setKeepAlive(false);
+    }
+
+    @Test
+    public void callbacks() {
+        Counter a = Actors.AsActor(Counter.class);
+        Counter b = Actors.AsActor(Counter.class);
+        a.setPeer(b);
+        b.setPeer(a);
+        assertEquals(1000, (int) a.pingPong(1000).await(10_000));
+        assertEquals(1000, (int) b.pingPong(1000).await(10_000));
+        a.stop();
+        b.stop();
+    }
+
+    @Test
+    public void migration() {
+        WorkStealingScheduler sched = new WorkStealingScheduler(4);
+        List<WorkStealingTest.StealMe> actors = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            actors.add(Actors.AsActor(WorkStealingTest.StealMe.class, sched));
+        }
+        Map<DispatcherThread,List<WorkStealingTest.StealMe>> byThread = new HashMap<>();
+        actors.forEach( act -> byThread.computeIfAbsent(act.getCurrentDispatcher(), t -> new ArrayList<>()).add(act));
+        List<WorkStealingTest.StealMe> loaded = byThread.values().stream().filter(l -> l.size() >= 2).findFirst().get();
+        WorkStealingTest.StealMe a = loaded.get(0), b = loaded.get(1);
+        int msgs = 5000;
+        for (int i = 0; i < msgs; i++) {
+            a.work(i);
+            b.work(i);
+        }
+        assertEquals(msgs, (int) a.getProcessed().await(30_000));
+        assertEquals(msgs, (int) b.getProcessed().await(30_000));
+        assertNotEquals(a.getCurrentDispatcher(), b.getCurrentDispatcher());
+        actors.forEach( act -> act.stop() );
+        sched.terminateIfIdle();
+    }
+
+}
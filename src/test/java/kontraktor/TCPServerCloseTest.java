@@ -0,0 +1,50 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPPublisher;
+import org.nustaq.kontraktor.remoting.tcp.TCPServerConnector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * closing a blocking TCP server half closes its connections, the close promise is resolved once
+ * clients have closed their side.
+ */
+public class TCPServerCloseTest {
+
+    public static class EchoService extends Actor<EchoService> {
+
+        public IPromise<String> echo(String s) {
+            return resolve(s);
+        }
+    }
+
+    @Test
+    public void closeWaitsForClients() {
+        EchoService service = Actors.AsActor(EchoService.class);
+        ActorServer server = new TCPPublisher(service, 5694).publish().await();
+        List<Promise> disconnected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Promise disconnect = new Promise();
+            disconnected.add(disconnect);
+            EchoService client = (EchoService) new TCPConnectable(EchoService.class, "localhost", 5694)
+                .connect((res, err) -> disconnect.complete()).await();
+            assertEquals("e" + i, client.echo("e" + i).await());
+        }
+        long start = System.currentTimeMillis();
+        server.close().await(TCPServerConnector.DELAY_MS_TILL_CLOSE * 2);
+        assertTrue(System.currentTimeMillis() - start < TCPServerConnector.DELAY_MS_TILL_CLOSE);
+        disconnected.forEach(p -> p.await(5000));
+        service.stop();
+    }
+
+}
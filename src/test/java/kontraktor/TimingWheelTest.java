@@ -0,0 +1,131 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.Timeout;
+import org.nustaq.kontraktor.impl.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * delayed calls and promise timeouts run on a hashed timing wheel
+ */
+public class TimingWheelTest {
+
+    public static class DelayActor extends Actor<DelayActor> {
+
+        Thread thread;
+        List<Integer> fired = new ArrayList<>();
+
+        public IPromise<Boolean> delayedInOwnThread(int n) {
+            thread = Thread.currentThread();
+            Promise<Boolean> res = new Promise<>();
+            AtomicInteger count = new AtomicInteger();
+            boolean sameThread[] = {true};
+            for (int i = 0; i < n; i++) {
+                int delay = (n - i) * 10;
+                delayed(delay, () -> {
+                    sameThread[0] &= Thread.currentThread() == thread;
+                    fired.add(delay);
+                    if ( count.incrementAndGet() == n )
+                        res.resolve(sameThread[0]);
+                });
+            }
+            return res;
+        }
+
+        public IPromise<List<Integer>> getFired() {
+            return resolve(fired);
+        }
+
+        public IPromise<String> slow(long millis) {
+            Promise<String> res = new Promise<>();
+            delayed(millis, () -> res.resolve("done"));
+            return res;
+        }
+    }
+
+    @Test
+    public void order() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel("test wheel", 1, 8); // small wheel to test rounds
+        List<Long> fired = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(4);
+        long start = System.currentTimeMillis();
+        for (long delay : new long[] {50, 0, 20, 30}) {
+            wheel.schedule(delay, () -> {
+                assertTrue(System.currentTimeMillis() - start >= delay);
+                fired.add(delay);
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(0), fired.get(0));
+        assertEquals(Long.valueOf(20), fired.get(1));
+        assertEquals(Long.valueOf(30), fired.get(2));
+        assertEquals(Long.valueOf(50), fired.get(3));
+        wheel.stop();
+    }
+
+    @Test
+    public void cancel() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel("test wheel");
+        AtomicInteger count = new AtomicInteger();
+        List<TimingWheel.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            tasks.add(wheel.schedule(100 + i % 100, () -> count.incrementAndGet()));
+        }
+        tasks.forEach(task -> assertTrue(task.cancel()));
+        assertFalse(tasks.get(0).cancel());
+        CountDownLatch latch = new CountDownLatch(1);
+        TimingWheel.Task last = wheel.schedule(300, () -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(last.isExpired());
+        assertFalse(last.cancel());
+        assertEquals(0, count.get());
+        assertEquals(0, wheel.getSize());
+        wheel.stop();
+    }
+
+    @Test
+    public void delayedInActorThread() {
+        DelayActor act = Actors.AsActor(DelayActor.class);
+        assertTrue(act.delayedInOwnThread(20).await(5000));
+        List<Integer> fired = act.getFired().await();
+        for (int i = 0; i < fired.size(); i++) {
+            assertEquals((i+1) * 10, (int) fired.get(i));
+        }
+        act.stop();
+    }
+
+    @Test
+    public void timeoutCancelledOnSettle() throws InterruptedException {
+        DelayActor act = Actors.AsActor(DelayActor.class);
+        assertEquals("done", act.slow(10).timeoutIn(5000).await());
+        Object err = act.slow(1000).timeoutIn(10).awaitPromise(5000).getError();
+        assertTrue(err instanceof Timeout);
+        List<Promise> promises = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Promise p = new Promise();
+            p.timeoutIn(60_000);
+            promises.add(p);
+        }
+        assertTrue(Actors.timingWheel.getSize() > 0);
+        promises.forEach(p -> p.resolve());
+        long start = System.currentTimeMillis();
+        while ( Actors.timingWheel.getSize() > 0 && System.currentTimeMillis() - start < 5000 )
+            Thread.sleep(10);
+        assertEquals(0, Actors.timingWheel.getSize());
+        act.stop();
+    }
+
+}
@@ -0,0 +1,135 @@
+package kontraktor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.monitoring.RingBufferSpanSink;
+import org.nustaq.kontraktor.monitoring.Span;
+import org.nustaq.kontraktor.monitoring.TraceContext;
+import org.nustaq.kontraktor.monitoring.Tracing;
+import org.nustaq.kontraktor.remoting.base.ActorServer;
+import org.nustaq.kontraktor.remoting.tcp.TCPConnectable;
+import org.nustaq.kontraktor.remoting.tcp.TCPNIOPublisher;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * trace context is propagated across actors, callbacks and remote hops
+ */
+public class TracingTest {
+
+    public static class Back extends Actor<Back> {
+
+        public IPromise<Integer> work(int x) {
+            return resolve(x * 2);
+        }
+    }
+
+    public static class Front extends Actor<Front> {
+
+        Back b1, b2;
+
+        public void init() {
+            b1 = Actors.AsActor(Back.class);
+            b2 = Actors.AsActor(Back.class);
+        }
+
+        public IPromise<Integer> query(int x) {
+            Promise<Integer> res = new Promise<>();
+            Actors.all(b1.work(x), b2.work(x + 1)).then( (r, e) -> res.resolve(r[0].get() + r[1].get()) );
+            return res;
+        }
+
+        public void shutdown() {
+            b1.stop();
+            b2.stop();
+            self().stop();
+        }
+    }
+
+    RingBufferSpanSink sink;
+
+    @Before
+    public void enable() {
+        sink = new RingBufferSpanSink(1000);
+        Tracing.setSink(sink);
+        Tracing.ENABLED = true;
+    }
+
+    @After
+    public void disable() {
+        Tracing.ENABLED = false;
+        Tracing.setSink(new RingBufferSpanSink());
+        Tracing.exit(null);
+    }
+
+    @Test
+    public void fanOut() {
+        Front front = Actors.AsActor(Front.class);
+        front.init();
+        TraceContext root = Tracing.startTrace();
+        assertEquals(2 + 4, (int) front.query(1).await());
+        Tracing.exit(null);
+
+        List<Span> spans = sink.getTrace(root.getTraceId());
+        Span query = spans.stream().filter(s -> s.getMethod().equals("query")).findFirst().get();
+        assertEquals(0, query.getParentSpanId());
+        assertEquals("Front", query.getActor());
+        List<Span> work = spans.stream().filter(s -> s.getMethod().equals("work")).collect(Collectors.toList());
+        assertEquals(2, work.size());
+        work.forEach(s -> {
+            assertEquals(query.getSpanId(), s.getParentSpanId());
+            assertEquals("Back", s.getActor());
+            assertTrue(s.getQueueNanos() >= 0);
+        });
+        // results are delivered as callbacks to Front, children of the work spans
+        long callbacks = spans.stream()
+            .filter(s -> s.getActor().equals("Front") && s.getParentSpanId() != 0)
+            .filter(s -> work.stream().anyMatch(w -> w.getSpanId() == s.getParentSpanId()))
+            .count();
+        assertEquals(2, callbacks);
+        front.shutdown();
+    }
+
+    @Test
+    public void unsampled() {
+        Tracing.SAMPLE_RATE = Integer.MAX_VALUE;
+        try {
+            Back back = Actors.AsActor(Back.class);
+            for (int i = 0; i < 100; i++) {
+                back.work(i).await();
+            }
+            assertTrue(sink.getSpans().isEmpty());
+            back.stop();
+        } finally {
+            Tracing.SAMPLE_RATE = 1000;
+        }
+    }
+
+    @Test
+    public void remote() {
+        Back back = Actors.AsActor(Back.class);
+        ActorServer server = new TCPNIOPublisher(back, 5691).publish().await();
+        try {
+            Back remote = (Back) new TCPConnectable(Back.class, "localhost", 5691).connect().await();
+            TraceContext root = Tracing.startTrace();
+            assertEquals(10, (int) remote.work(5).await());
+            Tracing.exit(null);
+            List<Span> spans = sink.getTrace(root.getTraceId());
+            Span work = spans.stream().filter(s -> s.getMethod().equals("work")).findFirst().get();
+            assertEquals(0, work.getParentSpanId());
+            remote.close();
+        } finally {
+            server.close();
+            back.stop();
+        }
+    }
+
+}
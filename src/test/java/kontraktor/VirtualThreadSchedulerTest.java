@@ -0,0 +1,126 @@
+package kontraktor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.impl.VirtualThreadScheduler;
+import org.nustaq.kontraktor.impl.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * each actor runs on its own virtual thread, await suspends without reentering the mailbox.
+ * Requires JDK 21+, skipped otherwise.
+ */
+public class VirtualThreadSchedulerTest {
+
+    public static class Worker extends Actor<Worker> {
+
+        List<String> log = new ArrayList<>();
+        Worker other;
+
+        public void setOther(Worker other) {
+            this.other = other;
+        }
+
+        public IPromise<Integer> slowEcho(int i) {
+            Promise<Integer> res = new Promise<>();
+            delayed(20, () -> res.resolve(i));
+            return res;
+        }
+
+        public IPromise<Integer> awaitOther(String tag) {
+            log.add("start " + tag);
+            int sum = 0;
+            for (int i = 0; i < 5; i++) {
+                sum += other.slowEcho(i).await();
+            }
+            log.add("end " + tag);
+            return resolve(sum);
+        }
+
+        public IPromise<Integer> awaitForeign() {
+            Promise<Integer> p = new Promise<>();
+            new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                p.resolve(42);
+            }).start();
+            return resolve(p.await());
+        }
+
+        public IPromise<List<String>> getLog() {
+            return resolve(log);
+        }
+
+        public IPromise<Boolean> ownThread() {
+            return resolve(Thread.currentThread() == __currentDispatcher && getCurrentDispatcher() == null);
+        }
+
+        public IPromise<Worker> createChild() {
+            return resolve(Actors.AsActor(Worker.class, __scheduler));
+        }
+    }
+
+    @Before
+    public void checkJDK() {
+        assumeTrue(VirtualThreads.isAvailable());
+    }
+
+    @Test
+    public void awaitDoesNotReenter() {
+        VirtualThreadScheduler sched = new VirtualThreadScheduler();
+        Worker a = Actors.AsActor(Worker.class, sched);
+        Worker b = Actors.AsActor(Worker.class, sched);
+        a.setOther(b);
+        assertTrue(a.ownThread().await());
+        IPromise<Integer> first = a.awaitOther("1");
+        IPromise<Integer> second = a.awaitOther("2");
+        assertEquals(10, (int) first.await());
+        assertEquals(10, (int) second.await());
+        List<String> log = a.getLog().await();
+        assertEquals("start 1", log.get(0));
+        assertEquals("end 1", log.get(1));
+        assertEquals("start 2", log.get(2));
+        assertEquals("end 2", log.get(3));
+        assertEquals(42, (int) a.awaitForeign().await());
+        assertEquals(2, sched.getNumActors());
+        a.stop();
+        b.stop();
+        long start = System.currentTimeMillis();
+        while ( sched.getNumActors() > 0 && System.currentTimeMillis() - start < 5000 )
+            Thread.yield();
+        assertEquals(0, sched.getNumActors());
+    }
+
+    @Test
+    public void manyActors() {
+        VirtualThreadScheduler sched = new VirtualThreadScheduler(1024);
+        Worker parent = Actors.AsActor(Worker.class, sched);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            workers.add(parent.createChild().await());
+        }
+        List<IPromise<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            results.add(workers.get(i).slowEcho(i));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, (int) results.get(i).await());
+        }
+        assertEquals(workers.size() + 1, sched.getNumActors());
+        workers.forEach(w -> w.stop());
+        parent.stop();
+    }
+
+}
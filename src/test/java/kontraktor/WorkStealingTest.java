@@ -0,0 +1,159 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.IPromise;
+import org.nustaq.kontraktor.impl.DispatcherThread;
+import org.nustaq.kontraktor.impl.WorkStealingScheduler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * actors of a busy dispatcher get moved to idle ones, while ordering and single threadedness
+ * per actor is kept.
+ */
+public class WorkStealingTest {
+
+    public static class StealMe extends Actor<StealMe> {
+
+        int expected;
+        boolean failed;
+        AtomicBoolean running = new AtomicBoolean(false);
+        Set<Thread> threads = new HashSet<>();
+        volatile Thread awaiting;
+        AtomicInteger slowCount = new AtomicInteger();
+
+        public void work(int seq) {
+            if ( running.getAndSet(true) )
+                failed = true;
+            if ( awaiting != null && awaiting != Thread.currentThread() ) // moved while awaiting
+                failed = true;
+            if ( seq != expected++ )
+                failed = true;
+            threads.add(Thread.currentThread());
+            long end = System.nanoTime() + 20_000;
+            while ( System.nanoTime() < end ) {
+                // burn
+            }
+            running.set(false);
+        }
+
+        // subsequent messages are processed by a nested poll while awaiting
+        public void workAwait(int seq, StealMe other) {
+            work(seq);
+            Thread prev = awaiting;
+            awaiting = Thread.currentThread();
+            other.getProcessed().await();
+            awaiting = prev;
+        }
+
+        public void slow() {
+            long end = System.nanoTime() + 1_000_000;
+            while ( System.nanoTime() < end ) {
+                // burn
+            }
+            slowCount.incrementAndGet();
+        }
+
+        public IPromise<Integer> getProcessed() {
+            return resolve(failed ? -1 : expected);
+        }
+
+        public IPromise<Integer> getNumThreads() {
+            return resolve(threads.size());
+        }
+    }
+
+    @Test
+    public void stealActors() {
+        WorkStealingScheduler sched = new WorkStealingScheduler(4);
+        List<StealMe> actors = createActors(sched);
+        assertEquals(4, sched.getNumThreads());
+        // pick two actors sharing a thread, load only those
+        List<StealMe> loaded = sharingThread(actors);
+        StealMe a = loaded.get(0), b = loaded.get(1);
+        int msgs = 5000;
+        for (int i = 0; i < msgs; i++) {
+            a.work(i);
+            b.work(i);
+        }
+        assertEquals(msgs, (int) a.getProcessed().await(30_000));
+        assertEquals(msgs, (int) b.getProcessed().await(30_000));
+        assertNotEquals(a.getCurrentDispatcher(), b.getCurrentDispatcher());
+        assertTrue(a.getNumThreads().await() + b.getNumThreads().await() > 2);
+        actors.forEach( act -> act.stop() );
+        sched.terminateIfIdle();
+    }
+
+    // an idle thread takes over the actors delayed by a long running one, not only at the busy thread's tick
+    @Test
+    public void hotActorDoesNotDelayOthers() {
+        WorkStealingScheduler sched = new WorkStealingScheduler(4);
+        List<StealMe> actors = createActors(sched);
+        List<StealMe> loaded = sharingThread(actors);
+        StealMe hot = loaded.get(0), other = loaded.get(1);
+        int slowMsgs = 300;
+        for (int i = 0; i < slowMsgs; i++) {
+            hot.slow();
+        }
+        int msgs = 200;
+        for (int i = 0; i < msgs; i++) {
+            other.work(i);
+        }
+        assertEquals(msgs, (int) other.getProcessed().await(30_000));
+        // round robin on a single thread would have processed about msgs slow messages by now
+        int slowDone = hot.getActor().slowCount.get();
+        assertTrue("slow messages processed " + slowDone, slowDone < msgs / 2);
+        assertNotEquals(hot.getCurrentDispatcher(), other.getCurrentDispatcher());
+        hot.getProcessed().await(30_000);
+        assertEquals(slowMsgs, hot.getActor().slowCount.get());
+        actors.forEach( act -> act.stop() );
+        sched.terminateIfIdle();
+    }
+
+    // an actor processing messages in a nested poll (await) must not be moved
+    @Test
+    public void noStealWhileAwaiting() {
+        WorkStealingScheduler sched = new WorkStealingScheduler(4);
+        List<StealMe> actors = createActors(sched);
+        List<StealMe> loaded = sharingThread(actors);
+        StealMe a = loaded.get(0), b = loaded.get(1);
+        int msgs = 5000;
+        for (int i = 0; i < msgs; i++) {
+            if ( i % 100 == 0 )
+                a.workAwait(i, b);
+            else
+                a.work(i);
+            b.work(i);
+        }
+        assertEquals(msgs, (int) a.getProcessed().await(30_000));
+        assertEquals(msgs, (int) b.getProcessed().await(30_000));
+        actors.forEach( act -> act.stop() );
+        sched.terminateIfIdle();
+    }
+
+    List<StealMe> createActors(WorkStealingScheduler sched) {
+        List<StealMe> actors = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            actors.add(Actors.AsActor(StealMe.class, sched));
+        }
+        return actors;
+    }
+
+    List<StealMe> sharingThread(List<StealMe> actors) {
+        Map<DispatcherThread,List<StealMe>> byThread = new HashMap<>();
+        actors.forEach( act -> byThread.computeIfAbsent(act.getCurrentDispatcher(), t -> new ArrayList<>()).add(act));
+        return byThread.values().stream().filter(l -> l.size() >= 2).findFirst().get();
+    }
+
+}
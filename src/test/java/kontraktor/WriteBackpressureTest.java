@@ -0,0 +1,233 @@
+package kontraktor;
+
+import org.junit.Test;
+import org.nustaq.kontraktor.Actor;
+import org.nustaq.kontraktor.Actors;
+import org.nustaq.kontraktor.Promise;
+import org.nustaq.kontraktor.asyncio.ByteBufferPool;
+import org.nustaq.kontraktor.asyncio.QueuingAsyncSocketConnection;
+import org.nustaq.offheap.BinaryQueue;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * a client not reading pushes its connection above the high watermark, frames above the hard limit
+ * are handled according to the overflow policy.
+ */
+public class WriteBackpressureTest {
+
+    static final int FRAME_SIZE = 64_000;
+
+    static class TestConnection extends QueuingAsyncSocketConnection {
+
+        public TestConnection(SocketChannel chan) {
+            super(null, chan);
+            myActor = Runnable::run; // not bound to a reactor, everything happens in the test thread
+        }
+
+        @Override
+        public void closed(Throwable ioe) {
+            isClosed = true;
+        }
+
+        @Override
+        protected void dataReceived(BinaryQueue queue) {
+        }
+
+        public boolean reserveFrame(long bytes) {
+            return reserve(bytes);
+        }
+
+        // simulates the io thread having written queued bytes
+        public void written(long bytes) {
+            unreserve(bytes);
+        }
+    }
+
+    @Test
+    public void dropAboveLimit() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = createConnection(chan, QueuingAsyncSocketConnection.OverflowPolicy.DROP);
+            boolean wasBlocked = false;
+            for (int i = 0; i < 500; i++) {
+                con.writeBuffer(frame());
+                con.tryFlush();
+                wasBlocked |= !con.canWrite();
+                assertTrue(con.getQueuedBytes() <= 1_000_000);
+            }
+            assertTrue(wasBlocked);
+            assertFalse(con.canWrite());
+            assertTrue(chan.isOpen());
+            chan.close();
+        }
+    }
+
+    @Test
+    public void disconnectAboveLimit() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = createConnection(chan, QueuingAsyncSocketConnection.OverflowPolicy.DISCONNECT);
+            for (int i = 0; i < 500 && chan.isOpen(); i++) {
+                con.writeBuffer(frame());
+                con.tryFlush();
+            }
+            assertFalse(chan.isOpen());
+        }
+    }
+
+    @Test
+    public void blockUntilDrained() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = fillBlocking(chan); // io thread never blocks
+            // frame larger than the low watermark sent from another thread
+            AtomicBoolean accepted = new AtomicBoolean();
+            Thread sender = new Thread(() -> accepted.set(con.reserveFrame(1_500_000)));
+            sender.start();
+            sender.join(200);
+            assertTrue(sender.isAlive());
+            con.written(con.getQueuedBytes());
+            sender.join(5000);
+            assertFalse(sender.isAlive());
+            assertTrue(accepted.get());
+            assertEquals(1_500_000, con.getQueuedBytes());
+            assertFalse(con.canWrite());
+            chan.close();
+        }
+    }
+
+    @Test
+    public void blockTimesOut() throws Exception {
+        long timeout = QueuingAsyncSocketConnection.BLOCK_TIMEOUT_MILLIS;
+        QueuingAsyncSocketConnection.BLOCK_TIMEOUT_MILLIS = 300;
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = fillBlocking(chan);
+            AtomicBoolean accepted = new AtomicBoolean(true);
+            Thread sender = new Thread(() -> accepted.set(con.reserveFrame(FRAME_SIZE)));
+            sender.start();
+            sender.join(5000);
+            assertFalse(sender.isAlive());
+            assertFalse(accepted.get());
+            assertFalse(chan.isOpen());
+        } finally {
+            QueuingAsyncSocketConnection.BLOCK_TIMEOUT_MILLIS = timeout;
+        }
+    }
+
+    @Test
+    public void blockReleasedOnClose() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = fillBlocking(chan);
+            long queued = con.getQueuedBytes();
+            AtomicBoolean accepted = new AtomicBoolean(true);
+            Thread sender = new Thread(() -> accepted.set(con.reserveFrame(FRAME_SIZE)));
+            sender.start();
+            sender.join(200);
+            assertTrue(sender.isAlive());
+            con.closed(null); // channel is closed later on by the io thread
+            sender.join(5000);
+            assertFalse(sender.isAlive());
+            assertFalse(accepted.get());
+            assertEquals(queued, con.getQueuedBytes());
+            chan.close();
+        }
+    }
+
+    @Test
+    public void blockNeverParksActorThreads() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = fillBlocking(chan);
+            long queued = con.getQueuedBytes();
+            SenderActor actor = Actors.AsActor(SenderActor.class);
+            Promise<Boolean> accepted = new Promise<>();
+            actor.execute(() -> accepted.resolve(con.reserveFrame(FRAME_SIZE)));
+            assertTrue(accepted.await(1000));
+            assertEquals(queued + FRAME_SIZE, con.getQueuedBytes());
+            assertFalse(con.canWrite());
+            actor.stop();
+            chan.close();
+        }
+    }
+
+    public static class SenderActor extends Actor<SenderActor> {
+    }
+
+    // above the hard limit, written from the io (test) thread
+    TestConnection fillBlocking(SocketChannel chan) throws Exception {
+        TestConnection con = createConnection(chan, QueuingAsyncSocketConnection.OverflowPolicy.BLOCK);
+        while ( con.getQueuedBytes() <= 1_000_000 ) {
+            con.writeBuffer(frame());
+            con.tryFlush();
+        }
+        return con;
+    }
+
+    @Test
+    public void writableOnceDrained() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel stalled = SocketChannel.open()) {
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(server.getLocalAddress());
+            SocketChannel chan = server.accept();
+            TestConnection con = createConnection(chan, QueuingAsyncSocketConnection.OverflowPolicy.DROP);
+            AtomicInteger signaled = new AtomicInteger();
+            con.setWritableListener(signaled::incrementAndGet);
+            while ( con.canWrite() ) {
+                con.writeBuffer(frame());
+                con.tryFlush();
+            }
+            con.written(con.getQueuedBytes() - 300_000); // still above low watermark
+            assertEquals(0, signaled.get());
+            con.written(100_000);
+            assertTrue(con.canWrite());
+            assertEquals(1, signaled.get());
+            chan.close();
+        }
+    }
+
+    TestConnection createConnection(SocketChannel chan, QueuingAsyncSocketConnection.OverflowPolicy policy) throws Exception {
+        chan.configureBlocking(false);
+        chan.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+        TestConnection con = new TestConnection(chan);
+        con.setWatermarks(200_000, 500_000, 1_000_000);
+        con.setOverflowPolicy(policy);
+        return con;
+    }
+
+    ByteBuffer frame() {
+        ByteBuffer buf = ByteBufferPool.Shared.acquire(FRAME_SIZE);
+        buf.limit(FRAME_SIZE);
+        return buf;
+    }
+
+}